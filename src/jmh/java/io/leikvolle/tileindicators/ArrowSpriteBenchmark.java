@@ -0,0 +1,64 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import net.runelite.client.util.ImageUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Draws the destination arrow onto a canvas, resampled from the source image as the overlay used to, and as
+ * a blit of the pre-scaled sprite.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArrowSpriteBenchmark
+{
+	@Param({"0.3", "0.8"})
+	public double scale;
+
+	private BufferedImage icon;
+	private ArrowSpriteCache sprites;
+	private Graphics2D graphics;
+
+	@Setup
+	public void setUp()
+	{
+		icon = ImageUtil.loadImageResource(ImprovedTileIndicatorsPlugin.class, "arrow.png");
+		sprites = new ArrowSpriteCache(icon);
+		graphics = new BufferedImage(765, 503, BufferedImage.TYPE_INT_ARGB).createGraphics();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public boolean resampled()
+	{
+		return graphics.drawImage(icon, 300, 200, (int) (icon.getWidth() * scale), (int) (icon.getHeight() * scale), null);
+	}
+
+	@Benchmark
+	public boolean cached()
+	{
+		return graphics.drawImage(sprites.get(graphics, scale), 300, 200, null);
+	}
+}
@@ -0,0 +1,101 @@
+package io.leikvolle.tileindicators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.runelite.api.Model;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Deterministic inputs for the benchmarks, built on the headless test harness so no client is needed.
+ */
+final class BenchmarkFixtures
+{
+	// The local player stands in the middle of the scene
+	static final LocalPoint PLAYER_LOCATION = LocalPoint.fromScene(52, 52);
+
+	private BenchmarkFixtures()
+	{
+	}
+
+	/**
+	 * A client looking at the player from the south at a typical pitch and zoom.
+	 */
+	static HeadlessClient client()
+	{
+		final HeadlessClient client = new HeadlessClient();
+		client.setLocalPlayer(new HeadlessActor(0, -1, "Player", PLAYER_LOCATION, HeadlessModels.sphere(800, 50)));
+		client.lookAt(PLAYER_LOCATION, 1900, 300, 0);
+		return client;
+	}
+
+	/**
+	 * Adds NPCs scattered over the scene around the player, one per index, and tags them all.
+	 */
+	static void scatterNpcs(HeadlessClient client, HeadlessConfig config, int count, Model model, long seed)
+	{
+		final Random random = new Random(seed);
+		for (int i = 0; i < count; i++)
+		{
+			final LocalPoint location = LocalPoint.fromScene(20 + random.nextInt(64), 20 + random.nextInt(64));
+			final HeadlessActor actor = new HeadlessActor(i, random.nextInt(10000), "Scattered", location, model);
+			actor.orientation = random.nextInt(2048);
+			client.addNpc(actor);
+		}
+		config.topNPCs = "Scattered";
+	}
+
+	/**
+	 * A name list of the given size where every {@code wildcardEvery}th entry is a wildcard.
+	 */
+	static List<String> namePatterns(int count, int wildcardEvery, long seed)
+	{
+		final Random random = new Random(seed);
+		final List<String> patterns = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			final String name = randomName(random);
+			if (i % wildcardEvery == wildcardEvery - 1)
+			{
+				final int split = 1 + random.nextInt(name.length() - 1);
+				patterns.add(random.nextBoolean() ? name.substring(0, split) + "*" : "*" + name.substring(split));
+			}
+			else
+			{
+				patterns.add(name);
+			}
+		}
+		return patterns;
+	}
+
+	static String[] names(int count, long seed)
+	{
+		final Random random = new Random(seed);
+		final String[] names = new String[count];
+		for (int i = 0; i < count; i++)
+		{
+			names[i] = randomName(random);
+		}
+		return names;
+	}
+
+	private static String randomName(Random random)
+	{
+		final StringBuilder name = new StringBuilder();
+		final int words = 1 + random.nextInt(3);
+		for (int word = 0; word < words; word++)
+		{
+			if (word > 0)
+			{
+				name.append(' ');
+			}
+			final int length = 3 + random.nextInt(6);
+			for (int i = 0; i < length; i++)
+			{
+				final char letter = (char) ('a' + random.nextInt(26));
+				name.append(i == 0 && word == 0 ? Character.toUpperCase(letter) : letter);
+			}
+		}
+		return name.toString();
+	}
+}
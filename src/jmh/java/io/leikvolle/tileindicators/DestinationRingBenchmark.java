@@ -0,0 +1,54 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Polygon;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.coords.LocalPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Projects the destination ring and its shadow, near the camera where the ring uses every point and far away
+ * where it drops to the lowest resolution.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DestinationRingBenchmark
+{
+	@Param({"0", "10", "40"})
+	public int tilesAway;
+
+	private final Polygon ring = new Polygon();
+	private final Polygon shadow = new Polygon();
+	private ImprovedTileIndicatorsOverlay overlay;
+	private LocalPoint destination;
+
+	@Setup
+	public void setUp()
+	{
+		final HeadlessClient client = BenchmarkFixtures.client();
+		overlay = new HeadlessRenderer(client, new HeadlessConfig()).overlay;
+		overlay.getProjection().begin(client.getClient());
+		destination = LocalPoint.fromScene(BenchmarkFixtures.PLAYER_LOCATION.getSceneX(), BenchmarkFixtures.PLAYER_LOCATION.getSceneY() + tilesAway);
+	}
+
+	@Benchmark
+	public int projectTargetTileCircle()
+	{
+		overlay.getProjection().reset();
+		overlay.projectTargetTileCircle(destination, 0.65, 0, 10, ring, shadow);
+		return ring.npoints + shadow.npoints;
+	}
+}
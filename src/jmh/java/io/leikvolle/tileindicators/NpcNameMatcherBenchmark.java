@@ -0,0 +1,65 @@
+package io.leikvolle.tileindicators;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matches NPC names against long draw-above lists. A small name pool stays in the matcher's memo, the large
+ * one does not, so both the memoized and the compiled lookups are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NpcNameMatcherBenchmark
+{
+	@Param({"10", "100", "1000"})
+	public int patterns;
+
+	@Param({"16", "4096"})
+	public int distinctNames;
+
+	private NpcNameMatcher matcher;
+	private List<String> patternList;
+	private String[] names;
+	private int next;
+
+	@Setup
+	public void setUp()
+	{
+		// One in four entries is a wildcard, and some of the looked up names are on the list
+		patternList = BenchmarkFixtures.namePatterns(patterns, 4, 11);
+		names = BenchmarkFixtures.names(distinctNames, 13);
+		for (int i = 0; i < names.length; i += 8)
+		{
+			names[i] = patternList.get(i % patternList.size()).replace("*", "");
+		}
+		matcher = new NpcNameMatcher(patternList);
+	}
+
+	@Benchmark
+	public boolean matches()
+	{
+		next = (next + 1) % names.length;
+		return matcher.matches(names[next]);
+	}
+
+	@Benchmark
+	public NpcNameMatcher compile()
+	{
+		return new NpcNameMatcher(patternList);
+	}
+}
@@ -0,0 +1,60 @@
+package io.leikvolle.tileindicators;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Collects the {@code limit} tracked NPCs nearest to the player from the grid and ranks them by priority, as the
+ * overlay does every frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NpcSelectionBenchmark
+{
+	@Param({"10", "100", "1000"})
+	public int tracked;
+
+	@Param({"10", "50"})
+	public int limit;
+
+	private ImprovedTileIndicatorsOverlay overlay;
+	private NpcIndexSnapshot trackedNpcs;
+
+	@Setup
+	public void setUp()
+	{
+		final HeadlessClient client = BenchmarkFixtures.client();
+		final HeadlessConfig config = new HeadlessConfig();
+		BenchmarkFixtures.scatterNpcs(client, config, tracked, HeadlessModels.sphere(500, 60), 7);
+		final HeadlessRenderer renderer = new HeadlessRenderer(client, config);
+		renderer.rebuild();
+		overlay = renderer.overlay;
+		trackedNpcs = renderer.plugin.getTrackedNpcs();
+	}
+
+	@Benchmark
+	public int selectNpcs()
+	{
+		final int count = overlay.collectNpcs(trackedNpcs, BenchmarkFixtures.PLAYER_LOCATION, limit);
+		for (int i = 0; i < count; i++)
+		{
+			overlay.selectNext(i);
+		}
+		overlay.getScratch().releaseActors();
+		return count;
+	}
+}
@@ -0,0 +1,83 @@
+package io.leikvolle.tileindicators;
+
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.Client;
+import net.runelite.api.NPC;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Captures one NPC standing in front of the player and builds its coverage, projecting, culling and rasterizing
+ * it into the mask. The NPC turns a little every invocation so the silhouette cache always misses, except in
+ * {@link #cached()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SilhouetteBenchmark
+{
+	@Param({"500", "2000", "5000", "20000"})
+	public int faces;
+
+	@Param({"EXACT", "OUTLINE", "HULL"})
+	public String detail;
+
+	private final OccluderSnapshot snapshot = new OccluderSnapshot();
+	private final CoverageBuilder builder = new CoverageBuilder();
+	private final CoverageResult result = new CoverageResult();
+	private final OpaqueFaceCache opaqueFaceCache = new OpaqueFaceCache();
+	private Client client;
+	private SilhouetteDetail silhouetteDetail;
+	private HeadlessActor moving;
+	private NPC npc;
+	private NPC stillNpc;
+
+	@Setup
+	public void setUp()
+	{
+		final HeadlessClient headless = BenchmarkFixtures.client();
+		moving = new HeadlessActor(0, 1, "Moving", BenchmarkFixtures.PLAYER_LOCATION, HeadlessModels.sphere(faces, 60));
+		npc = headless.addNpc(moving);
+		stillNpc = headless.addNpc(new HeadlessActor(1, 2, "Still", BenchmarkFixtures.PLAYER_LOCATION, HeadlessModels.sphere(faces, 60)));
+		client = headless.getClient();
+		silhouetteDetail = SilhouetteDetail.valueOf(detail);
+
+		// Records the still NPC's silhouette, which every invocation of cached() reuses
+		snapshot.begin(client);
+		snapshot.add(client, stillNpc, silhouetteDetail);
+		snapshot.copyModels(opaqueFaceCache);
+		builder.build(snapshot, result);
+	}
+
+	@Benchmark
+	public long uncached()
+	{
+		moving.orientation = (moving.orientation + 1) & 2047;
+		snapshot.begin(client);
+		snapshot.add(client, npc, silhouetteDetail);
+		snapshot.copyModels(opaqueFaceCache);
+		builder.build(snapshot, result);
+		return builder.getSilhouetteCache().getMisses();
+	}
+
+	@Benchmark
+	public long cached()
+	{
+		snapshot.begin(client);
+		snapshot.add(client, stillNpc, silhouetteDetail);
+		builder.build(snapshot, result);
+		return builder.getSilhouetteCache().getHits();
+	}
+}
@@ -0,0 +1,108 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.Client;
+import net.runelite.api.NPC;
+import net.runelite.api.Perspective;
+import net.runelite.api.Point;
+import net.runelite.api.coords.WorldPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Marks the true tiles of scattered NPCs, batched into one outline as the overlay does, against projecting and
+ * drawing a polygon for each marker on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrueTileBenchmark
+{
+	@Param({"10", "100", "400"})
+	public int npcs;
+
+	private final BasicStroke stroke = new BasicStroke(1);
+	private Client client;
+	private HeadlessRenderer renderer;
+	private ConfigSnapshot config;
+	private BufferedImage image;
+	private Graphics2D graphics;
+
+	@Setup
+	public void setUp()
+	{
+		final HeadlessClient headless = BenchmarkFixtures.client();
+		final HeadlessConfig headlessConfig = new HeadlessConfig();
+		headlessConfig.trueTileMarkers = true;
+		BenchmarkFixtures.scatterNpcs(headless, headlessConfig, npcs, HeadlessModels.sphere(300, 30), 11);
+		renderer = new HeadlessRenderer(headless, headlessConfig);
+		renderer.rebuild();
+		renderer.plugin.updateConfigSnapshot();
+		renderer.plugin.publishTrackedNpcs();
+		config = renderer.plugin.getConfigSnapshot();
+		client = headless.getClient();
+		image = HeadlessRenderer.newImage(headless);
+		graphics = image.createGraphics();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage batched()
+	{
+		renderer.overlay.getProjection().begin(client);
+		renderer.overlay.renderTrueTiles(graphics, config);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage separate()
+	{
+		graphics.setStroke(stroke);
+		graphics.setColor(config.trueTileNpcColor);
+		for (NPC npc : client.getNpcs())
+		{
+			final WorldPoint location = npc.getWorldLocation();
+			final int x = location.getX() - client.getBaseX() << Perspective.LOCAL_COORD_BITS;
+			final int y = location.getY() - client.getBaseY() << Perspective.LOCAL_COORD_BITS;
+			final int extent = npc.getTransformedComposition().getSize() << Perspective.LOCAL_COORD_BITS;
+			final Polygon polygon = new Polygon();
+			addCorner(polygon, x, y);
+			addCorner(polygon, x + extent, y);
+			addCorner(polygon, x + extent, y + extent);
+			addCorner(polygon, x, y + extent);
+			graphics.draw(polygon);
+		}
+		return image;
+	}
+
+	private void addCorner(Polygon polygon, int x, int y)
+	{
+		final Point point = Perspective.localToCanvas(client, x, y, 0);
+		if (point != null)
+		{
+			polygon.addPoint(point.getX(), point.getY());
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * The destination arrow pre-scaled to the sizes it is drawn at, so drawing it is a plain blit rather than a
+ * resample every frame. Scales are quantised to whole pixels of width, which bounds the cache to one sprite per
+ * pixel of the source image's width. Each sprite is built the first time it is needed, in a format compatible
+ * with the graphics it is drawn to, and they are all dropped when that changes.
+ */
+final class ArrowSpriteCache
+{
+	private final BufferedImage source;
+	private final BufferedImage[] sprites;
+	private GraphicsConfiguration configuration;
+
+	ArrowSpriteCache(BufferedImage source)
+	{
+		this.source = source;
+		sprites = new BufferedImage[source.getWidth() + 1];
+	}
+
+	/**
+	 * Returns the arrow scaled by about the given factor, which is at most 1, for drawing to the graphics.
+	 */
+	BufferedImage get(Graphics2D graphics, double scale)
+	{
+		final int width = Math.max(1, Math.min(source.getWidth(), (int) Math.round(source.getWidth() * scale)));
+		final GraphicsConfiguration current = graphics.getDeviceConfiguration();
+		if (current != configuration)
+		{
+			Arrays.fill(sprites, null);
+			configuration = current;
+		}
+
+		BufferedImage sprite = sprites[width];
+		if (sprite == null)
+		{
+			sprite = scale(width);
+			sprites[width] = sprite;
+		}
+		return sprite;
+	}
+
+	/**
+	 * Returns the number of sprites built so far.
+	 */
+	int size()
+	{
+		int size = 0;
+		for (BufferedImage sprite : sprites)
+		{
+			if (sprite != null)
+			{
+				size++;
+			}
+		}
+		return size;
+	}
+
+	private BufferedImage scale(int width)
+	{
+		final int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+
+		// Halving first keeps bilinear filtering from skipping source pixels, which it does past half size
+		BufferedImage image = source;
+		while (image.getWidth() / 2 >= width && image.getHeight() / 2 >= height)
+		{
+			final BufferedImage half = new BufferedImage(image.getWidth() / 2, image.getHeight() / 2, BufferedImage.TYPE_INT_ARGB);
+			draw(image, half);
+			image = half;
+		}
+
+		final BufferedImage sprite = configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		draw(image, sprite);
+		return sprite;
+	}
+
+	private static void draw(BufferedImage from, BufferedImage to)
+	{
+		final Graphics2D graphics = to.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		graphics.drawImage(from, 0, 0, to.getWidth(), to.getHeight(), null);
+		graphics.dispose();
+	}
+}
@@ -0,0 +1,71 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.util.Collections;
+import net.runelite.api.Perspective;
+import net.runelite.client.util.Text;
+
+/**
+ * The config as the overlays read it, compiled once whenever it changes so drawing a frame does no config
+ * lookups, parsing or allocation. Snapshots never change once built; the plugin swaps in a new one on every
+ * config change.
+ */
+final class ConfigSnapshot
+{
+	final boolean overlaysBelowPlayer;
+	final boolean overlaysBelowOtherPlayers;
+	final boolean otherPlayersFriends;
+	final boolean otherPlayersClan;
+	// Not memoized, since the snapshot is shared with every thread that draws or records
+	final NpcNameMatcher otherPlayerMatcher;
+
+	final boolean customDestinationTile;
+	final TileStyle destinationStyle;
+	final BasicStroke destinationStroke;
+	final Color destinationColor;
+	final boolean destinationPath;
+
+	final boolean overlaysBelowNPCs;
+	final int frameBudget;
+	// In local units rather than tiles
+	final int outlineDistance;
+	final int hullDistance;
+	final boolean backgroundCoverage;
+
+	final boolean trueTileMarkers;
+	final BasicStroke trueTileStroke;
+	final Color trueTileNpcColor;
+	final Color trueTilePlayerColor;
+
+	final boolean debugFrameTimings;
+
+	ConfigSnapshot(ImprovedTileIndicatorsConfig config)
+	{
+		overlaysBelowPlayer = config.overlaysBelowPlayer();
+		overlaysBelowOtherPlayers = config.overlaysBelowOtherPlayers();
+		otherPlayersFriends = config.otherPlayersFriends();
+		otherPlayersClan = config.otherPlayersClan();
+		final String names = config.otherPlayerNames();
+		otherPlayerMatcher = new NpcNameMatcher(names.isEmpty() ? Collections.emptyList() : Text.fromCSV(names), false);
+
+		customDestinationTile = config.customDestinationTile();
+		destinationStyle = config.highlightDestinationStyle();
+		destinationStroke = new BasicStroke((float) config.destinationTileBorderWidth());
+		destinationColor = config.highlightDestinationColor();
+		destinationPath = config.destinationPath();
+
+		overlaysBelowNPCs = config.overlaysBelowNPCs();
+		frameBudget = config.frameBudget();
+		outlineDistance = config.outlineDistance() * Perspective.LOCAL_TILE_SIZE;
+		hullDistance = config.hullDistance() * Perspective.LOCAL_TILE_SIZE;
+		backgroundCoverage = config.backgroundCoverage();
+
+		trueTileMarkers = config.trueTileMarkers();
+		trueTileStroke = new BasicStroke((float) config.trueTileBorderWidth());
+		trueTileNpcColor = config.trueTileNpcColor();
+		trueTilePlayerColor = config.trueTilePlayerColor();
+
+		debugFrameTimings = config.debugFrameTimings();
+	}
+}
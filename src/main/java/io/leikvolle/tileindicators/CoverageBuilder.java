@@ -0,0 +1,233 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.runelite.api.Perspective;
+
+/**
+ * Builds a frame's coverage from an {@link OccluderSnapshot}: culls, projects and rasterizes the front facing,
+ * non-transparent triangles of every occluder into the result's mask, reusing last frame's silhouettes where
+ * neither the actor nor the camera has changed. Only reads the snapshot, never the client, so it can run on
+ * any thread, but one builder must only be used by one thread at a time.
+ */
+final class CoverageBuilder
+{
+	private final ProjectionEngine projection = new ProjectionEngine();
+	@Getter(AccessLevel.PACKAGE)
+	private final SilhouetteCache silhouetteCache = new SilhouetteCache();
+	private final SilhouetteGeometry silhouetteGeometry = new SilhouetteGeometry();
+
+	// Occluders projected this frame and waiting to be rasterized, null where the cached silhouette is reused
+	private OccluderSnapshot.Occluder[] queuedOccluders = new OccluderSnapshot.Occluder[0];
+	private SilhouetteCache.Silhouette[] queuedSilhouettes = new SilhouetteCache.Silhouette[0];
+	private int[] queuedOffsets = new int[0];
+	private SilhouetteDetail[] queuedDetails = new SilhouetteDetail[0];
+	private int queuedCount;
+
+	private int[] counts;
+	private long[] detailNanos;
+
+	void build(OccluderSnapshot snapshot, CoverageResult result)
+	{
+		final long start = System.nanoTime();
+		counts = result.counts;
+		Arrays.fill(counts, 0);
+		detailNanos = result.detailNanos;
+		Arrays.fill(detailNanos, 0);
+		Arrays.fill(result.detailCounts, 0);
+		Arrays.fill(result.detailReused, 0);
+		result.mask.reset(snapshot.viewportX, snapshot.viewportY, snapshot.viewportWidth, snapshot.viewportHeight);
+		projection.begin(snapshot);
+		silhouetteCache.begin(snapshot);
+
+		// Every occluder is projected in one pass before any of them is rasterized, each one whose silhouette is
+		// built timed for the frame budget
+		long occluderStart = start;
+		for (int i = 0; i < snapshot.count; i++)
+		{
+			final OccluderSnapshot.Occluder occluder = snapshot.occluders[i];
+			final boolean reused = queue(occluder);
+			final long now = System.nanoTime();
+			if (reused)
+			{
+				result.detailReused[occluder.detail.ordinal()]++;
+			}
+			else
+			{
+				detailNanos[occluder.detail.ordinal()] += now - occluderStart;
+				result.detailCounts[occluder.detail.ordinal()]++;
+			}
+			occluderStart = now;
+		}
+		final long projected = occluderStart;
+		rasterizeQueue(result.mask);
+
+		result.projectionNanos = projected - start;
+		result.rasterizationNanos = System.nanoTime() - projected;
+		result.inputHash = snapshot.getInputHash();
+		result.reported = false;
+	}
+
+	/**
+	 * Queues the occluder to be rasterized by {@link #rasterizeQueue(CoverageMask)}. Its model is projected
+	 * straight away, unless last frame's silhouette can be reused, in which case this returns true.
+	 */
+	private boolean queue(OccluderSnapshot.Occluder occluder)
+	{
+		final SilhouetteCache.Silhouette cached = silhouetteCache.get(occluder);
+		if (cached != null)
+		{
+			counts[FrameProfiler.Counter.SILHOUETTE_HITS.ordinal()]++;
+			enqueue(null, cached, 0, occluder.detail);
+			return true;
+		}
+
+		if (!occluder.hasModel)
+		{
+			return false;
+		}
+		final SilhouetteCache.Silhouette silhouette = silhouetteCache.record(occluder);
+		if (!isInView(occluder))
+		{
+			// Left empty, so the actor is not even looked at again until it or the camera moves
+			counts[FrameProfiler.Counter.ACTORS_CULLED.ordinal()]++;
+			return false;
+		}
+		final int offset = projection.projectModel(occluder.vertexCount, occluder.localX, occluder.localY, occluder.localZ,
+			occluder.orientation, occluder.verticesX, occluder.verticesZ, occluder.verticesY);
+		counts[FrameProfiler.Counter.VERTICES_PROJECTED.ordinal()] += occluder.vertexCount;
+		enqueue(occluder, silhouette, offset, occluder.detail);
+		return false;
+	}
+
+	/**
+	 * Tests the bounding sphere of the model's bounding cylinder, widened to the actor's footprint, against the
+	 * view frustum. Models the client had not calculated bounds for are always in view.
+	 */
+	private boolean isInView(OccluderSnapshot.Occluder occluder)
+	{
+		final int horizontal = Math.max(occluder.xyzMag, occluder.size * Perspective.LOCAL_TILE_SIZE * 3 / 4);
+		final int top = occluder.localZ - occluder.modelHeight;
+		final int bottom = occluder.localZ + occluder.bottomY;
+		if (occluder.xyzMag == 0 || bottom < top)
+		{
+			return true;
+		}
+		final int halfHeight = (bottom - top + 1) / 2;
+		final int radius = (int) Math.ceil(Math.sqrt((double) horizontal * horizontal + (double) halfHeight * halfHeight));
+		return projection.sphereInView(occluder.localX, occluder.localY, top + halfHeight, radius);
+	}
+
+	private void enqueue(OccluderSnapshot.Occluder occluder, SilhouetteCache.Silhouette silhouette, int offset, SilhouetteDetail detail)
+	{
+		if (queuedCount == queuedOccluders.length)
+		{
+			final int capacity = Math.max(16, queuedCount * 2);
+			queuedOccluders = Arrays.copyOf(queuedOccluders, capacity);
+			queuedSilhouettes = Arrays.copyOf(queuedSilhouettes, capacity);
+			queuedOffsets = Arrays.copyOf(queuedOffsets, capacity);
+			queuedDetails = Arrays.copyOf(queuedDetails, capacity);
+		}
+		queuedOccluders[queuedCount] = occluder;
+		queuedSilhouettes[queuedCount] = silhouette;
+		queuedOffsets[queuedCount] = offset;
+		queuedDetails[queuedCount] = detail;
+		queuedCount++;
+	}
+
+	/**
+	 * Rasterizes every queued occluder into the mask, building new silhouettes from the projected models where
+	 * the cached ones could not be reused, then empties the queue and the projection buffers.
+	 */
+	private void rasterizeQueue(CoverageMask mask)
+	{
+		long occluderStart = System.nanoTime();
+		for (int i = 0; i < queuedCount; i++)
+		{
+			final SilhouetteCache.Silhouette silhouette = queuedSilhouettes[i];
+			final boolean built = queuedOccluders[i] != null;
+			if (built)
+			{
+				buildSilhouette(queuedOccluders[i], queuedOffsets[i], silhouette);
+			}
+			mask.fillTriangles(silhouette.triangles, silhouette.triangleCount);
+			mask.fillEdges(silhouette.edges, silhouette.edgeCount);
+			queuedOccluders[i] = null;
+			queuedSilhouettes[i] = null;
+
+			final long now = System.nanoTime();
+			if (built)
+			{
+				detailNanos[queuedDetails[i].ordinal()] += now - occluderStart;
+			}
+			occluderStart = now;
+		}
+		queuedCount = 0;
+		projection.reset();
+	}
+
+	/**
+	 * Writes the front facing, non-transparent triangles of the projected model to the silhouette. Lower detail
+	 * levels write only the outline of those triangles, or the convex hull of the projected model. Models
+	 * entirely outside the viewport leave the silhouette empty.
+	 */
+	private void buildSilhouette(OccluderSnapshot.Occluder occluder, int offset, SilhouetteCache.Silhouette silhouette)
+	{
+		final int vCount = occluder.vertexCount;
+		if (!projection.anyVisible(offset, vCount))
+		{
+			return;
+		}
+
+		final int[] x2d = projection.x2d;
+		final int[] y2d = projection.y2d;
+
+		if (occluder.detail == SilhouetteDetail.HULL)
+		{
+			silhouetteGeometry.emitHull(x2d, y2d, offset, vCount, silhouette);
+			return;
+		}
+
+		// Only opaque faces are packed, so every face visited here can be drawn unless it is culled
+		final OpaqueFaceCache.OpaqueFaces opaqueFaces = occluder.faces;
+		int filled = 0;
+		if (occluder.detail == SilhouetteDetail.OUTLINE)
+		{
+			filled = silhouetteGeometry.emitOutline(x2d, y2d, offset, opaqueFaces, silhouette);
+		}
+		else
+		{
+			final int[] faces = opaqueFaces.faces;
+			final int end = opaqueFaces.count * 3;
+			for (int i = 0; i < end; i += 3)
+			{
+				final int a = offset + faces[i];
+				final int b = offset + faces[i + 1];
+				final int c = offset + faces[i + 2];
+				// Cull tris facing away from the camera, or entirely off screen
+				if (getTriDirection(x2d[a], y2d[a], x2d[b], y2d[b], x2d[c], y2d[c]) >= 0 || projection.triangleOutside(a, b, c))
+				{
+					continue;
+				}
+				filled++;
+				silhouette.add(
+					x2d[a], y2d[a],
+					x2d[b], y2d[b],
+					x2d[c], y2d[c]);
+			}
+		}
+
+		counts[FrameProfiler.Counter.TRIANGLES_FILLED.ordinal()] += filled;
+		counts[FrameProfiler.Counter.TRIANGLES_CULLED.ordinal()] += opaqueFaces.faceCount - filled;
+	}
+
+	private static int getTriDirection(int x1, int y1, int x2, int y2, int x3, int y3)
+	{
+		int x4 = x2 - x1;
+		int y4 = y2 - y1;
+		int x5 = x3 - x1;
+		int y5 = y3 - y1;
+		return x4 * y5 - y4 * x5;
+	}
+}
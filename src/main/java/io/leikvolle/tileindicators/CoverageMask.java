@@ -0,0 +1,380 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * A viewport sized alpha raster that occluding triangles are scan converted into, so that all covered pixels
+ * can be cleared from the overlay with a single composite operation instead of one {@code fill} per triangle.
+ * <p>
+ * Pixels are sampled like Java2D fills non-antialiased shapes with integer vertices: a pixel is covered when
+ * its top left corner lies inside the triangle, with the top and left edges inclusive and the bottom and right
+ * edges exclusive. Edge intersections are computed exactly, so the only differences from Java2D are samples
+ * landing exactly on a sloped edge, which Java2D's fixed point stepping may round either way.
+ */
+final class CoverageMask
+{
+	private static final int COVERED = 0xFF000000;
+
+	private BufferedImage image;
+	private int[] pixels;
+	private int stride;
+
+	private int originX;
+	private int originY;
+	private int width;
+	private int height;
+
+	// Scratch storage for edge list fills
+	private long[] edgeOrder = new long[0];
+	private int[] activeEdges = new int[0];
+	private long[] crossingX = new long[0];
+	private int[] crossingWeight = new int[0];
+
+	// Dirty rectangle in mask coordinates, inclusive min and exclusive max
+	private int dirtyMinX;
+	private int dirtyMinY;
+	private int dirtyMaxX;
+	private int dirtyMaxY;
+
+	/**
+	 * Prepares the mask to cover the given canvas rectangle, clearing whatever was rasterized last frame.
+	 */
+	void reset(int x, int y, int width, int height)
+	{
+		if (image == null || image.getWidth() < width || image.getHeight() < height)
+		{
+			image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+			pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			stride = image.getWidth();
+		}
+		else
+		{
+			for (int row = dirtyMinY; row < dirtyMaxY; row++)
+			{
+				final int offset = row * stride;
+				for (int col = dirtyMinX; col < dirtyMaxX; col++)
+				{
+					pixels[offset + col] = 0;
+				}
+			}
+		}
+
+		this.originX = x;
+		this.originY = y;
+		this.width = width;
+		this.height = height;
+		dirtyMinX = width;
+		dirtyMinY = height;
+		dirtyMaxX = 0;
+		dirtyMaxY = 0;
+	}
+
+	boolean isEmpty()
+	{
+		return dirtyMaxX <= dirtyMinX || dirtyMaxY <= dirtyMinY;
+	}
+
+	/**
+	 * Scan converts a triangle given in canvas coordinates. Vertices that failed to project are expected to be
+	 * {@link Integer#MIN_VALUE}, and such triangles are skipped.
+	 */
+	void fillTriangle(int x1, int y1, int x2, int y2, int x3, int y3)
+	{
+		if (x1 == Integer.MIN_VALUE || x2 == Integer.MIN_VALUE || x3 == Integer.MIN_VALUE)
+		{
+			return;
+		}
+
+		// Sort by y so that a is the top vertex and c the bottom one
+		if (y2 < y1)
+		{
+			int t = x1; x1 = x2; x2 = t;
+			t = y1; y1 = y2; y2 = t;
+		}
+		if (y3 < y1)
+		{
+			int t = x1; x1 = x3; x3 = t;
+			t = y1; y1 = y3; y3 = t;
+		}
+		if (y3 < y2)
+		{
+			int t = x2; x2 = x3; x3 = t;
+			t = y2; y2 = y3; y3 = t;
+		}
+
+		if (y1 == y3)
+		{
+			return;
+		}
+
+		// Relative to the mask origin, widened so far off-screen projections cannot overflow
+		final long ax = (long) x1 - originX;
+		final long ay = (long) y1 - originY;
+		final long bx = (long) x2 - originX;
+		final long by = (long) y2 - originY;
+		final long cx = (long) x3 - originX;
+		final long cy = (long) y3 - originY;
+
+		final int rowStart = (int) Math.max(0, ay);
+		final int rowEnd = (int) Math.min(height, cy);
+		if (rowStart >= rowEnd)
+		{
+			return;
+		}
+
+		// Orientation of b relative to the long edge a-c decides which side the short edges are on
+		final long cross = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+		if (cross == 0)
+		{
+			return;
+		}
+		final boolean shortEdgesLeft = cross < 0;
+
+		int minX = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxY = Integer.MIN_VALUE;
+
+		for (int row = rowStart; row < rowEnd; row++)
+		{
+			// Edge intersections with this row as exact fractions num / den
+			final long longDen = cy - ay;
+			final long longNum = ax * longDen + (row - ay) * (cx - ax);
+
+			// Short edge a-b above b, b-c from b downwards
+			final long shortDen;
+			final long shortNum;
+			if (row < by)
+			{
+				shortDen = by - ay;
+				shortNum = ax * shortDen + (row - ay) * (bx - ax);
+			}
+			else
+			{
+				shortDen = cy - by;
+				shortNum = bx * shortDen + (row - by) * (cx - bx);
+			}
+
+			final long left;
+			final long right;
+			if (shortEdgesLeft)
+			{
+				left = ceilDiv(shortNum, shortDen);
+				right = ceilDiv(longNum, longDen);
+			}
+			else
+			{
+				left = ceilDiv(longNum, longDen);
+				right = ceilDiv(shortNum, shortDen);
+			}
+
+			final int colStart = (int) Math.max(0, left);
+			final int colEnd = (int) Math.min(width, right);
+			if (colStart >= colEnd)
+			{
+				continue;
+			}
+
+			final int offset = row * stride;
+			for (int col = colStart; col < colEnd; col++)
+			{
+				pixels[offset + col] = COVERED;
+			}
+
+			minX = Math.min(minX, colStart);
+			maxX = Math.max(maxX, colEnd);
+			minY = Math.min(minY, row);
+			maxY = row + 1;
+		}
+
+		if (minX < maxX)
+		{
+			dirtyMinX = Math.min(dirtyMinX, minX);
+			dirtyMaxX = Math.max(dirtyMaxX, maxX);
+			dirtyMinY = Math.min(dirtyMinY, minY);
+			dirtyMaxY = Math.max(dirtyMaxY, maxY);
+		}
+	}
+
+	/**
+	 * Scan converts a packed list of triangles, six coordinates per triangle.
+	 */
+	void fillTriangles(int[] triangles, int count)
+	{
+		for (int i = 0, offset = 0; i < count; i++, offset += 6)
+		{
+			fillTriangle(triangles[offset], triangles[offset + 1], triangles[offset + 2],
+				triangles[offset + 3], triangles[offset + 4], triangles[offset + 5]);
+		}
+	}
+
+	/**
+	 * Scan converts a closed edge list with the non-zero winding rule, using the same sampling as
+	 * {@link #fillTriangle(int, int, int, int, int, int)}. Edges are five values each: both end points in canvas
+	 * coordinates followed by a winding weight, and may come in any order.
+	 */
+	void fillEdges(int[] edges, int count)
+	{
+		if (edgeOrder.length < count)
+		{
+			edgeOrder = new long[count];
+			activeEdges = new int[count];
+			crossingX = new long[count];
+			crossingWeight = new int[count];
+		}
+
+		// Sort edges by the first row they cross
+		int n = 0;
+		for (int i = 0, offset = 0; i < count; i++, offset += 5)
+		{
+			final int y1 = edges[offset + 1];
+			final int y2 = edges[offset + 3];
+			if (y1 == y2 || edges[offset] == Integer.MIN_VALUE || edges[offset + 2] == Integer.MIN_VALUE)
+			{
+				continue;
+			}
+			final long top = (long) Math.min(y1, y2) - originY;
+			final long bottom = (long) Math.max(y1, y2) - originY;
+			if (bottom <= 0 || top >= height)
+			{
+				continue;
+			}
+			edgeOrder[n++] = Math.max(0, top) << 32 | offset;
+		}
+		if (n == 0)
+		{
+			return;
+		}
+		PrimitiveSort.sort(edgeOrder, n);
+
+		int next = 0;
+		int active = 0;
+		int minX = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxY = Integer.MIN_VALUE;
+
+		for (int row = (int) (edgeOrder[0] >>> 32); row < height && (active > 0 || next < n); row++)
+		{
+			while (next < n && (int) (edgeOrder[next] >>> 32) <= row)
+			{
+				activeEdges[active++] = (int) edgeOrder[next++];
+			}
+
+			// Intersect the row with every active edge, retiring edges that ended above it
+			int crossings = 0;
+			for (int i = 0; i < active; )
+			{
+				final int offset = activeEdges[i];
+				long ax = (long) edges[offset] - originX;
+				long ay = (long) edges[offset + 1] - originY;
+				long bx = (long) edges[offset + 2] - originX;
+				long by = (long) edges[offset + 3] - originY;
+				int weight = edges[offset + 4];
+				if (ay > by)
+				{
+					long t = ax; ax = bx; bx = t;
+					t = ay; ay = by; by = t;
+					weight = -weight;
+				}
+				if (row >= by)
+				{
+					activeEdges[i] = activeEdges[--active];
+					continue;
+				}
+
+				final long x = ceilDiv(ax * (by - ay) + (row - ay) * (bx - ax), by - ay);
+
+				// Insertion sort by x as crossings are added
+				int j = crossings++;
+				while (j > 0 && crossingX[j - 1] > x)
+				{
+					crossingX[j] = crossingX[j - 1];
+					crossingWeight[j] = crossingWeight[j - 1];
+					j--;
+				}
+				crossingX[j] = x;
+				crossingWeight[j] = weight;
+				i++;
+			}
+
+			final int offset = row * stride;
+			int winding = 0;
+			for (int i = 0; i + 1 < crossings; i++)
+			{
+				winding += crossingWeight[i];
+				if (winding == 0)
+				{
+					continue;
+				}
+
+				final int colStart = (int) Math.max(0, crossingX[i]);
+				final int colEnd = (int) Math.min(width, crossingX[i + 1]);
+				if (colStart >= colEnd)
+				{
+					continue;
+				}
+
+				for (int col = colStart; col < colEnd; col++)
+				{
+					pixels[offset + col] = COVERED;
+				}
+
+				minX = Math.min(minX, colStart);
+				maxX = Math.max(maxX, colEnd);
+				minY = Math.min(minY, row);
+				maxY = row + 1;
+			}
+		}
+
+		if (minX < maxX)
+		{
+			dirtyMinX = Math.min(dirtyMinX, minX);
+			dirtyMaxX = Math.max(dirtyMaxX, maxX);
+			dirtyMinY = Math.min(dirtyMinY, minY);
+			dirtyMaxY = Math.max(dirtyMaxY, maxY);
+		}
+	}
+
+	/**
+	 * Clears every covered pixel from the graphics target with one composite blit of the dirty region.
+	 */
+	void clear(Graphics2D graphics)
+	{
+		if (isEmpty())
+		{
+			return;
+		}
+
+		final Composite orig = graphics.getComposite();
+		graphics.setComposite(AlphaComposite.DstOut);
+		graphics.drawImage(image,
+			originX + dirtyMinX, originY + dirtyMinY, originX + dirtyMaxX, originY + dirtyMaxY,
+			dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY,
+			null);
+		graphics.setComposite(orig);
+	}
+
+	/**
+	 * Returns whether the pixel at the given canvas coordinate is covered.
+	 */
+	boolean isCovered(int x, int y)
+	{
+		final int col = x - originX;
+		final int row = y - originY;
+		if (col < 0 || row < 0 || col >= width || row >= height)
+		{
+			return false;
+		}
+		return pixels[row * stride + col] != 0;
+	}
+
+	private static long ceilDiv(long num, long den)
+	{
+		return -Math.floorDiv(-num, den);
+	}
+}
@@ -0,0 +1,46 @@
+package io.leikvolle.tileindicators;
+
+/**
+ * One frame's coverage built by a {@link CoverageBuilder}, together with what building it took. A result is
+ * only written by the builder that owns it and is never changed again while the overlay composites it.
+ */
+final class CoverageResult
+{
+	private static final FrameProfiler.Counter[] COUNTERS = FrameProfiler.Counter.values();
+	private static final int DETAILS = SilhouetteDetail.values().length;
+
+	final CoverageMask mask = new CoverageMask();
+	final int[] counts = new int[COUNTERS.length];
+	long projectionNanos;
+	long rasterizationNanos;
+
+	// What building the silhouettes at each detail took, which the frame budget estimates its costs from, and how
+	// many silhouettes were reused instead
+	final long[] detailNanos = new long[DETAILS];
+	final int[] detailCounts = new int[DETAILS];
+	final int[] detailReused = new int[DETAILS];
+
+	/**
+	 * The {@link OccluderSnapshot#getInputHash()} of the snapshot the coverage was built from.
+	 */
+	long inputHash;
+
+	// Whether the work has been added to the profiler, which only happens the first time the result is shown
+	boolean reported = true;
+
+	void report(FrameProfiler profiler, FrameBudget budget)
+	{
+		if (reported)
+		{
+			return;
+		}
+		reported = true;
+		budget.record(detailNanos, detailCounts, detailReused);
+		profiler.add(FrameProfiler.Phase.PROJECTION, projectionNanos);
+		profiler.add(FrameProfiler.Phase.RASTERIZATION, rasterizationNanos);
+		for (FrameProfiler.Counter counter : COUNTERS)
+		{
+			profiler.count(counter, counts[counter.ordinal()]);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package io.leikvolle.tileindicators;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves building the coverage off the paint path. Each time the captured inputs change, a snapshot is handed to
+ * a background thread which builds into one of two {@link CoverageResult}s while the overlay composites the
+ * other, so the overlay shows coverage at most one frame behind the inputs.
+ * <p>
+ * Whenever the worker falls further behind than that, or background building is turned off, the frame's
+ * coverage is built synchronously on the calling thread instead, with a builder of its own.
+ */
+@Slf4j
+final class CoverageWorker
+{
+	@Getter(AccessLevel.PACKAGE)
+	private final CoverageBuilder backgroundBuilder = new CoverageBuilder();
+	private final CoverageResult[] buffers = {new CoverageResult(), new CoverageResult()};
+	private volatile CoverageResult published;
+	@Getter(AccessLevel.PACKAGE)
+	private volatile boolean busy;
+	private ExecutorService executor;
+
+	// Captures alternate between two snapshots, so the worker's can be read while the next one is captured
+	private final OccluderSnapshot[] snapshots = {new OccluderSnapshot(), new OccluderSnapshot()};
+	private OccluderSnapshot submitted;
+	private long submittedHash;
+	private CoverageResult back;
+	// Submitted again for every build, rather than a new lambda capturing the snapshot and buffer each time
+	private final Runnable buildSubmitted = this::buildSubmitted;
+
+	@Getter(AccessLevel.PACKAGE)
+	private final CoverageBuilder synchronousBuilder = new CoverageBuilder();
+	private final CoverageResult synchronousResult = new CoverageResult();
+	private boolean synchronousBuilt;
+
+	private long previousHash;
+
+	// Only read when capturing models, on the client thread
+	@Getter(AccessLevel.PACKAGE)
+	private final OpaqueFaceCache opaqueFaceCache = new OpaqueFaceCache();
+
+	/**
+	 * Returns the snapshot to capture this frame's inputs into, which the worker is not reading.
+	 */
+	OccluderSnapshot snapshot()
+	{
+		return snapshots[0] == submitted ? snapshots[1] : snapshots[0];
+	}
+
+	/**
+	 * Returns the coverage to composite for the inputs captured into {@link #snapshot()}: the background result if
+	 * it is for these inputs or last frame's, otherwise a synchronously built one. Must be called once per frame,
+	 * from the client thread.
+	 */
+	CoverageResult next(boolean background, FrameProfiler profiler)
+	{
+		final OccluderSnapshot snapshot = snapshot();
+		final long hash = snapshot.getInputHash();
+		final long previous = previousHash;
+		previousHash = hash;
+
+		if (background)
+		{
+			// Checked before reading the published result, so an idle worker's last result is already in it
+			final boolean idle = !busy;
+			final CoverageResult ready = published;
+			if (ready != null && ready.inputHash == hash)
+			{
+				return ready;
+			}
+			if (idle && submittedHash != hash)
+			{
+				snapshot.copyModels(opaqueFaceCache);
+				submit(snapshot, ready == buffers[0] ? buffers[1] : buffers[0]);
+			}
+			if (ready != null && ready.inputHash == previous)
+			{
+				return ready;
+			}
+		}
+
+		if (!synchronousBuilt || synchronousResult.inputHash != hash)
+		{
+			if (snapshot != submitted)
+			{
+				snapshot.copyModels(opaqueFaceCache);
+			}
+			synchronousBuilder.build(snapshot, synchronousResult);
+			synchronousBuilt = true;
+			profiler.count(FrameProfiler.Counter.SYNCHRONOUS_BUILDS, 1);
+		}
+		return synchronousResult;
+	}
+
+	/**
+	 * Builds the snapshot into the back buffer, which must be neither the published result nor about to become it.
+	 */
+	private void submit(OccluderSnapshot snapshot, CoverageResult back)
+	{
+		if (executor == null)
+		{
+			executor = Executors.newSingleThreadExecutor(r ->
+			{
+				final Thread thread = new Thread(r, "tile-indicators-coverage");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		busy = true;
+		submitted = snapshot;
+		submittedHash = snapshot.getInputHash();
+		this.back = back;
+		executor.execute(buildSubmitted);
+	}
+
+	/**
+	 * Runs on the background thread. The fields it reads are only written again once it has cleared {@link #busy}.
+	 */
+	private void buildSubmitted()
+	{
+		try
+		{
+			backgroundBuilder.build(submitted, back);
+			published = back;
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Failed to build coverage", e);
+		}
+		finally
+		{
+			busy = false;
+		}
+	}
+
+	/**
+	 * Stops the background thread and forgets the models seen. The thread is started again on the next frame that
+	 * needs it.
+	 */
+	void shutDown()
+	{
+		opaqueFaceCache.clear();
+		if (executor != null)
+		{
+			executor.shutdown();
+			executor = null;
+		}
+	}
+}
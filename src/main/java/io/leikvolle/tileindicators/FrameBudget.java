@@ -0,0 +1,139 @@
+package io.leikvolle.tileindicators;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides how many of the tagged NPCs are drawn above overlays, and at what detail, so building the coverage
+ * stays within a time budget per frame. NPCs are offered in order of priority; each is charged what building
+ * the silhouette of an occluder at its preferred detail cost in previous frames, and once that no longer fits it
+ * is drawn at a cheaper detail, or not at all. Silhouettes reused from the last frame are not measured, so the
+ * estimates hold steady while the camera stands still rather than sinking and letting every NPC in until it moves.
+ */
+@Slf4j
+final class FrameBudget
+{
+	private static final SilhouetteDetail[] DETAILS = SilhouetteDetail.values();
+	// Each frame moves the estimates an eighth of the way towards what it measured
+	private static final int SMOOTHING = 8;
+	// Estimates of details nothing was drawn at fade by this fraction a frame, so they are tried again eventually
+	private static final int DECAY = 32;
+
+	// Estimated nanoseconds to build the coverage of one occluder at each detail
+	private final long[] costs = new long[DETAILS.length];
+
+	private boolean limited;
+	private long remaining;
+	private int offered;
+	private int degraded;
+	private boolean degrading;
+
+	/**
+	 * Starts a frame with the given budget in microseconds, where 0 means no limit.
+	 */
+	void begin(int budgetMicros)
+	{
+		limited = budgetMicros > 0;
+		remaining = budgetMicros * 1000L;
+		offered = 0;
+		degraded = 0;
+	}
+
+	/**
+	 * Charges an occluder that is drawn regardless of the budget, such as the local player.
+	 */
+	void charge(SilhouetteDetail detail)
+	{
+		remaining -= costs[detail.ordinal()];
+	}
+
+	/**
+	 * Returns the most NPCs that what is left of the budget could draw, each at the cheapest detail, up to the
+	 * given limit.
+	 */
+	int capacity(int limit)
+	{
+		long cheapest = Long.MAX_VALUE;
+		for (long cost : costs)
+		{
+			cheapest = Math.min(cheapest, cost);
+		}
+		if (!limited || cheapest <= 0)
+		{
+			return limit;
+		}
+		// One more for the first NPC, which is drawn even when nothing fits
+		return (int) Math.min(limit, Math.max(0, remaining) / cheapest + (offered == 0 ? 1 : 0));
+	}
+
+	/**
+	 * Returns the finest detail, no finer than the preferred one, that still fits in what is left of the budget
+	 * and charges it, or null when not even the cheapest fits. The first NPC of a frame is always drawn, so the
+	 * estimates keep being measured however small the budget is.
+	 */
+	SilhouetteDetail fit(SilhouetteDetail preferred)
+	{
+		final boolean first = offered++ == 0;
+		if (!limited)
+		{
+			return preferred;
+		}
+
+		for (int i = preferred.ordinal(); i < DETAILS.length; i++)
+		{
+			final long cost = costs[i];
+			if (cost <= remaining || first && i == DETAILS.length - 1)
+			{
+				remaining -= cost;
+				if (i != preferred.ordinal())
+				{
+					degraded++;
+				}
+				return DETAILS[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Ends the frame, returning the number of NPCs drawn at a lower detail than they would have been without
+	 * the budget.
+	 */
+	int end()
+	{
+		if (degraded > 0 != degrading)
+		{
+			degrading = degraded > 0;
+			log.debug(degrading ? "Frame budget exceeded, drawing NPCs with less detail" : "Frame budget met again, drawing NPCs at full detail");
+		}
+		return degraded;
+	}
+
+	/**
+	 * Updates the estimates with what building a frame's silhouettes cost at each detail. Details that only had
+	 * silhouettes reused keep their estimates.
+	 */
+	void record(long[] detailNanos, int[] detailCounts, int[] detailReused)
+	{
+		for (int i = 0; i < DETAILS.length; i++)
+		{
+			if (detailCounts[i] == 0)
+			{
+				if (detailReused[i] == 0)
+				{
+					costs[i] -= costs[i] / DECAY;
+				}
+				continue;
+			}
+			final long cost = detailNanos[i] / detailCounts[i];
+			costs[i] = costs[i] == 0 ? cost : costs[i] + (cost - costs[i]) / SMOOTHING;
+		}
+	}
+
+	/**
+	 * Returns the estimated nanoseconds to build the coverage of one occluder at the given detail.
+	 */
+	long getCost(SilhouetteDetail detail)
+	{
+		return costs[detail.ordinal()];
+	}
+}
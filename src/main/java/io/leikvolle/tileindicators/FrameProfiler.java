@@ -0,0 +1,194 @@
+package io.leikvolle.tileindicators;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Per-phase timers and counters for the overlay's paint path, kept over a rolling window of frames so that
+ * percentiles can be read back at any time. Every completed frame is also emitted as a JDK Flight Recorder
+ * event. While disabled, the timing calls return immediately without reading the clock.
+ */
+class FrameProfiler
+{
+	private static final int WINDOW = 256;
+
+	@Getter
+	@AllArgsConstructor
+	enum Phase
+	{
+		DESTINATION("Destination"),
+		TRUE_TILES("True tiles"),
+		NPC_SELECTION("NPC selection"),
+		CAPTURE("Capture"),
+		PROJECTION("Projection"),
+		RASTERIZATION("Rasterization"),
+		COMPOSITE("Composite"),
+		TOTAL("Total");
+
+		private final String name;
+	}
+
+	@Getter
+	@AllArgsConstructor
+	enum Counter
+	{
+		ACTORS_CULLED("Actors culled"),
+		VERTICES_PROJECTED("Vertices projected"),
+		TRIANGLES_CULLED("Triangles culled"),
+		TRIANGLES_FILLED("Triangles filled"),
+		ACTORS_SKIPPED("Actors skipped"),
+		ACTORS_DEGRADED("Actors degraded"),
+		SILHOUETTE_HITS("Silhouette cache hits"),
+		SYNCHRONOUS_BUILDS("Synchronous builds");
+
+		private final String name;
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final Counter[] COUNTERS = Counter.values();
+
+	@Getter
+	private volatile boolean enabled;
+
+	private final long[] frameNanos = new long[PHASES.length];
+	private final long[] frameCounts = new long[COUNTERS.length];
+
+	// Rolling windows, one row per phase or counter
+	private final long[][] nanoSamples = new long[PHASES.length][WINDOW];
+	private final long[][] countSamples = new long[COUNTERS.length][WINDOW];
+	private int samples;
+	private int next;
+
+	private final long[] sortScratch = new long[WINDOW];
+
+	void setEnabled(boolean enabled)
+	{
+		if (enabled && !this.enabled)
+		{
+			synchronized (this)
+			{
+				samples = 0;
+				next = 0;
+			}
+		}
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns a timestamp to pass to {@link #lap(Phase, long)}, or 0 when disabled.
+	 */
+	long start()
+	{
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Attributes the time since {@code start} to the phase and returns a timestamp for the next phase.
+	 */
+	long lap(Phase phase, long start)
+	{
+		if (start == 0)
+		{
+			return 0;
+		}
+		final long now = System.nanoTime();
+		frameNanos[phase.ordinal()] += now - start;
+		return now;
+	}
+
+	/**
+	 * Attributes time measured elsewhere, such as on the coverage worker, to the phase.
+	 */
+	void add(Phase phase, long nanos)
+	{
+		if (enabled)
+		{
+			frameNanos[phase.ordinal()] += nanos;
+		}
+	}
+
+	void count(Counter counter, int amount)
+	{
+		if (enabled)
+		{
+			frameCounts[counter.ordinal()] += amount;
+		}
+	}
+
+	/**
+	 * Closes the current frame, adding it to the rolling window and emitting it as a flight recorder event.
+	 */
+	void endFrame(long frameStart)
+	{
+		if (frameStart == 0)
+		{
+			return;
+		}
+		frameNanos[Phase.TOTAL.ordinal()] = System.nanoTime() - frameStart;
+
+		final OverlayFrameEvent event = new OverlayFrameEvent();
+		if (event.isEnabled())
+		{
+			event.destination = frameNanos[Phase.DESTINATION.ordinal()];
+			event.trueTiles = frameNanos[Phase.TRUE_TILES.ordinal()];
+			event.npcSelection = frameNanos[Phase.NPC_SELECTION.ordinal()];
+			event.capture = frameNanos[Phase.CAPTURE.ordinal()];
+			event.projection = frameNanos[Phase.PROJECTION.ordinal()];
+			event.rasterization = frameNanos[Phase.RASTERIZATION.ordinal()];
+			event.composite = frameNanos[Phase.COMPOSITE.ordinal()];
+			event.total = frameNanos[Phase.TOTAL.ordinal()];
+			event.actorsCulled = frameCounts[Counter.ACTORS_CULLED.ordinal()];
+			event.verticesProjected = frameCounts[Counter.VERTICES_PROJECTED.ordinal()];
+			event.trianglesCulled = frameCounts[Counter.TRIANGLES_CULLED.ordinal()];
+			event.trianglesFilled = frameCounts[Counter.TRIANGLES_FILLED.ordinal()];
+			event.actorsSkipped = frameCounts[Counter.ACTORS_SKIPPED.ordinal()];
+			event.actorsDegraded = frameCounts[Counter.ACTORS_DEGRADED.ordinal()];
+			event.silhouetteHits = frameCounts[Counter.SILHOUETTE_HITS.ordinal()];
+			event.synchronousBuilds = frameCounts[Counter.SYNCHRONOUS_BUILDS.ordinal()];
+			event.commit();
+		}
+
+		synchronized (this)
+		{
+			for (int i = 0; i < PHASES.length; i++)
+			{
+				nanoSamples[i][next] = frameNanos[i];
+				frameNanos[i] = 0;
+			}
+			for (int i = 0; i < COUNTERS.length; i++)
+			{
+				countSamples[i][next] = frameCounts[i];
+				frameCounts[i] = 0;
+			}
+			next = (next + 1) % WINDOW;
+			samples = Math.min(samples + 1, WINDOW);
+		}
+	}
+
+	/**
+	 * Returns the given percentile, between 0 and 1, of the phase's time in nanoseconds over the window.
+	 */
+	synchronized long percentile(Phase phase, double percentile)
+	{
+		return percentile(nanoSamples[phase.ordinal()], percentile);
+	}
+
+	/**
+	 * Returns the given percentile, between 0 and 1, of the counter's per-frame value over the window.
+	 */
+	synchronized long percentile(Counter counter, double percentile)
+	{
+		return percentile(countSamples[counter.ordinal()], percentile);
+	}
+
+	private long percentile(long[] window, double percentile)
+	{
+		if (samples == 0)
+		{
+			return 0;
+		}
+		System.arraycopy(window, 0, sortScratch, 0, samples);
+		PrimitiveSort.sort(sortScratch, samples);
+		return sortScratch[(int) Math.min(samples - 1, Math.round(percentile * (samples - 1)))];
+	}
+}
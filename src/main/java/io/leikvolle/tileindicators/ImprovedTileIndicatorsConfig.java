@@ -52,6 +52,54 @@ public interface ImprovedTileIndicatorsConfig extends Config
 		return true;
 	}
 
+	@ConfigItem(
+			keyName = "overlaysBelowOtherPlayers",
+			name = "Draw overlays below other players",
+			description = "Requires GPU. Draws overlays below the other players picked below. They share the frame budget with NPCs.",
+			section = tileIndicatorsSection,
+			position = 2
+	)
+	default boolean overlaysBelowOtherPlayers()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+			keyName = "otherPlayersFriends",
+			name = "Friends",
+			description = "Draw overlays below friends",
+			section = tileIndicatorsSection,
+			position = 3
+	)
+	default boolean otherPlayersFriends()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+			keyName = "otherPlayersClan",
+			name = "Clan members",
+			description = "Draw overlays below clan members",
+			section = tileIndicatorsSection,
+			position = 4
+	)
+	default boolean otherPlayersClan()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+			keyName = "otherPlayerNames",
+			name = "Player names",
+			description = "List of other players to draw overlays below, wildcards allowed",
+			section = tileIndicatorsSection,
+			position = 5
+	)
+	default String otherPlayerNames()
+	{
+		return "";
+	}
+
 	@ConfigSection(
 			name = "Destination Tile",
 			description = "Settings for modifying the destination tile",
@@ -64,7 +112,7 @@ public interface ImprovedTileIndicatorsConfig extends Config
 			name = "Custom destination tile",
 			description = "Enables the use of custom tile indicators on destination",
 			section = destinationTileSection,
-			position = 2
+			position = 6
 	)
 	default boolean customDestinationTile() { return false;}
 
@@ -73,7 +121,7 @@ public interface ImprovedTileIndicatorsConfig extends Config
 			name = "Destination Tile Style",
 			description = "The style of the destination tile",
 			section = destinationTileSection,
-			position = 3
+			position = 7
 	)
 	default TileStyle highlightDestinationStyle()  {return TileStyle.RS3;}
 
@@ -82,7 +130,7 @@ public interface ImprovedTileIndicatorsConfig extends Config
 			name = "Destination tile border width",
 			description = "The width of the custom destination indicator",
 			section = destinationTileSection,
-			position = 4
+			position = 8
 	)
 	default double destinationTileBorderWidth() { return 2; }
 
@@ -92,13 +140,22 @@ public interface ImprovedTileIndicatorsConfig extends Config
 			name = "Destination tile",
 			description = "Configures the highlight color of current destination",
 			section = destinationTileSection,
-			position = 5
+			position = 9
 	)
 	default Color highlightDestinationColor()
 	{
 		return new Color(0xFFB3B03F);
 	}
 
+	@ConfigItem(
+			keyName = "destinationPath",
+			name = "Show walk path",
+			description = "Draws the route you are predicted to walk to the destination tile",
+			section = destinationTileSection,
+			position = 10
+	)
+	default boolean destinationPath() { return false; }
+
 	@ConfigSection(
 			name = "NPC Indicators",
 			description = "Settings enhancing the standard NPC indicators",
@@ -109,9 +166,9 @@ public interface ImprovedTileIndicatorsConfig extends Config
 	@ConfigItem(
 			keyName = "overlaysBelowNPCs",
 			name = "Draw overlays below NPCs",
-			description = "Requires GPU. Draws overlays below specified NPCs. CAUTION: Will make your game laggy if many NPCs are drawn above overlay at once. Best used for bosses, not large groups of NPCs.",
+			description = "Requires GPU. Draws overlays below specified NPCs. Large groups of nearby NPCs can still make your game laggy; lower the frame budget if they do.",
 			section = npcIndicatorsSection,
-			position = 6
+			position = 11
 	)
 	default boolean overlaysBelowNPCs()
 	{
@@ -119,23 +176,23 @@ public interface ImprovedTileIndicatorsConfig extends Config
 	}
 
 	@ConfigItem(
-			keyName = "maxNPCsDrawn",
-			name = "NPC limit",
-			description = "The number of NPCs in the scene at a time to be affected by this plugin. Will affect FPS.",
+			keyName = "frameBudget",
+			name = "Frame budget (µs)",
+			description = "Microseconds per frame to spend on drawing NPCs and other players above overlays, 0 for no limit. NPCs fighting you and the closest NPCs and players come first; once the budget runs low the rest are drawn with less detail, or not at all.",
 			section = npcIndicatorsSection,
-			position = 7
+			position = 12
 	)
 	@Range(
-			max = 20
+			max = 16000
 	)
-	default int maxNPCsDrawn() {return 10;}
+	default int frameBudget() { return 1000; }
 
 	@ConfigItem(
 			keyName = "topNPCs",
 			name = "NPCs to draw on top",
 			description = "List of NPCs to draw above overlays. To add NPCs, shift right-click them and click Draw-Above.",
 			section = npcIndicatorsSection,
-			position = 8
+			position = 13
 	)
 	default String getTopNPCs()
 	{
@@ -148,4 +205,126 @@ public interface ImprovedTileIndicatorsConfig extends Config
 			description = ""
 	)
 	void setTopNPCs(String npcsToDrawAbove);
-}
\ No newline at end of file
+
+	@ConfigItem(
+			keyName = "topNPCIds",
+			name = "NPC ids to draw on top",
+			description = "List of NPC ids to draw above overlays, for NPCs that share a name with ones you do not want drawn above",
+			section = npcIndicatorsSection,
+			position = 14
+	)
+	default String getTopNPCIds()
+	{
+		return "";
+	}
+
+	@ConfigItem(
+			keyName = "outlineDistance",
+			name = "Outline distance",
+			description = "NPCs at least this many tiles away only have their outline drawn above overlays, which is cheaper than every face",
+			section = npcIndicatorsSection,
+			position = 15
+	)
+	@Range(
+			max = 104
+	)
+	default int outlineDistance() { return 8; }
+
+	@ConfigItem(
+			keyName = "hullDistance",
+			name = "Hull distance",
+			description = "NPCs at least this many tiles away are drawn above overlays as a convex shape around their model, the cheapest detail level",
+			section = npcIndicatorsSection,
+			position = 16
+	)
+	@Range(
+			max = 104
+	)
+	default int hullDistance() { return 16; }
+
+	@ConfigItem(
+			keyName = "backgroundCoverage",
+			name = "Draw above overlays in background",
+			description = "Works out which parts of the overlays to draw the player and NPCs above on a background thread, so it can lag one frame behind",
+			section = npcIndicatorsSection,
+			position = 17
+	)
+	default boolean backgroundCoverage() { return true; }
+
+	@ConfigSection(
+			name = "True Tile Markers",
+			description = "Settings for marking the true tiles of NPCs and other players",
+			position = 3
+	)
+	String trueTileSection = "trueTileSection";
+
+	@ConfigItem(
+			keyName = "trueTileMarkers",
+			name = "Mark true tiles",
+			description = "Marks the tiles the NPCs to draw on top and the other players picked above are really standing on",
+			section = trueTileSection,
+			position = 18
+	)
+	default boolean trueTileMarkers() { return false; }
+
+	@ConfigItem(
+			keyName = "trueTileBorderWidth",
+			name = "Border width",
+			description = "The width of the true tile markers",
+			section = trueTileSection,
+			position = 19
+	)
+	default double trueTileBorderWidth() { return 1; }
+
+	@Alpha
+	@ConfigItem(
+			keyName = "trueTileNpcColor",
+			name = "NPC color",
+			description = "Configures the color of the true tile markers of NPCs",
+			section = trueTileSection,
+			position = 20
+	)
+	default Color trueTileNpcColor()
+	{
+		return new Color(0xFF00FFFF);
+	}
+
+	@Alpha
+	@ConfigItem(
+			keyName = "trueTilePlayerColor",
+			name = "Player color",
+			description = "Configures the color of the true tile markers of other players",
+			section = trueTileSection,
+			position = 21
+	)
+	default Color trueTilePlayerColor()
+	{
+		return new Color(0xFF00FF00);
+	}
+
+	@ConfigSection(
+			name = "Debug",
+			description = "Settings for measuring the cost of the plugin",
+			position = 4,
+			closedByDefault = true
+	)
+	String debugSection = "debugSection";
+
+	@ConfigItem(
+			keyName = "debugFrameTimings",
+			name = "Frame timings",
+			description = "Measures how long each part of the overlay takes, shows it in a panel and emits it as Java Flight Recorder events",
+			section = debugSection,
+			position = 22
+	)
+	default boolean debugFrameTimings() { return false; }
+
+	@ConfigItem(
+			keyName = "recordSession",
+			name = "Record session",
+			description = "Records the camera, tagged NPCs and their models every frame to the improved-tile-indicators folder in the RuneLite directory, for replaying offline",
+			section = debugSection,
+			position = 23
+	)
+	default boolean recordSession() { return false; }
+}
@@ -0,0 +1,56 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import javax.inject.Inject;
+import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+/**
+ * Shows the rolling p50/p99 frame timings and counters collected by {@link ImprovedTileIndicatorsOverlay}.
+ */
+public class ImprovedTileIndicatorsDebugOverlay extends OverlayPanel
+{
+	private final ImprovedTileIndicatorsPlugin plugin;
+
+	@Inject
+	private ImprovedTileIndicatorsDebugOverlay(ImprovedTileIndicatorsPlugin plugin)
+	{
+		this.plugin = plugin;
+		setPosition(OverlayPosition.TOP_LEFT);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		final FrameProfiler profiler = plugin.getProfiler();
+		if (!plugin.getConfigSnapshot().debugFrameTimings || !profiler.isEnabled())
+		{
+			return null;
+		}
+
+		panelComponent.getChildren().add(TitleComponent.builder()
+			.text("Tile indicators p50 / p99")
+			.build());
+
+		for (FrameProfiler.Phase phase : FrameProfiler.Phase.values())
+		{
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left(phase.getName())
+				.right(String.format("%d / %d µs", profiler.percentile(phase, 0.5) / 1000, profiler.percentile(phase, 0.99) / 1000))
+				.build());
+		}
+
+		for (FrameProfiler.Counter counter : FrameProfiler.Counter.values())
+		{
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left(counter.getName())
+				.right(profiler.percentile(counter, 0.5) + " / " + profiler.percentile(counter, 0.99))
+				.build());
+		}
+
+		return super.render(graphics);
+	}
+}
@@ -26,15 +26,15 @@
 package io.leikvolle.tileindicators;
 
 import java.awt.*;
+import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
-import java.util.Comparator;
-import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
-import net.runelite.api.Point;
 import net.runelite.api.coords.LocalPoint;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.client.ui.overlay.Overlay;
@@ -46,12 +46,56 @@ import net.runelite.client.util.ImageUtil;
 @Slf4j
 public class ImprovedTileIndicatorsOverlay extends Overlay {
     private final Client client;
-    private final ImprovedTileIndicatorsConfig config;
 
     @Inject
     private ImprovedTileIndicatorsPlugin plugin;
 
     private final BufferedImage ARROW_ICON;
+    @Getter(AccessLevel.PACKAGE)
+    private final ArrowSpriteCache arrowSprites;
+    @Getter(AccessLevel.PACKAGE)
+    private final ScratchArena scratch = new ScratchArena();
+    @Getter(AccessLevel.PACKAGE)
+    private final NpcGrid npcGrid = new NpcGrid();
+    @Getter(AccessLevel.PACKAGE)
+    private final CoverageWorker worker = new CoverageWorker();
+    @Getter(AccessLevel.PACKAGE)
+    private final FrameBudget budget = new FrameBudget();
+    @Getter(AccessLevel.PACKAGE)
+    private final ProjectionEngine projection = new ProjectionEngine();
+    @Getter(AccessLevel.PACKAGE)
+    private final WalkPath walkPath = new WalkPath();
+    private final TileMarkers tileMarkers = new TileMarkers();
+
+    // Larger than any distance within the scene, so NPCs fighting the player always rank first
+    private static final int FIGHTING_PRIORITY = 1 << 20;
+    private static final Color SHADOW_COLOR = new Color(0x8D000000, true);
+    private static final int CIRCLE_RESOLUTION = 64;
+    private static final int MIN_CIRCLE_RESOLUTION = 8;
+    // Target length in pixels of each straight segment of the destination ring
+    private static final int CIRCLE_SEGMENT_LENGTH = 4;
+    // How far the destination ring and walk path are drawn above their shadows
+    private static final int SHADOW_Z_OFFSET = 10;
+    private static final float[] CIRCLE_COS = new float[CIRCLE_RESOLUTION];
+    private static final float[] CIRCLE_SIN = new float[CIRCLE_RESOLUTION];
+
+    static
+    {
+        for (int i = 0; i < CIRCLE_RESOLUTION; i++)
+        {
+            final double angle = ((double) i / CIRCLE_RESOLUTION) * 2 * Math.PI;
+            CIRCLE_COS[i] = (float) Math.cos(angle);
+            CIRCLE_SIN[i] = (float) Math.sin(angle);
+        }
+    }
+
+    private final Polygon ringPoly = new Polygon();
+    private final Polygon shadowPoly = new Polygon();
+    // Reset rather than replaced every frame, so its point buffers are only grown once
+    private final Path2D.Float pathLine = new Path2D.Float();
+    // True tile markers of a frame, one outline per colour
+    private final Path2D.Float npcMarkers = new Path2D.Float();
+    private final Path2D.Float playerMarkers = new Path2D.Float();
 
     private LocalPoint lastDestination;
     private LocalPoint lastlastDestination;
@@ -59,15 +103,15 @@ public class ImprovedTileIndicatorsOverlay extends Overlay {
     private int despawnGameCycle;
 
     @Inject
-    private ImprovedTileIndicatorsOverlay(Client client, ImprovedTileIndicatorsConfig config)
+    private ImprovedTileIndicatorsOverlay(Client client)
     {
         this.client = client;
-        this.config = config;
         setPosition(OverlayPosition.DYNAMIC);
         setLayer(OverlayLayer.ABOVE_SCENE);
         setPriority(0.6f);
 
         ARROW_ICON = ImageUtil.loadImageResource(ImprovedTileIndicatorsPlugin.class, "arrow.png");
+        arrowSprites = new ArrowSpriteCache(ARROW_ICON);
     }
 
     @Override
@@ -85,7 +129,14 @@ public class ImprovedTileIndicatorsOverlay extends Overlay {
             return null;
         }
 
-        if (config.customDestinationTile()) {
+        final ConfigSnapshot config = plugin.getConfigSnapshot();
+        final FrameProfiler profiler = plugin.getProfiler();
+        profiler.setEnabled(config.debugFrameTimings);
+        final long frameStart = profiler.start();
+        long phaseStart = frameStart;
+        projection.begin(client);
+
+        if (config.customDestinationTile) {
             if (lastDestination != null && !lastDestination.equals(client.getLocalDestinationLocation())) {
                 lastlastDestination = lastDestination;
                 despawnGameCycle = client.getGameCycle();
@@ -97,34 +148,262 @@ public class ImprovedTileIndicatorsOverlay extends Overlay {
                 }
                 lastDestination = client.getLocalDestinationLocation();
             }
-            switch (config.highlightDestinationStyle())
+            if (config.destinationPath) {
+                renderPath(graphics, config, playerPosLocal);
+            }
+            switch (config.destinationStyle)
             {
                 case RS3:
-                    renderRS3Tile(graphics, lastDestination, config.highlightDestinationColor(), true, true);
-                    renderRS3Tile(graphics, lastlastDestination, config.highlightDestinationColor(), false, false);
+                    renderRS3Tile(graphics, config, lastDestination, true, true);
+                    renderRS3Tile(graphics, config, lastlastDestination, false, false);
                     break;
                 case RS3_NO_ARROW:
-                    renderRS3Tile(graphics, lastDestination, config.highlightDestinationColor(), false, true);
-                    renderRS3Tile(graphics, lastlastDestination, config.highlightDestinationColor(), false, false);
+                    renderRS3Tile(graphics, config, lastDestination, false, true);
+                    renderRS3Tile(graphics, config, lastlastDestination, false, false);
                     break;
             }
+            phaseStart = profiler.lap(FrameProfiler.Phase.DESTINATION, phaseStart);
         }
 
-        if (config.overlaysBelowPlayer() && client.isGpu())
-        {
-            removeActor(graphics, client.getLocalPlayer());
+        // Drawn before the coverage is cleared, so markers behind actors drawn above overlays are hidden too
+        if (config.trueTileMarkers) {
+            renderTrueTiles(graphics, config);
+            phaseStart = profiler.lap(FrameProfiler.Phase.TRUE_TILES, phaseStart);
         }
-        if (config.overlaysBelowNPCs() && client.isGpu())
+
+        final boolean belowPlayer = config.overlaysBelowPlayer && client.isGpu();
+        final boolean belowOthers = config.overlaysBelowOtherPlayers && client.isGpu();
+        final boolean belowNpcs = config.overlaysBelowNPCs && client.isGpu();
+        if (belowPlayer || belowOthers || belowNpcs)
         {
-            // Limits the number of npcs drawn below overlays, ranks the NPCs by distance to player.
-            for (NPC npc : plugin.getOnTopNpcs().stream().sorted(Comparator.comparingInt(npc -> npc.getLocalLocation().distanceTo(playerPosLocal))).limit(config.maxNPCsDrawn()).collect(Collectors.toSet())) {
-                removeActor(graphics, npc);
+            budget.begin(config.frameBudget);
+            if (belowPlayer)
+            {
+                budget.charge(SilhouetteDetail.EXACT);
+            }
+            int count = 0;
+            int candidates = 0;
+            if (belowNpcs)
+            {
+                final NpcIndexSnapshot tracked = plugin.getTrackedNpcs();
+                count = collectNpcs(tracked, playerPosLocal, budget.capacity(tracked.size()));
+                candidates = tracked.size();
+            }
+            if (belowOthers)
+            {
+                final int npcCount = count;
+                count = collectPlayers(config, playerPosLocal, count);
+                candidates += count - npcCount;
             }
+            if (belowNpcs || belowOthers)
+            {
+                phaseStart = profiler.lap(FrameProfiler.Phase.NPC_SELECTION, phaseStart);
+            }
+
+            final OccluderSnapshot snapshot = worker.snapshot();
+            snapshot.begin(client);
+            if (belowPlayer)
+            {
+                snapshot.add(client, client.getLocalPlayer(), SilhouetteDetail.EXACT);
+            }
+            // NPCs and other players are taken in order of priority for as long as the frame budget lasts,
+            // cheaper ones once it runs low
+            final int outlineDistance = config.outlineDistance;
+            final int hullDistance = config.hullDistance;
+            int drawn = 0;
+            for (; drawn < count; drawn++) {
+                selectNext(drawn);
+                final int distance = scratch.actorDistances[drawn];
+                final SilhouetteDetail detail = budget.fit(distance >= hullDistance ? SilhouetteDetail.HULL
+                        : distance >= outlineDistance ? SilhouetteDetail.OUTLINE
+                        : SilhouetteDetail.EXACT);
+                if (detail == null) {
+                    break;
+                }
+                snapshot.add(client, scratch.actors[drawn], detail);
+            }
+            profiler.count(FrameProfiler.Counter.ACTORS_SKIPPED, candidates - drawn);
+            profiler.count(FrameProfiler.Counter.ACTORS_DEGRADED, budget.end());
+            scratch.releaseActors();
+            profiler.lap(FrameProfiler.Phase.CAPTURE, phaseStart);
+
+            // Every occluding actor is rasterized into one mask, which is then cleared from the overlay in one go,
+            // so the composite is only switched once a frame however many actors there are
+            final CoverageResult coverage = worker.next(config.backgroundCoverage, profiler);
+            coverage.report(profiler, budget);
+            phaseStart = profiler.start();
+            coverage.mask.clear(graphics);
+            profiler.lap(FrameProfiler.Phase.COMPOSITE, phaseStart);
         }
+        profiler.endFrame(frameStart);
         return null;
     }
 
-    private void renderRS3Tile(final Graphics2D graphics, final LocalPoint dest, final Color color, boolean drawArrow, boolean appearing)
+    /**
+     * Collects the {@code limit} tracked NPCs nearest to the player into the scratch arena, closest first with
+     * their distances, and returns how many there are. The NPC the player is fighting is added even when it is
+     * further away. {@link #selectNext(int)} then brings them out in order of priority.
+     */
+    int collectNpcs(final NpcIndexSnapshot onTopNpcs, final LocalPoint playerPosLocal, final int limit)
+    {
+        final NPC[] cachedNpcs = client.getCachedNPCs();
+        final Player player = client.getLocalPlayer();
+        final Actor target = player.getInteracting();
+        npcGrid.update(cachedNpcs, onTopNpcs, client.getTickCount());
+        scratch.ensureActorCapacity(onTopNpcs.size() + 1);
+        final Actor[] actors = scratch.actors;
+        final int[] distances = scratch.actorDistances;
+        final int[] priorities = scratch.actorPriorities;
+
+        int n = npcGrid.nearest(cachedNpcs, playerPosLocal, limit, actors, distances);
+        if (target instanceof NPC && onTopNpcs.contains(((NPC) target).getIndex()) && !contains(actors, n, target))
+        {
+            actors[n] = target;
+            distances[n] = target.getLocalLocation().distanceTo(playerPosLocal);
+            n++;
+        }
+        for (int i = 0; i < n; i++) {
+            // NPCs fighting the player come before all others, closest first within each group
+            final boolean fighting = actors[i] == target || actors[i].getInteracting() == player;
+            priorities[i] = fighting ? distances[i] - FIGHTING_PRIORITY : distances[i];
+        }
+        scratch.actorCount = n;
+        return n;
+    }
+
+    /**
+     * Appends the other players picked by the friend, clan and name filters to the {@code start} actors already
+     * in the scratch arena, and returns how many there are now. Players rank by distance alongside the NPCs, so
+     * they share the frame budget with them.
+     */
+    int collectPlayers(final ConfigSnapshot config, final LocalPoint playerPosLocal, final int start)
+    {
+        final Player[] cachedPlayers = client.getCachedPlayers();
+        final Player player = client.getLocalPlayer();
+        final boolean friends = config.otherPlayersFriends;
+        final boolean clan = config.otherPlayersClan;
+        final NpcNameMatcher names = config.otherPlayerMatcher;
+
+        int n = start;
+        for (Player other : cachedPlayers) {
+            if (other == null || other == player || !isPicked(other, friends, clan, names)) {
+                continue;
+            }
+            scratch.ensureActorCapacity(n + 1);
+            final int distance = other.getLocalLocation().distanceTo(playerPosLocal);
+            scratch.actors[n] = other;
+            scratch.actorDistances[n] = distance;
+            scratch.actorPriorities[n] = distance;
+            n++;
+        }
+        scratch.actorCount = n;
+        return n;
+    }
+
+    /**
+     * Returns whether the friend, clan and name filters pick the other player to be drawn above overlays.
+     */
+    static boolean isPicked(final Player other, final boolean friends, final boolean clan, final NpcNameMatcher names)
+    {
+        if (friends && other.isFriend() || clan && other.isClanMember()) {
+            return true;
+        }
+        // Names in the game use non-breaking spaces where the config has plain ones
+        final String name = other.getName();
+        return name != null && names.matches(name.replace('\u00A0', ' '));
+    }
+
+    /**
+     * Marks the true tiles of the tracked NPCs and of the other players picked by the friend, clan and name
+     * filters. Every marker of a colour goes into one outline, drawn with a single call however many there are.
+     */
+    void renderTrueTiles(final Graphics2D graphics, final ConfigSnapshot config)
+    {
+        tileMarkers.begin(client, projection);
+        npcMarkers.reset();
+        playerMarkers.reset();
+        final int baseX = client.getBaseX();
+        final int baseY = client.getBaseY();
+        final int plane = client.getPlane();
+
+        final NPC[] cachedNpcs = client.getCachedNPCs();
+        final NpcIndexSnapshot tracked = plugin.getTrackedNpcs();
+        for (int i = 0; i < tracked.size(); i++) {
+            final NPC npc = cachedNpcs[tracked.get(i)];
+            if (npc == null) {
+                continue;
+            }
+            final NPCComposition composition = npc.getTransformedComposition();
+            markTrueTile(npcMarkers, npc, composition == null ? 1 : composition.getSize(), baseX, baseY, plane);
+        }
+
+        final Player player = client.getLocalPlayer();
+        for (Player other : client.getCachedPlayers()) {
+            if (other != null && other != player && isPicked(other, config.otherPlayersFriends, config.otherPlayersClan, config.otherPlayerMatcher)) {
+                markTrueTile(playerMarkers, other, 1, baseX, baseY, plane);
+            }
+        }
+
+        final Stroke originalStroke = graphics.getStroke();
+        graphics.setStroke(config.trueTileStroke);
+        graphics.setColor(config.trueTileNpcColor);
+        graphics.draw(npcMarkers);
+        graphics.setColor(config.trueTilePlayerColor);
+        graphics.draw(playerMarkers);
+        graphics.setStroke(originalStroke);
+    }
+
+    /**
+     * Adds the marker of the tiles the actor stands on, which start at its world location and extend north east.
+     */
+    private void markTrueTile(final Path2D.Float markers, final Actor actor, final int size, final int baseX, final int baseY, final int plane)
+    {
+        final WorldPoint location = actor.getWorldLocation();
+        if (location == null || location.getPlane() != plane) {
+            return;
+        }
+        tileMarkers.add(markers, location.getX() - baseX, location.getY() - baseY, size);
+    }
+
+    private static boolean contains(final Actor[] actors, final int count, final Actor actor)
+    {
+        for (int i = 0; i < count; i++) {
+            if (actors[i] == actor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the highest priority actor from position {@code i} onwards to position {@code i}, one step of a
+     * selection sort. The NPCs are already in order of distance, so this mostly moves NPCs fighting the player
+     * and other players.
+     */
+    void selectNext(final int i)
+    {
+        final Actor[] actors = scratch.actors;
+        final int[] distances = scratch.actorDistances;
+        final int[] priorities = scratch.actorPriorities;
+
+        int first = i;
+        for (int j = i + 1; j < scratch.actorCount; j++) {
+            if (priorities[j] < priorities[first]) {
+                first = j;
+            }
+        }
+        final Actor actor = actors[first];
+        actors[first] = actors[i];
+        actors[i] = actor;
+        final int distance = distances[first];
+        distances[first] = distances[i];
+        distances[i] = distance;
+        final int priority = priorities[first];
+        priorities[first] = priorities[i];
+        priorities[i] = priority;
+    }
+
+    private void renderRS3Tile(final Graphics2D graphics, final ConfigSnapshot config, final LocalPoint dest, boolean drawArrow, boolean appearing)
     {
         if (dest == null)
         {
@@ -141,156 +420,218 @@ public class ImprovedTileIndicatorsOverlay extends Overlay {
         if (size < 0) return;
 
 
-        final Polygon poly = getCanvasTargetTileCirclePoly(client, dest, size, client.getPlane(), 10);
-        final Polygon shadow = getCanvasTargetTileCirclePoly(client, dest, size, client.getPlane(), 0);
-        Point canvasLoc = Perspective.getCanvasImageLocation(client, dest, ARROW_ICON, 150 + (int) (20 * Math.sin(client.getGameCycle() / 10.0)));
+        final boolean projected = projectTargetTileCircle(dest, size, client.getPlane(), SHADOW_Z_OFFSET, ringPoly, shadowPoly);
 
-        if (poly != null)
+        if (projected)
         {
 
             final Stroke originalStroke = graphics.getStroke();
-            graphics.setStroke(new BasicStroke((float) config.destinationTileBorderWidth()));
-            graphics.setColor(new Color(0x8D000000, true));
-            graphics.draw(shadow);
-            graphics.setColor(color);
-            graphics.draw(poly);
+            graphics.setStroke(config.destinationStroke);
+            graphics.setColor(SHADOW_COLOR);
+            graphics.draw(shadowPoly);
+            graphics.setColor(config.destinationColor);
+            graphics.draw(ringPoly);
             graphics.setStroke(originalStroke);
         }
 
-        if (canvasLoc != null && drawArrow && shadow != null)
+        if (drawArrow && projected && shadowPoly.npoints > 0)
         {
-            // TODO: improve scale as you zoom out
-            double imageScale = 0.8 * Math.min(client.get3dZoom() / 500.0, 1);
-            graphics.drawImage(ARROW_ICON, (int) (shadow.getBounds().width / 2 + shadow.getBounds().x - ARROW_ICON.getWidth() * imageScale / 2), canvasLoc.getY(), (int) (ARROW_ICON.getWidth() * imageScale), (int) (ARROW_ICON.getHeight() * imageScale), null);
+            // Same anchor as Perspective.getCanvasImageLocation, which centres the image on the projected point
+            final int arrowHeight = 150 + (int) (20 * Math.sin(client.getGameCycle() / 10.0));
+            final int anchor = projection.projectPoint(dest.getX(), dest.getY(), getTileHeight(client, dest.getX(), dest.getY(), client.getPlane()) - arrowHeight);
+            if (projection.x2d[anchor] != Integer.MIN_VALUE)
+            {
+                // Shrinks slower than the ring as the camera zooms out, so the arrow stays readable from afar
+                final double imageScale = 0.8 * Math.sqrt(Math.min(client.get3dZoom() / 500.0, 1));
+                final BufferedImage arrow = arrowSprites.get(graphics, imageScale);
+                graphics.drawImage(arrow, centreX(shadowPoly) - arrow.getWidth() / 2, projection.y2d[anchor] - ARROW_ICON.getHeight() / 2, null);
+            }
+        }
+
+    }
+
+    /**
+     * Returns the middle of the polygon's horizontal extent, without the allocation of {@link Polygon#getBounds()}.
+     */
+    private static int centreX(Polygon polygon) {
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        for (int i = 0; i < polygon.npoints; i++) {
+            minX = Math.min(minX, polygon.xpoints[i]);
+            maxX = Math.max(maxX, polygon.xpoints[i]);
         }
+        return (maxX - minX) / 2 + minX;
+    }
+
+    /**
+     * Draws the predicted walk path from the player's tile to the destination as a line through the centres of
+     * its tiles, over a shadow like the destination ring's. Every tile of the path is projected in one pass, and
+     * the line and the shadow are drawn in one call each however long the path is.
+     */
+    private void renderPath(final Graphics2D graphics, final ConfigSnapshot config, final LocalPoint playerPosLocal)
+    {
+        final LocalPoint dest = client.getLocalDestinationLocation();
+        final CollisionData[] collisionMaps = client.getCollisionMaps();
+        if (dest == null || collisionMaps == null) {
+            walkPath.clear();
+            return;
+        }
+
+        final int plane = client.getPlane();
+        if (!walkPath.update(collisionMaps[plane].getFlags(), plugin.getCollisionRevision(),
+                playerPosLocal.getSceneX(), playerPosLocal.getSceneY(), dest.getSceneX(), dest.getSceneY())
+                || walkPath.getEnd() - walkPath.getFirst() < 2) {
+            return;
+        }
+
+        // Line and shadow points are interleaved in the projection buffers, like the ring's
+        final int[] tiles = walkPath.tiles;
+        final int first = projection.size();
+        for (int i = walkPath.getFirst(); i < walkPath.getEnd(); i++) {
+            final int x = (tiles[i] / Perspective.SCENE_SIZE << Perspective.LOCAL_COORD_BITS) + Perspective.LOCAL_HALF_TILE_SIZE;
+            final int y = (tiles[i] % Perspective.SCENE_SIZE << Perspective.LOCAL_COORD_BITS) + Perspective.LOCAL_HALF_TILE_SIZE;
+            final int height = getTileHeight(client, x, y, plane);
+            projection.projectPoint(x, y, height - SHADOW_Z_OFFSET);
+            projection.projectPoint(x, y, height);
+        }
+        final int last = projection.size();
+
+        final Stroke originalStroke = graphics.getStroke();
+        graphics.setStroke(config.destinationStroke);
+        graphics.setColor(SHADOW_COLOR);
+        graphics.draw(projectedLine(first + 1, last));
+        graphics.setColor(config.destinationColor);
+        graphics.draw(projectedLine(first, last));
+        graphics.setStroke(originalStroke);
+    }
 
+    /**
+     * Returns a line through every other projected point from {@code from} to {@code to}, broken wherever a point
+     * failed to project. The line is reused, so it must be drawn before this is called again.
+     */
+    private Path2D projectedLine(final int from, final int to)
+    {
+        final int[] x2d = projection.x2d;
+        final int[] y2d = projection.y2d;
+        pathLine.reset();
+        boolean broken = true;
+        for (int i = from; i < to; i += 2) {
+            if (x2d[i] == Integer.MIN_VALUE) {
+                broken = true;
+            } else if (broken) {
+                pathLine.moveTo(x2d[i], y2d[i]);
+                broken = false;
+            } else {
+                pathLine.lineTo(x2d[i], y2d[i]);
+            }
+        }
+        return pathLine;
     }
 
-    public static Polygon getCanvasTargetTileCirclePoly(
-            @Nonnull Client client,
+    /**
+     * Projects a circle around the tile into the ring polygon, and the same circle {@code ringZOffset} lower into
+     * the shadow polygon. Both share one pass over a precomputed unit circle, since they only differ in height,
+     * and the number of points adapts to how large the circle is on screen. Returns false if the tile is outside
+     * the scene.
+     */
+    boolean projectTargetTileCircle(
             @Nonnull LocalPoint localLocation,
             double size,
             int plane,
-            int zOffset)
+            int ringZOffset,
+            @Nonnull Polygon ring,
+            @Nonnull Polygon shadow)
     {
+        ring.reset();
+        shadow.reset();
+
         final int sceneX = localLocation.getSceneX();
         final int sceneY = localLocation.getSceneY();
 
         if (sceneX < 0 || sceneY < 0 || sceneX >= Perspective.SCENE_SIZE || sceneY >= Perspective.SCENE_SIZE)
         {
-            return null;
+            return false;
         }
 
-        Polygon poly = new Polygon();
-        int resolution = 64;
-        final int height = Perspective.getTileHeight(client, localLocation, plane) - zOffset;
-
-        for (int i = 0; i < resolution; i++) {
-            double angle = ((float) i / resolution) * 2 * Math.PI;
-            double offsetX = Math.cos(angle);
-            double offsetY = Math.sin(angle);
-            int x = (int) (localLocation.getX() + (offsetX * Perspective.LOCAL_TILE_SIZE * size));
-            int y = (int) (localLocation.getY() + (offsetY * Perspective.LOCAL_TILE_SIZE * size));
-            Point p = Perspective.localToCanvas(client, x, y, height);
-            if (p == null) {
-                continue;
-            }
-            poly.addPoint(p.getX(), p.getY());
+        final int shadowHeight = getTileHeight(client, localLocation.getX(), localLocation.getY(), plane);
+        final int ringHeight = shadowHeight - ringZOffset;
 
-        }
-
-        return poly;
-    }
+        final double radius = Perspective.LOCAL_TILE_SIZE * size;
+        final int centreX = localLocation.getX();
+        final int centreY = localLocation.getY();
 
-    private void removeActor(final Graphics2D graphics, final Actor actor) {
-        final int clipX1 = client.getViewportXOffset();
-        final int clipY1 = client.getViewportYOffset();
-        final int clipX2 = client.getViewportWidth() + clipX1;
-        final int clipY2 = client.getViewportHeight() + clipY1;
-        Object origAA = graphics.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
-        graphics.setRenderingHint(
-                RenderingHints.KEY_ANTIALIASING,
-                RenderingHints.VALUE_ANTIALIAS_OFF);
-        Model model = actor.getModel();
-        int vCount = model.getVerticesCount();
-        float[] x3d = model.getVerticesX();
-        float[] y3d = model.getVerticesY();
-        float[] z3d = model.getVerticesZ();
-
-        int[] x2d = new int[vCount];
-        int[] y2d = new int[vCount];
-
-        int size = 1;
-        if (actor instanceof NPC)
+        // Pick the ring resolution from the circle's on screen circumference
+        final int centreDepth = projection.depth(centreX, centreY, shadowHeight);
+        int resolution = CIRCLE_RESOLUTION;
+        if (centreDepth >= 50)
         {
-            NPCComposition composition = ((NPC) actor).getTransformedComposition();
-            if (composition != null)
+            final double circumference = 2 * Math.PI * radius * projection.getScale() / centreDepth;
+            resolution = MIN_CIRCLE_RESOLUTION;
+            while (resolution < CIRCLE_RESOLUTION && circumference / resolution > CIRCLE_SEGMENT_LENGTH)
             {
-                size = composition.getSize();
+                resolution <<= 1;
             }
         }
+        final int step = CIRCLE_RESOLUTION / resolution;
+
+        // Ring and shadow points are interleaved in the projection buffers
+        final int first = projection.size();
+        for (int i = 0; i < CIRCLE_RESOLUTION; i += step) {
+            final int x = (int) (centreX + CIRCLE_COS[i] * radius);
+            final int y = (int) (centreY + CIRCLE_SIN[i] * radius);
+            projection.projectPoint(x, y, ringHeight);
+            projection.projectPoint(x, y, shadowHeight);
+        }
 
-        final LocalPoint lp = actor.getLocalLocation();
-
-        final int localX = lp.getX();
-        final int localY = lp.getY();
-        final int northEastX = lp.getX() + Perspective.LOCAL_TILE_SIZE * (size - 1) / 2;
-        final int northEastY = lp.getY() + Perspective.LOCAL_TILE_SIZE * (size - 1) / 2;
-        final LocalPoint northEastLp = new LocalPoint(northEastX, northEastY);
-        int localZ = Perspective.getTileHeight(client, northEastLp, client.getPlane());
-        int rotation = actor.getCurrentOrientation();
-
-        Perspective.modelToCanvas(client, vCount, localX, localY, localZ, rotation, x3d, z3d, y3d, x2d, y2d);
+        final int[] x2d = projection.x2d;
+        final int[] y2d = projection.y2d;
+        for (int i = first; i < projection.size(); i += 2) {
+            if (x2d[i] != Integer.MIN_VALUE) {
+                ring.addPoint(x2d[i], y2d[i]);
+            }
+            if (x2d[i + 1] != Integer.MIN_VALUE) {
+                shadow.addPoint(x2d[i + 1], y2d[i + 1]);
+            }
+        }
 
-        boolean anyVisible = false;
+        return true;
+    }
 
-        for (int i = 0; i < vCount; i++) {
-            int x = x2d[i];
-            int y = y2d[i];
+    /**
+     * Stops building coverage in the background, for when the plugin shuts down.
+     */
+    void shutDown()
+    {
+        worker.shutDown();
+    }
 
-            boolean visibleX = x >= clipX1 && x < clipX2;
-            boolean visibleY = y >= clipY1 && y < clipY2;
-            anyVisible |= visibleX && visibleY;
+    /**
+     * Same as {@link Perspective#getTileHeight(Client, LocalPoint, int)}, but takes raw local coordinates
+     * so callers on the paint path do not have to allocate a {@link LocalPoint}.
+     */
+    static int getTileHeight(Client client, int localX, int localY, int plane)
+    {
+        final int sceneX = localX >> Perspective.LOCAL_COORD_BITS;
+        final int sceneY = localY >> Perspective.LOCAL_COORD_BITS;
+        if (sceneX < 0 || sceneY < 0 || sceneX >= Perspective.SCENE_SIZE || sceneY >= Perspective.SCENE_SIZE)
+        {
+            return 0;
         }
 
-        if (!anyVisible) return;
-
-        int tCount = model.getFaceCount();
-        int[] tx = model.getFaceIndices1();
-        int[] ty = model.getFaceIndices2();
-        int[] tz = model.getFaceIndices3();
-
-        final byte[] triangleTransparencies = model.getFaceTransparencies();
+        final byte[][][] tileSettings = client.getTileSettings();
+        final int[][][] tileHeights = client.getTileHeights();
 
-        Composite orig = graphics.getComposite();
-        graphics.setComposite(AlphaComposite.Clear);
-        graphics.setColor(Color.WHITE);
-        for (int i = 0; i < tCount; i++) {
-            // Cull tris facing away from the camera
-            if (getTriDirection(x2d[tx[i]], y2d[tx[i]], x2d[ty[i]], y2d[ty[i]], x2d[tz[i]], y2d[tz[i]]) >= 0)
-            {
-                continue;
-            }
-            if (triangleTransparencies == null || (triangleTransparencies[i] & 255) < 254) {
-                Polygon p = new Polygon(
-                        new int[]{x2d[tx[i]], x2d[ty[i]], x2d[tz[i]]},
-                        new int[]{y2d[tx[i]], y2d[ty[i]], y2d[tz[i]]},
-                        3);
-                graphics.fill(p);
-            }
+        int z = plane;
+        if (plane < Constants.MAX_Z - 1 && (tileSettings[1][sceneX][sceneY] & Constants.TILE_FLAG_BRIDGE) == Constants.TILE_FLAG_BRIDGE)
+        {
+            z = plane + 1;
         }
-        graphics.setComposite(orig);
-        graphics.setRenderingHint(
-                RenderingHints.KEY_ANTIALIASING,
-                origAA);
-    }
 
-    private int getTriDirection(int x1, int y1, int x2, int y2, int x3, int y3) {
-        int x4 = x2 - x1;
-        int y4 = y2 - y1;
-        int x5 = x3 - x1;
-        int y5 = y3 - y1;
-        return x4 * y5 - y4 * x5;
+        final int x = localX & (Perspective.LOCAL_TILE_SIZE - 1);
+        final int y = localY & (Perspective.LOCAL_TILE_SIZE - 1);
+        final int south = x * tileHeights[z][sceneX + 1][sceneY] + (Perspective.LOCAL_TILE_SIZE - x) * tileHeights[z][sceneX][sceneY] >> Perspective.LOCAL_COORD_BITS;
+        final int north = tileHeights[z][sceneX][sceneY + 1] * (Perspective.LOCAL_TILE_SIZE - x) + x * tileHeights[z][sceneX + 1][sceneY + 1] >> Perspective.LOCAL_COORD_BITS;
+        return (Perspective.LOCAL_TILE_SIZE - y) * south + y * north >> Perspective.LOCAL_COORD_BITS;
     }
 
 }
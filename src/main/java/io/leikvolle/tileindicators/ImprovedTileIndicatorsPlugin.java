@@ -36,6 +36,7 @@ import net.runelite.api.events.*;
 
 import static net.runelite.api.MenuAction.MENU_ACTION_DEPRIORITIZE_OFFSET;
 
+import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.events.ConfigChanged;
@@ -45,8 +46,11 @@ import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.ui.overlay.OverlayManager;
 import net.runelite.client.util.Text;
-import net.runelite.client.util.WildcardMatcher;
 
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 @PluginDescriptor(
@@ -63,6 +67,9 @@ public class ImprovedTileIndicatorsPlugin extends Plugin
 	@Inject
 	private ImprovedTileIndicatorsOverlay overlay;
 
+	@Inject
+	private ImprovedTileIndicatorsDebugOverlay debugOverlay;
+
 	@Inject ImprovedTileIndicatorsConfig config;
 
 	@Inject
@@ -72,8 +79,36 @@ public class ImprovedTileIndicatorsPlugin extends Plugin
 	private ClientThread clientThread;
 
 	@Getter(AccessLevel.PACKAGE)
-	private final Set<NPC> onTopNpcs = new HashSet<>();
+	private final NpcIndexSet onTopNpcs = new NpcIndexSet();
+
+	// What the overlay draws, copied from onTopNpcs at most once a tick, however often NPCs spawn and despawn
+	@Getter(AccessLevel.PACKAGE)
+	private volatile NpcIndexSnapshot trackedNpcs = NpcIndexSnapshot.EMPTY;
+
+	@Getter(AccessLevel.PACKAGE)
+	private final FrameProfiler profiler = new FrameProfiler();
+
+	// Changes whenever the collision flags might have, so the overlay knows when to search its walk path again
+	@Getter(AccessLevel.PACKAGE)
+	private int collisionRevision;
+
 	private List<String> onTopNPCNames = new ArrayList<>();
+	private BitSet onTopNPCIds = new BitSet();
+	private NpcNameMatcher onTopMatcher = new NpcNameMatcher(Collections.emptyList());
+
+	// Swapped whole on every config change, so the overlays read a consistent config without locking
+	@Getter(AccessLevel.PACKAGE)
+	private volatile ConfigSnapshot configSnapshot;
+
+	private SessionRecorder recorder;
+
+	private static final String CONFIG_GROUP = "improvedtileindicators";
+	private static final String TOP_NPCS_KEY = "topNPCs";
+	private static final String TOP_NPC_IDS_KEY = "topNPCIds";
+	private static final String RECORD_SESSION_KEY = "recordSession";
+
+	private static final File SESSION_DIR = new File(RuneLite.RUNELITE_DIR, "improved-tile-indicators");
+	private static final DateTimeFormatter SESSION_NAME = DateTimeFormatter.ofPattern("'session-'yyyyMMdd-HHmmss'.bin'");
 
 	private static final String DRAW_ABOVE = "Draw-Above";
 	private static final String DRAW_BELOW = "Draw-Below";
@@ -88,51 +123,110 @@ public class ImprovedTileIndicatorsPlugin extends Plugin
 	@Override
 	protected void startUp()
 	{
+		updateConfigSnapshot();
 		overlayManager.add(overlay);
-		clientThread.invoke(this::rebuild);
+		overlayManager.add(debugOverlay);
+		clientThread.invoke(() ->
+		{
+			rebuild();
+			updateRecording();
+		});
 	}
 
 	@Override
 	protected void shutDown()
 	{
 		overlayManager.remove(overlay);
+		overlayManager.remove(debugOverlay);
+		overlay.shutDown();
+		clientThread.invoke(this::stopRecording);
 	}
 
 	@Subscribe
 	public void onGameStateChanged(GameStateChanged event)
 	{
+		if (event.getGameState() == GameState.LOADING)
+		{
+			collisionRevision++;
+			if (recorder != null)
+			{
+				recorder.sceneChanged();
+			}
+		}
 		if (event.getGameState() == GameState.LOGIN_SCREEN ||
 				event.getGameState() == GameState.HOPPING)
 		{
 			onTopNpcs.clear();
+			publishTrackedNpcs();
 		}
 	}
 
+	@Subscribe
+	public void onGameTick(GameTick gameTick)
+	{
+		publishTrackedNpcs();
+	}
+
 	@Subscribe
 	public void onConfigChanged(ConfigChanged configChanged)
 	{
-		if (!configChanged.getGroup().equals("improvedtileindicators"))
+		if (!configChanged.getGroup().equals(CONFIG_GROUP))
+		{
+			return;
+		}
+
+		updateConfigSnapshot();
+		// Only the tag lists decide which NPCs are tracked, everything else is read by the overlays from the snapshot
+		if (TOP_NPCS_KEY.equals(configChanged.getKey()) || TOP_NPC_IDS_KEY.equals(configChanged.getKey()))
+		{
+			clientThread.invoke(() -> applyRules(getTopNPCs(), getTopNPCIds()));
+		}
+		else if (RECORD_SESSION_KEY.equals(configChanged.getKey()))
+		{
+			clientThread.invoke(this::updateRecording);
+		}
+	}
+
+	@Subscribe
+	public void onBeforeRender(BeforeRender beforeRender)
+	{
+		if (recorder == null)
 		{
 			return;
 		}
 
-		clientThread.invoke(this::rebuild);
+		try
+		{
+			recorder.recordFrame(client, configSnapshot, trackedNpcs);
+		}
+		catch (IOException e)
+		{
+			log.warn("Failed to record frame, stopping the recording", e);
+			stopRecording();
+		}
 	}
 
 	@Subscribe
 	public void onNpcSpawned(NpcSpawned npcSpawned)
 	{
 		final NPC npc = npcSpawned.getNpc();
-		final String npcName = npc.getName();
 
-		if (npcName == null)
+		if (isOnTop(npc))
 		{
-			return;
+			onTopNpcs.add(npc.getIndex());
 		}
 
-		if (onTopMatchesNPCName(npcName))
+		if (recorder != null)
 		{
-			onTopNpcs.add(npc);
+			try
+			{
+				recorder.npcSpawned(npc);
+			}
+			catch (IOException e)
+			{
+				log.warn("Failed to record npc spawn, stopping the recording", e);
+				stopRecording();
+			}
 		}
 	}
 
@@ -140,9 +234,46 @@ public class ImprovedTileIndicatorsPlugin extends Plugin
 	public void onNpcDespawned(NpcDespawned npcDespawned)
 	{
 		final NPC npc = npcDespawned.getNpc();
-		onTopNpcs.remove(npc);
+		onTopNpcs.remove(npc.getIndex());
+
+		if (recorder != null)
+		{
+			try
+			{
+				recorder.npcDespawned(npc);
+			}
+			catch (IOException e)
+			{
+				log.warn("Failed to record npc despawn, stopping the recording", e);
+				stopRecording();
+			}
+		}
+	}
+
+
+	@Subscribe
+	public void onGameObjectSpawned(GameObjectSpawned event)
+	{
+		collisionRevision++;
+	}
+
+	@Subscribe
+	public void onGameObjectDespawned(GameObjectDespawned event)
+	{
+		collisionRevision++;
+	}
+
+	@Subscribe
+	public void onWallObjectSpawned(WallObjectSpawned event)
+	{
+		collisionRevision++;
 	}
 
+	@Subscribe
+	public void onWallObjectDespawned(WallObjectDespawned event)
+	{
+		collisionRevision++;
+	}
 
 	@Subscribe
 	public void onMenuEntryAdded(MenuEntryAdded event)
@@ -156,19 +287,15 @@ public class ImprovedTileIndicatorsPlugin extends Plugin
 
 		final MenuAction menuAction = MenuAction.of(type);
 
-		if (menuAction == MenuAction.EXAMINE_NPC && client.isKeyPressed(KeyCode.KC_SHIFT) && config.overlaysBelowNPCs())
+		if (menuAction == MenuAction.EXAMINE_NPC && client.isKeyPressed(KeyCode.KC_SHIFT) && configSnapshot.overlaysBelowNPCs)
 		{
 			final String npcName = getNameForCachedNPC(event.getIdentifier());
 			if (npcName == null) return;
-			boolean matchesList = onTopNPCNames.stream()
-					.filter(highlight -> !highlight.equalsIgnoreCase(npcName))
-					.anyMatch(highlight -> WildcardMatcher.matches(highlight, npcName));
-
 			// Only show draw options to npcs not affected by a wildcard entry, as wildcards will not be removed by menu options
-			if (!matchesList)
+			if (!onTopMatcher.matchesWildcard(npcName))
 			{
 				client.createMenuEntry(-1)
-					.setOption(onTopNPCNames.stream().anyMatch(npcName::equalsIgnoreCase) ? DRAW_BELOW : DRAW_ABOVE)
+					.setOption(onTopMatcher.isListed(npcName) ? DRAW_BELOW : DRAW_ABOVE)
 					.setTarget(event.getTarget())
 					.setIdentifier(event.getIdentifier())
 					.setType(MenuAction.RUNELITE)
@@ -181,7 +308,6 @@ public class ImprovedTileIndicatorsPlugin extends Plugin
 	{
 		final String name = getNameForCachedNPC(click.getIdentifier());
 		if (name == null) return;
-		// this trips a config change which triggers the overlay rebuild
 		updateNpcsToDrawAbove(name);
 	}
 
@@ -194,7 +320,8 @@ public class ImprovedTileIndicatorsPlugin extends Plugin
 			highlightedNpcs.add(npc);
 		}
 
-		// this triggers the config change event and rebuilds npcs
+		// Apply the change straight away, the config change event that follows will then find nothing to do
+		applyRules(highlightedNpcs, onTopNPCIds);
 		config.setTopNPCs(Text.toCSV(highlightedNpcs));
 	}
 
@@ -210,10 +337,76 @@ public class ImprovedTileIndicatorsPlugin extends Plugin
 		return Text.fromCSV(configNpcs);
 	}
 
+	BitSet getTopNPCIds()
+	{
+		final BitSet ids = new BitSet();
+		final String configIds = config.getTopNPCIds();
+
+		if (configIds.isEmpty())
+		{
+			return ids;
+		}
+
+		for (String id : Text.fromCSV(configIds))
+		{
+			try
+			{
+				final int npcId = Integer.parseInt(id);
+				if (npcId >= 0)
+				{
+					ids.set(npcId);
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				log.debug("Ignoring invalid npc id {}", id);
+			}
+		}
+
+		return ids;
+	}
+
+	void updateConfigSnapshot()
+	{
+		configSnapshot = new ConfigSnapshot(config);
+	}
+
 	void rebuild()
 	{
-		onTopNPCNames = getTopNPCs();
+		onTopNPCNames = Collections.emptyList();
+		onTopNPCIds = new BitSet();
 		onTopNpcs.clear();
+		applyRules(getTopNPCs(), getTopNPCIds());
+		publishTrackedNpcs();
+	}
+
+	/**
+	 * Hands the overlay a copy of the tracked NPCs, if they changed since the last copy.
+	 */
+	void publishTrackedNpcs()
+	{
+		if (trackedNpcs.getVersion() != onTopNpcs.getVersion())
+		{
+			trackedNpcs = onTopNpcs.snapshot();
+		}
+	}
+
+	/**
+	 * Switches to the given rules, touching only the NPCs affected by the rules that were added or removed.
+	 */
+	private void applyRules(List<String> names, BitSet ids)
+	{
+		final List<String> addedNames = new ArrayList<>(names);
+		addedNames.removeAll(onTopNPCNames);
+		final BitSet addedIds = (BitSet) ids.clone();
+		addedIds.andNot(onTopNPCIds);
+		final BitSet removedIds = (BitSet) onTopNPCIds.clone();
+		removedIds.andNot(ids);
+		final boolean anyRemoved = !names.containsAll(onTopNPCNames) || !removedIds.isEmpty();
+
+		onTopNPCNames = names;
+		onTopNPCIds = ids;
+		onTopMatcher = new NpcNameMatcher(names);
 
 		if (client.getGameState() != GameState.LOGGED_IN &&
 				client.getGameState() != GameState.LOADING)
@@ -221,33 +414,101 @@ public class ImprovedTileIndicatorsPlugin extends Plugin
 			return;
 		}
 
-		for (NPC npc : client.getNpcs())
+		if (anyRemoved)
 		{
-			final String npcName = npc.getName();
+			final NPC[] cachedNPCs = client.getCachedNPCs();
+			// Backwards, as removing moves the last member into the removed slot
+			for (int i = onTopNpcs.size() - 1; i >= 0; i--)
+			{
+				final int index = onTopNpcs.get(i);
+				if (cachedNPCs[index] == null || !isOnTop(cachedNPCs[index]))
+				{
+					onTopNpcs.remove(index);
+				}
+			}
+		}
 
-			if (npcName == null)
+		if (addedNames.isEmpty() && addedIds.isEmpty())
+		{
+			return;
+		}
+
+		final NpcNameMatcher addedMatcher = new NpcNameMatcher(addedNames);
+		for (NPC npc : client.getNpcs())
+		{
+			if (onTopNpcs.contains(npc.getIndex()))
 			{
 				continue;
 			}
 
-			if (onTopMatchesNPCName(npcName))
+			final String npcName = npc.getName();
+			if ((npc.getId() >= 0 && addedIds.get(npc.getId())) || (npcName != null && addedMatcher.matches(npcName)))
 			{
-				onTopNpcs.add(npc);
+				onTopNpcs.add(npc.getIndex());
 			}
 		}
 	}
 
-	private boolean onTopMatchesNPCName(String npcName)
+	/**
+	 * Starts or stops recording to match the config. A new recording starts with every NPC already in the scene.
+	 */
+	private void updateRecording()
 	{
-		for (String matching : onTopNPCNames)
+		if (!config.recordSession())
 		{
-			if (WildcardMatcher.matches(matching, npcName))
+			stopRecording();
+			return;
+		}
+		if (recorder != null)
+		{
+			return;
+		}
+
+		final File file = new File(SESSION_DIR, LocalDateTime.now().format(SESSION_NAME));
+		try
+		{
+			SESSION_DIR.mkdirs();
+			recorder = new SessionRecorder(file, config.getTopNPCs(), config.getTopNPCIds());
+			for (NPC npc : client.getNpcs())
 			{
-				return true;
+				recorder.npcSpawned(npc);
 			}
+			log.debug("Recording session to {}", file);
+		}
+		catch (IOException e)
+		{
+			log.warn("Failed to start recording to {}", file, e);
+			stopRecording();
 		}
+	}
 
-		return false;
+	private void stopRecording()
+	{
+		if (recorder == null)
+		{
+			return;
+		}
+
+		try
+		{
+			recorder.close();
+		}
+		catch (IOException e)
+		{
+			log.warn("Failed to finish recording", e);
+		}
+		recorder = null;
+	}
+
+	private boolean isOnTop(NPC npc)
+	{
+		if (npc.getId() >= 0 && onTopNPCIds.get(npc.getId()))
+		{
+			return true;
+		}
+
+		final String npcName = npc.getName();
+		return npcName != null && onTopMatcher.matches(npcName);
 	}
 
 	private String getNameForCachedNPC(int id)
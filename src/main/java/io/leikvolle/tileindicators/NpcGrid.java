@@ -0,0 +1,298 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+import net.runelite.api.Actor;
+import net.runelite.api.NPC;
+import net.runelite.api.Perspective;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * The tracked NPCs bucketed by where they stand in the scene, in square cells of {@link #CELL_TILES} tiles, so
+ * the nearest ones and the ones in a region can be found without looking at every tracked NPC. Each cell is an
+ * intrusive list threaded through arrays indexed by NPC index, so nothing is allocated once the arrays have
+ * grown to the highest index seen.
+ * <p>
+ * {@link #update(NPC[], NpcIndexSnapshot, int)} only moves the NPCs whose cell changed, and only runs once per game
+ * tick or when the tracked set changes. NPCs keep walking in between, so queries widen their bounds by
+ * {@link #MARGIN_TILES} and always measure distances from where the NPCs are at the time.
+ */
+final class NpcGrid
+{
+	private static final int CELL_BITS = 3;
+	static final int CELL_TILES = 1 << CELL_BITS;
+	private static final int CELLS = (Perspective.SCENE_SIZE + CELL_TILES - 1) / CELL_TILES;
+	// Furthest an NPC can walk between two updates, two tiles a tick when running
+	static final int MARGIN_TILES = 2;
+	private static final int NONE = -1;
+
+	private final int[] heads = new int[CELLS * CELLS];
+	private int[] cells = new int[0];
+	private int[] next = new int[0];
+	private int[] previous = new int[0];
+	private int[] stamps = new int[0];
+	private int stamp;
+	private int size;
+
+	private int updatedTick = NONE;
+	private int updatedVersion = NONE;
+
+	NpcGrid()
+	{
+		Arrays.fill(heads, NONE);
+	}
+
+	/**
+	 * Brings the grid in line with the tracked set, if the game has ticked or the set has changed since the
+	 * last update.
+	 */
+	void update(NPC[] cachedNpcs, NpcIndexSnapshot tracked, int tick)
+	{
+		if (tick == updatedTick && tracked.getVersion() == updatedVersion)
+		{
+			return;
+		}
+		updatedTick = tick;
+		updatedVersion = tracked.getVersion();
+		stamp++;
+
+		for (int i = 0; i < tracked.size(); i++)
+		{
+			final int index = tracked.get(i);
+			final NPC npc = cachedNpcs[index];
+			if (npc == null)
+			{
+				continue;
+			}
+			ensureCapacity(index);
+			final LocalPoint location = npc.getLocalLocation();
+			final int cell = cell(location.getSceneX()) * CELLS + cell(location.getSceneY());
+			if (cells[index] != cell)
+			{
+				unlink(index);
+				link(index, cell);
+			}
+			stamps[index] = stamp;
+		}
+
+		// Whatever was not seen has despawned or stopped being tracked
+		for (int cell = 0; cell < heads.length; cell++)
+		{
+			for (int index = heads[cell]; index != NONE; )
+			{
+				final int following = next[index];
+				if (stamps[index] != stamp)
+				{
+					unlink(index);
+				}
+				index = following;
+			}
+		}
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Writes up to {@code limit} of the NPCs nearest to the point into the arrays, closest first with their
+	 * distances, and returns how many were written. Cells are visited in rings around the point, stopping once
+	 * no NPC in the next ring could be closer than the furthest one kept.
+	 */
+	int nearest(NPC[] cachedNpcs, LocalPoint from, int limit, Actor[] actors, int[] distances)
+	{
+		if (limit <= 0 || size == 0)
+		{
+			return 0;
+		}
+
+		final int centreX = cell(from.getSceneX());
+		final int centreY = cell(from.getSceneY());
+		final int rings = Math.max(Math.max(centreX, CELLS - 1 - centreX), Math.max(centreY, CELLS - 1 - centreY));
+		int count = 0;
+		int seen = 0;
+		for (int ring = 0; ring <= rings && seen < size; ring++)
+		{
+			// The point can be anywhere in its own cell, and the NPCs up to the margin outside theirs
+			final int closest = Math.max(0, (ring - 1) * CELL_TILES - MARGIN_TILES) * Perspective.LOCAL_TILE_SIZE;
+			if (count == limit && distances[count - 1] <= closest)
+			{
+				break;
+			}
+
+			for (int x = centreX - ring; x <= centreX + ring; x++)
+			{
+				if (x < 0 || x >= CELLS)
+				{
+					continue;
+				}
+				// Only the top and bottom rows of the ring take every column, the rest only its two sides
+				final boolean edge = x == centreX - ring || x == centreX + ring;
+				for (int y = centreY - ring; y <= centreY + ring; y += edge || ring == 0 ? 1 : 2 * ring)
+				{
+					if (y < 0 || y >= CELLS)
+					{
+						continue;
+					}
+					for (int index = heads[x * CELLS + y]; index != NONE; index = next[index])
+					{
+						seen++;
+						final NPC npc = cachedNpcs[index];
+						if (npc != null)
+						{
+							count = insert(npc, npc.getLocalLocation().distanceTo(from), count, limit, actors, distances);
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the NPCs standing in the rectangle of scene tiles, inclusive, into the array and returns how many
+	 * were written. The array must have room for every tracked NPC.
+	 */
+	int inRegion(NPC[] cachedNpcs, int minSceneX, int minSceneY, int maxSceneX, int maxSceneY, NPC[] npcs)
+	{
+		final int minX = cell(minSceneX - MARGIN_TILES);
+		final int maxX = cell(maxSceneX + MARGIN_TILES);
+		final int minY = cell(minSceneY - MARGIN_TILES);
+		final int maxY = cell(maxSceneY + MARGIN_TILES);
+		int count = 0;
+		for (int x = minX; x <= maxX; x++)
+		{
+			for (int y = minY; y <= maxY; y++)
+			{
+				for (int index = heads[x * CELLS + y]; index != NONE; index = next[index])
+				{
+					final NPC npc = cachedNpcs[index];
+					if (npc == null)
+					{
+						continue;
+					}
+					final LocalPoint location = npc.getLocalLocation();
+					if (location.getSceneX() >= minSceneX && location.getSceneX() <= maxSceneX
+						&& location.getSceneY() >= minSceneY && location.getSceneY() <= maxSceneY)
+					{
+						npcs[count++] = npc;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the NPCs in cells that can be seen with the camera the projection was begun with into the array,
+	 * and returns how many were written. Each cell is tested as a whole, with room for NPCs up to
+	 * {@code height} tall, so some NPCs written may be just out of view. The array must have room for every
+	 * tracked NPC.
+	 */
+	int inView(NPC[] cachedNpcs, ProjectionEngine projection, int ground, int height, NPC[] npcs)
+	{
+		final int half = (CELL_TILES / 2 + MARGIN_TILES) * Perspective.LOCAL_TILE_SIZE;
+		final int radius = (int) Math.ceil(Math.sqrt(2.0 * half * half + (double) height * height / 4));
+		int count = 0;
+		for (int x = 0; x < CELLS; x++)
+		{
+			for (int y = 0; y < CELLS; y++)
+			{
+				final int head = heads[x * CELLS + y];
+				if (head == NONE || !projection.sphereInView(
+					(x * CELL_TILES + CELL_TILES / 2) * Perspective.LOCAL_TILE_SIZE,
+					(y * CELL_TILES + CELL_TILES / 2) * Perspective.LOCAL_TILE_SIZE,
+					ground - height / 2, radius))
+				{
+					continue;
+				}
+				for (int index = head; index != NONE; index = next[index])
+				{
+					final NPC npc = cachedNpcs[index];
+					if (npc != null)
+					{
+						npcs[count++] = npc;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Inserts the NPC into the sorted arrays, dropping the furthest once there are {@code limit}.
+	 */
+	private static int insert(NPC npc, int distance, int count, int limit, Actor[] actors, int[] distances)
+	{
+		if (count == limit && distance >= distances[count - 1])
+		{
+			return count;
+		}
+		int i = count == limit ? count - 1 : count++;
+		for (; i > 0 && distances[i - 1] > distance; i--)
+		{
+			actors[i] = actors[i - 1];
+			distances[i] = distances[i - 1];
+		}
+		actors[i] = npc;
+		distances[i] = distance;
+		return count;
+	}
+
+	private static int cell(int sceneCoordinate)
+	{
+		return Math.max(0, Math.min(CELLS - 1, sceneCoordinate >> CELL_BITS));
+	}
+
+	private void link(int index, int cell)
+	{
+		final int head = heads[cell];
+		cells[index] = cell;
+		previous[index] = NONE;
+		next[index] = head;
+		if (head != NONE)
+		{
+			previous[head] = index;
+		}
+		heads[cell] = index;
+		size++;
+	}
+
+	private void unlink(int index)
+	{
+		final int cell = cells[index];
+		if (cell == NONE)
+		{
+			return;
+		}
+		if (previous[index] != NONE)
+		{
+			next[previous[index]] = next[index];
+		}
+		else
+		{
+			heads[cell] = next[index];
+		}
+		if (next[index] != NONE)
+		{
+			previous[next[index]] = previous[index];
+		}
+		cells[index] = NONE;
+		size--;
+	}
+
+	private void ensureCapacity(int index)
+	{
+		if (index < cells.length)
+		{
+			return;
+		}
+		final int capacity = Math.max(64, Integer.highestOneBit(index) << 1);
+		final int old = cells.length;
+		cells = Arrays.copyOf(cells, capacity);
+		Arrays.fill(cells, old, capacity, NONE);
+		next = Arrays.copyOf(next, capacity);
+		previous = Arrays.copyOf(previous, capacity);
+		stamps = Arrays.copyOf(stamps, capacity);
+	}
+}
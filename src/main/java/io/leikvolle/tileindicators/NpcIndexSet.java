@@ -0,0 +1,124 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+
+/**
+ * A set of NPC indices, as used by {@code Client.getCachedNPCs()}. Membership is a bitset and the members are
+ * also kept densely packed, so adding, removing and testing are constant time and iterating is a plain loop
+ * over {@link #size()} and {@link #get(int)} with no hashing and no iterator.
+ * <p>
+ * Removal moves the last member into the freed slot, so the iteration order is not stable across removals.
+ */
+final class NpcIndexSet
+{
+	private static final int INITIAL_CAPACITY = 2048;
+
+	private long[] members = new long[INITIAL_CAPACITY >> 6];
+	// Position of each member in the dense array
+	private int[] positions = new int[INITIAL_CAPACITY];
+	private int[] dense = new int[64];
+	private int size;
+	private int version;
+
+	boolean contains(int index)
+	{
+		return index >= 0 && (index >> 6) < members.length && (members[index >> 6] & 1L << index) != 0;
+	}
+
+	/**
+	 * Adds the index, returning false if it was already a member.
+	 */
+	boolean add(int index)
+	{
+		if (index < 0)
+		{
+			throw new IllegalArgumentException("negative npc index " + index);
+		}
+		if (contains(index))
+		{
+			return false;
+		}
+
+		if (index >= positions.length)
+		{
+			final int capacity = Integer.highestOneBit(index) << 1;
+			positions = Arrays.copyOf(positions, capacity);
+			members = Arrays.copyOf(members, capacity >> 6);
+		}
+		if (size == dense.length)
+		{
+			dense = Arrays.copyOf(dense, size * 2);
+		}
+
+		members[index >> 6] |= 1L << index;
+		positions[index] = size;
+		dense[size++] = index;
+		version++;
+		return true;
+	}
+
+	/**
+	 * Removes the index, returning false if it was not a member.
+	 */
+	boolean remove(int index)
+	{
+		if (!contains(index))
+		{
+			return false;
+		}
+
+		members[index >> 6] &= ~(1L << index);
+		final int position = positions[index];
+		final int last = dense[--size];
+		dense[position] = last;
+		positions[last] = position;
+		version++;
+		return true;
+	}
+
+	void clear()
+	{
+		for (int i = 0; i < size; i++)
+		{
+			final int index = dense[i];
+			members[index >> 6] &= ~(1L << index);
+		}
+		size = 0;
+		version++;
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns a number that changes whenever a member is added or removed.
+	 */
+	int getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Returns the NPC index at the given position, from 0 inclusive to {@link #size()} exclusive.
+	 */
+	int get(int position)
+	{
+		return dense[position];
+	}
+
+	/**
+	 * Returns an immutable copy of the set as it is now.
+	 */
+	NpcIndexSnapshot snapshot()
+	{
+		// Only the words up to the highest member are needed
+		int words = 0;
+		for (int i = 0; i < size; i++)
+		{
+			words = Math.max(words, (dense[i] >> 6) + 1);
+		}
+		return new NpcIndexSnapshot(Arrays.copyOf(members, words), Arrays.copyOf(dense, size), version);
+	}
+}
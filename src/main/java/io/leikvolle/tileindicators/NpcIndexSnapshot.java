@@ -0,0 +1,48 @@
+package io.leikvolle.tileindicators;
+
+/**
+ * An immutable copy of an {@link NpcIndexSet}, which the plugin publishes for the overlay to read. The overlay
+ * never sees the set half way through a change and never has to wait for one, since a snapshot is only ever
+ * replaced, never changed.
+ */
+final class NpcIndexSnapshot
+{
+	static final NpcIndexSnapshot EMPTY = new NpcIndexSnapshot(new long[0], new int[0], 0);
+
+	private final long[] members;
+	private final int[] dense;
+	private final int version;
+
+	NpcIndexSnapshot(long[] members, int[] dense, int version)
+	{
+		this.members = members;
+		this.dense = dense;
+		this.version = version;
+	}
+
+	boolean contains(int index)
+	{
+		return index >= 0 && (index >> 6) < members.length && (members[index >> 6] & 1L << index) != 0;
+	}
+
+	int size()
+	{
+		return dense.length;
+	}
+
+	/**
+	 * Returns the version of the set this was copied from, see {@link NpcIndexSet#getVersion()}.
+	 */
+	int getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Returns the NPC index at the given position, from 0 inclusive to {@link #size()} exclusive.
+	 */
+	int get(int position)
+	{
+		return dense[position];
+	}
+}
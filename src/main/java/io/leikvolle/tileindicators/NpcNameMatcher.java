@@ -0,0 +1,144 @@
+package io.leikvolle.tileindicators;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.runelite.client.util.WildcardMatcher;
+
+/**
+ * The configured NPC name list compiled for fast lookups. Plain names go in a case-insensitive hash set and
+ * every wildcard entry is folded into one regular expression, matching the way {@link WildcardMatcher} treats
+ * each entry. Results are memoized per name by default, since the same few NPC names are looked up over and
+ * over. The memo is not thread safe, so a matcher that is read from more than one thread is built without it.
+ */
+class NpcNameMatcher
+{
+	private static final int CACHE_SIZE = 512;
+
+	private static final int LISTED = 1;
+	private static final int WILDCARD = 2;
+
+	private static final Pattern WILDCARD_PATTERN = Pattern.compile("(?i)[^*]+|(\\*)");
+
+	private final Set<String> listed = new HashSet<>();
+	private final List<String> patterns;
+	private final Pattern wildcards;
+
+	// Null when lookups are not memoized
+	private final Map<String, Byte> results;
+
+	NpcNameMatcher(List<String> patterns)
+	{
+		this(patterns, true);
+	}
+
+	NpcNameMatcher(List<String> patterns, boolean memoize)
+	{
+		this.patterns = patterns;
+		results = !memoize ? null : new LinkedHashMap<String, Byte>(64, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Byte> eldest)
+			{
+				return size() > CACHE_SIZE;
+			}
+		};
+
+		final StringBuilder regex = new StringBuilder("(?i)(?:");
+		boolean anyWildcard = false;
+		for (String pattern : patterns)
+		{
+			listed.add(pattern.toLowerCase(Locale.ROOT));
+			if (pattern.indexOf('*') < 0)
+			{
+				continue;
+			}
+
+			if (anyWildcard)
+			{
+				regex.append('|');
+			}
+			anyWildcard = true;
+
+			final Matcher matcher = WILDCARD_PATTERN.matcher(pattern);
+			while (matcher.find())
+			{
+				regex.append(matcher.group(1) != null ? ".*" : Pattern.quote(matcher.group(0)));
+			}
+		}
+		regex.append(')');
+
+		wildcards = anyWildcard ? Pattern.compile(regex.toString()) : null;
+	}
+
+	/**
+	 * Returns whether any entry matches the name, like calling {@link WildcardMatcher#matches(String, String)}
+	 * with every entry.
+	 */
+	boolean matches(String name)
+	{
+		return lookup(name) != 0;
+	}
+
+	/**
+	 * Returns whether the name itself is an entry, ignoring case.
+	 */
+	boolean isListed(String name)
+	{
+		return (lookup(name) & LISTED) != 0;
+	}
+
+	/**
+	 * Returns whether a wildcard entry other than the name itself matches the name.
+	 */
+	boolean matchesWildcard(String name)
+	{
+		return (lookup(name) & WILDCARD) != 0;
+	}
+
+	private int lookup(String name)
+	{
+		final Byte cached = results == null ? null : results.get(name);
+		if (cached != null)
+		{
+			return cached;
+		}
+
+		int result = 0;
+		if (listed.contains(name.toLowerCase(Locale.ROOT)))
+		{
+			result |= LISTED;
+		}
+		if (wildcards != null && wildcards.matcher(name).matches())
+		{
+			// A name containing '*' could only have matched the entry equal to itself, which does not count
+			if (name.indexOf('*') < 0 || matchesOtherWildcard(name))
+			{
+				result |= WILDCARD;
+			}
+		}
+
+		if (results != null)
+		{
+			results.put(name, (byte) result);
+		}
+		return result;
+	}
+
+	private boolean matchesOtherWildcard(String name)
+	{
+		for (String pattern : patterns)
+		{
+			if (pattern.indexOf('*') >= 0 && !pattern.equalsIgnoreCase(name) && WildcardMatcher.matches(pattern, name))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
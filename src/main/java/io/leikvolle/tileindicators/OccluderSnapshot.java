@@ -0,0 +1,241 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+import net.runelite.api.Actor;
+import net.runelite.api.Client;
+import net.runelite.api.Model;
+import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.Perspective;
+import net.runelite.api.Player;
+import net.runelite.api.PlayerComposition;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Everything needed to build a frame's coverage, read from the client on the client thread so the coverage can
+ * be built anywhere: the camera, and the pose and a private copy of the model of every occluding actor. The
+ * client rebuilds animated models into shared buffers, so their vertices have to be copied rather than kept; their
+ * faces are not rebuilt, so only the opaque ones are kept, from an {@link OpaqueFaceCache}.
+ * <p>
+ * Capturing happens in two steps. {@link #begin(Client)} and {@link #add(Client, Actor, SilhouetteDetail)} only
+ * read poses, which is cheap, and fold them into {@link #getInputHash()}. Models are only copied by
+ * {@link #copyModels(OpaqueFaceCache)} once the hash shows the coverage actually has to be rebuilt.
+ */
+final class OccluderSnapshot
+{
+	int cameraX;
+	int cameraY;
+	int cameraZ;
+	int cameraPitch;
+	int cameraYaw;
+	int scale;
+	int viewportX;
+	int viewportY;
+	int viewportWidth;
+	int viewportHeight;
+
+	Occluder[] occluders = new Occluder[0];
+	int count;
+
+	private long inputHash;
+
+	static final class Occluder
+	{
+		// Only used as the silhouette cache's key, never read from off the client thread
+		Actor actor;
+
+		int localX;
+		int localY;
+		int localZ;
+		int orientation;
+		int size;
+		int appearance;
+		int animation;
+		int animationFrame;
+		int poseAnimation;
+		int poseAnimationFrame;
+		SilhouetteDetail detail;
+
+		boolean hasModel;
+		int vertexCount;
+		float[] verticesX = new float[0];
+		float[] verticesY = new float[0];
+		float[] verticesZ = new float[0];
+		// Shared with the cache, never changed once built
+		OpaqueFaceCache.OpaqueFaces faces;
+
+		// The model's bounding cylinder, zero when the client has not calculated it
+		int xyzMag;
+		int modelHeight;
+		int bottomY;
+
+		private void copyModel(Model model, OpaqueFaceCache opaqueFaces)
+		{
+			hasModel = model != null;
+			if (model == null)
+			{
+				faces = null;
+				return;
+			}
+
+			vertexCount = model.getVerticesCount();
+			if (verticesX.length < vertexCount)
+			{
+				verticesX = new float[vertexCount];
+				verticesY = new float[vertexCount];
+				verticesZ = new float[vertexCount];
+			}
+			System.arraycopy(model.getVerticesX(), 0, verticesX, 0, vertexCount);
+			System.arraycopy(model.getVerticesY(), 0, verticesY, 0, vertexCount);
+			System.arraycopy(model.getVerticesZ(), 0, verticesZ, 0, vertexCount);
+
+			faces = opaqueFaces.get(model, pose());
+
+			model.calculateBoundsCylinder();
+			xyzMag = model.getXYZMag();
+			modelHeight = model.getModelHeight();
+			bottomY = model.getBottomY();
+		}
+
+		/**
+		 * Returns a stamp of the pose the model is in, which its transparency can only change along with.
+		 */
+		private long pose()
+		{
+			long pose = mix(0, appearance);
+			pose = mix(pose, animation);
+			pose = mix(pose, animationFrame);
+			pose = mix(pose, poseAnimation);
+			return mix(pose, poseAnimationFrame);
+		}
+	}
+
+	/**
+	 * Captures the camera and forgets the actors of the previous capture.
+	 */
+	void begin(Client client)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			occluders[i].actor = null;
+		}
+		count = 0;
+
+		cameraX = client.getCameraX();
+		cameraY = client.getCameraY();
+		cameraZ = client.getCameraZ();
+		cameraPitch = client.getCameraPitch();
+		cameraYaw = client.getCameraYaw();
+		scale = client.getScale();
+		viewportX = client.getViewportXOffset();
+		viewportY = client.getViewportYOffset();
+		viewportWidth = client.getViewportWidth();
+		viewportHeight = client.getViewportHeight();
+
+		long hash = 0;
+		hash = mix(hash, cameraX);
+		hash = mix(hash, cameraY);
+		hash = mix(hash, cameraZ);
+		hash = mix(hash, cameraPitch);
+		hash = mix(hash, cameraYaw);
+		hash = mix(hash, scale);
+		hash = mix(hash, viewportX);
+		hash = mix(hash, viewportY);
+		hash = mix(hash, viewportWidth);
+		inputHash = mix(hash, viewportHeight);
+	}
+
+	/**
+	 * Captures the pose of an occluding actor.
+	 */
+	void add(Client client, Actor actor, SilhouetteDetail detail)
+	{
+		if (count == occluders.length)
+		{
+			occluders = Arrays.copyOf(occluders, Math.max(16, count * 2));
+			for (int i = count; i < occluders.length; i++)
+			{
+				occluders[i] = new Occluder();
+			}
+		}
+		final Occluder occluder = occluders[count++];
+
+		int size = 1;
+		int appearance = 0;
+		if (actor instanceof NPC)
+		{
+			final NPCComposition composition = ((NPC) actor).getTransformedComposition();
+			if (composition != null)
+			{
+				size = composition.getSize();
+				appearance = composition.getId();
+			}
+		}
+		else if (actor instanceof Player)
+		{
+			final PlayerComposition composition = ((Player) actor).getPlayerComposition();
+			if (composition != null)
+			{
+				appearance = Arrays.hashCode(composition.getEquipmentIds());
+			}
+		}
+
+		final LocalPoint lp = actor.getLocalLocation();
+		occluder.actor = actor;
+		occluder.localX = lp.getX();
+		occluder.localY = lp.getY();
+		occluder.localZ = ImprovedTileIndicatorsOverlay.getTileHeight(client,
+			lp.getX() + Perspective.LOCAL_TILE_SIZE * (size - 1) / 2,
+			lp.getY() + Perspective.LOCAL_TILE_SIZE * (size - 1) / 2,
+			client.getPlane());
+		occluder.orientation = actor.getCurrentOrientation();
+		occluder.size = size;
+		occluder.appearance = appearance;
+		occluder.animation = actor.getAnimation();
+		occluder.animationFrame = actor.getAnimationFrame();
+		occluder.poseAnimation = actor.getPoseAnimation();
+		occluder.poseAnimationFrame = actor.getPoseAnimationFrame();
+		occluder.detail = detail;
+		occluder.hasModel = false;
+
+		long hash = inputHash;
+		hash = mix(hash, System.identityHashCode(actor));
+		hash = mix(hash, occluder.localX);
+		hash = mix(hash, occluder.localY);
+		hash = mix(hash, occluder.localZ);
+		hash = mix(hash, occluder.orientation);
+		hash = mix(hash, size);
+		hash = mix(hash, appearance);
+		hash = mix(hash, occluder.animation);
+		hash = mix(hash, occluder.animationFrame);
+		hash = mix(hash, occluder.poseAnimation);
+		hash = mix(hash, occluder.poseAnimationFrame);
+		inputHash = mix(hash, detail.ordinal());
+	}
+
+	/**
+	 * Copies the model of every actor added since {@link #begin(Client)}, looking up which of its faces are opaque
+	 * in the given cache rather than copying them.
+	 */
+	void copyModels(OpaqueFaceCache opaqueFaces)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			final Occluder occluder = occluders[i];
+			occluder.copyModel(occluder.actor.getModel(), opaqueFaces);
+		}
+	}
+
+	/**
+	 * Returns a hash of the camera and of every pose captured, which changes whenever the coverage would.
+	 */
+	long getInputHash()
+	{
+		return inputHash;
+	}
+
+	private static long mix(long hash, int value)
+	{
+		return (hash + value) * 0x9E3779B97F4A7C15L ^ hash >>> 29;
+	}
+}
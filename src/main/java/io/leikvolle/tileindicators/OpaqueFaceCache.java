@@ -0,0 +1,246 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.runelite.api.Model;
+
+/**
+ * Remembers which faces of each model are opaque enough to occlude, packed into one array of vertex triples, so
+ * that building a silhouette only visits faces that can be drawn and capturing a model no longer copies its face
+ * arrays. Each entry also pairs up the edges its faces share, which the outline is built from. The client keeps a
+ * model's face arrays for as long as the model is loaded, and animating a model only rebuilds its vertices, so
+ * entries are keyed by the identity of the model's first face array.
+ * <p>
+ * Transparency can be animated, but only along with the actor's pose, so an entry is stamped with the pose and
+ * the transparency array it was last checked against. A lookup with the same stamp is trusted as is; any other
+ * rescans the transparencies, and only repacks the faces if they changed. Arrays do not override equals, so the
+ * map compares its keys by identity.
+ * <p>
+ * The cache is bounded by its number of entries and of packed faces, and evicts the least recently used entries
+ * until it is back under both. Only used on the client thread; the packed faces never change once built, so they
+ * can be read anywhere.
+ */
+final class OpaqueFaceCache
+{
+	static final int MAX_ENTRIES = 1024;
+	static final int MAX_FACES = 1 << 20;
+
+	private final Map<int[], OpaqueFaces> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private int faces;
+
+	@Getter(AccessLevel.PACKAGE)
+	private long hits;
+	@Getter(AccessLevel.PACKAGE)
+	private long misses;
+	@Getter(AccessLevel.PACKAGE)
+	private long rescans;
+
+	static final class OpaqueFaces
+	{
+		/**
+		 * The vertex indices of every opaque face, three values each.
+		 */
+		final int[] faces;
+		final int count;
+		/**
+		 * For each edge of each packed face, in the order ab, bc, ca, the packed face that shares the edge running
+		 * the other way, or -1 if there is none.
+		 */
+		final int[] neighbours;
+		// The model's face count, which opaque faces are counted against for the profiler
+		final int faceCount;
+
+		// What the entry was built from, so a model reusing the same face arrays can be told apart
+		private final int[] faceIndices2;
+		private final int[] faceIndices3;
+		private final byte[] transparencies;
+
+		// The pose and transparency array last checked against, only read on the client thread
+		private long pose;
+		private byte[] checkedTransparencies;
+
+		private OpaqueFaces(int[] faces, int count, int faceCount, int[] faceIndices2, int[] faceIndices3, byte[] transparencies)
+		{
+			this.faces = faces;
+			this.count = count;
+			this.neighbours = neighbours(faces, count);
+			this.faceCount = faceCount;
+			this.faceIndices2 = faceIndices2;
+			this.faceIndices3 = faceIndices3;
+			this.transparencies = transparencies;
+		}
+
+		private boolean matches(int faceCount, int[] faceIndices2, int[] faceIndices3, byte[] transparencies)
+		{
+			if (this.faceCount != faceCount || this.faceIndices2 != faceIndices2 || this.faceIndices3 != faceIndices3)
+			{
+				return false;
+			}
+			if (transparencies == null || this.transparencies == null)
+			{
+				return transparencies == this.transparencies;
+			}
+			for (int i = 0; i < faceCount; i++)
+			{
+				if (transparencies[i] != this.transparencies[i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the opaque faces of the model in the given pose, packing them the first time the model is seen and
+	 * checking its transparencies again only when the pose or the transparency array changed.
+	 */
+	OpaqueFaces get(Model model, long pose)
+	{
+		final int faceCount = model.getFaceCount();
+		final int[] faceIndices1 = model.getFaceIndices1();
+		final int[] faceIndices2 = model.getFaceIndices2();
+		final int[] faceIndices3 = model.getFaceIndices3();
+		final byte[] transparencies = model.getFaceTransparencies();
+
+		final OpaqueFaces cached = entries.get(faceIndices1);
+		if (cached != null && cached.pose == pose && cached.checkedTransparencies == transparencies
+			&& cached.faceCount == faceCount && cached.faceIndices2 == faceIndices2 && cached.faceIndices3 == faceIndices3)
+		{
+			hits++;
+			return cached;
+		}
+		if (cached != null)
+		{
+			rescans++;
+			if (cached.matches(faceCount, faceIndices2, faceIndices3, transparencies))
+			{
+				cached.pose = pose;
+				cached.checkedTransparencies = transparencies;
+				hits++;
+				return cached;
+			}
+			faces -= cached.count;
+		}
+		misses++;
+
+		final OpaqueFaces built = pack(faceCount, faceIndices1, faceIndices2, faceIndices3, transparencies);
+		built.pose = pose;
+		built.checkedTransparencies = transparencies;
+		entries.put(faceIndices1, built);
+		faces += built.count;
+
+		// The entry just added is the most recently used, so it is only evicted if it alone is over the limit
+		final Iterator<OpaqueFaces> eldest = entries.values().iterator();
+		while (entries.size() > MAX_ENTRIES || faces > MAX_FACES && entries.size() > 1)
+		{
+			faces -= eldest.next().count;
+			eldest.remove();
+		}
+		return built;
+	}
+
+	int size()
+	{
+		return entries.size();
+	}
+
+	void clear()
+	{
+		entries.clear();
+		faces = 0;
+	}
+
+	private static OpaqueFaces pack(int faceCount, int[] faceIndices1, int[] faceIndices2, int[] faceIndices3, byte[] transparencies)
+	{
+		int count = 0;
+		for (int i = 0; i < faceCount; i++)
+		{
+			if (opaque(transparencies, i))
+			{
+				count++;
+			}
+		}
+
+		final int[] faces = new int[count * 3];
+		int offset = 0;
+		for (int i = 0; i < faceCount; i++)
+		{
+			if (opaque(transparencies, i))
+			{
+				faces[offset++] = faceIndices1[i];
+				faces[offset++] = faceIndices2[i];
+				faces[offset++] = faceIndices3[i];
+			}
+		}
+
+		// Copied since the client may animate them in place
+		final byte[] copy = transparencies == null ? null : new byte[faceCount];
+		if (copy != null)
+		{
+			System.arraycopy(transparencies, 0, copy, 0, faceCount);
+		}
+		return new OpaqueFaces(faces, count, faceCount, faceIndices2, faceIndices3, copy);
+	}
+
+	/**
+	 * Pairs up the edges of the packed faces, each with one edge running the other way between the same two
+	 * vertices.
+	 */
+	private static int[] neighbours(int[] faces, int count)
+	{
+		final int edges = count * 3;
+		final int[] neighbours = new int[edges];
+		Arrays.fill(neighbours, -1);
+
+		// Open addressing table of the edges still waiting for a neighbour, holding edge + 1, or -1 once paired
+		final int capacity = Integer.highestOneBit(Math.max(8, edges)) << 2;
+		final int mask = capacity - 1;
+		final long[] keys = new long[capacity];
+		final int[] waiting = new int[capacity];
+		for (int edge = 0; edge < edges; edge++)
+		{
+			final int from = faces[edge];
+			final int to = faces[edge % 3 == 2 ? edge - 2 : edge + 1];
+
+			final long reverse = (long) to << 32 | from & 0xFFFFFFFFL;
+			int slot = slot(reverse, mask);
+			while (waiting[slot] != 0 && (keys[slot] != reverse || waiting[slot] < 0))
+			{
+				slot = (slot + 1) & mask;
+			}
+			if (waiting[slot] > 0)
+			{
+				final int other = waiting[slot] - 1;
+				neighbours[edge] = other / 3;
+				neighbours[other] = edge / 3;
+				waiting[slot] = -1;
+				continue;
+			}
+
+			final long key = (long) from << 32 | to & 0xFFFFFFFFL;
+			slot = slot(key, mask);
+			while (waiting[slot] != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			waiting[slot] = edge + 1;
+		}
+		return neighbours;
+	}
+
+	private static int slot(long key, int mask)
+	{
+		return (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+	}
+
+	private static boolean opaque(byte[] transparencies, int face)
+	{
+		return transparencies == null || (transparencies[face] & 255) < 254;
+	}
+}
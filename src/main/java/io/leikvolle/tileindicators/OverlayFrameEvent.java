@@ -0,0 +1,76 @@
+package io.leikvolle.tileindicators;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for one profiled frame of {@link ImprovedTileIndicatorsOverlay}.
+ */
+@Name("io.leikvolle.tileindicators.OverlayFrame")
+@Label("Tile Indicators Overlay Frame")
+@Description("Time spent in each phase of the improved tile indicators overlay for one frame")
+@Category({"RuneLite", "Improved Tile Indicators"})
+@StackTrace(false)
+class OverlayFrameEvent extends Event
+{
+	@Label("Destination")
+	@Timespan(Timespan.NANOSECONDS)
+	long destination;
+
+	@Label("True Tiles")
+	@Timespan(Timespan.NANOSECONDS)
+	long trueTiles;
+
+	@Label("NPC Selection")
+	@Timespan(Timespan.NANOSECONDS)
+	long npcSelection;
+
+	@Label("Capture")
+	@Timespan(Timespan.NANOSECONDS)
+	long capture;
+
+	@Label("Projection")
+	@Timespan(Timespan.NANOSECONDS)
+	long projection;
+
+	@Label("Rasterization")
+	@Timespan(Timespan.NANOSECONDS)
+	long rasterization;
+
+	@Label("Composite")
+	@Timespan(Timespan.NANOSECONDS)
+	long composite;
+
+	@Label("Total")
+	@Timespan(Timespan.NANOSECONDS)
+	long total;
+
+	@Label("Actors Culled")
+	long actorsCulled;
+
+	@Label("Vertices Projected")
+	long verticesProjected;
+
+	@Label("Triangles Culled")
+	long trianglesCulled;
+
+	@Label("Triangles Filled")
+	long trianglesFilled;
+
+	@Label("Actors Skipped")
+	long actorsSkipped;
+
+	@Label("Actors Degraded")
+	long actorsDegraded;
+
+	@Label("Silhouette Cache Hits")
+	long silhouetteHits;
+
+	@Label("Synchronous Builds")
+	long synchronousBuilds;
+}
@@ -0,0 +1,51 @@
+package io.leikvolle.tileindicators;
+
+/**
+ * In place sorting of primitive arrays for the paint path. Unlike {@link java.util.Arrays#sort(long[], int, int)},
+ * these never allocate a merge buffer, whatever the input looks like.
+ */
+final class PrimitiveSort
+{
+	private PrimitiveSort()
+	{
+	}
+
+	/**
+	 * Heap sorts the first {@code count} elements in ascending order.
+	 */
+	static void sort(long[] values, int count)
+	{
+		for (int i = count / 2 - 1; i >= 0; i--)
+		{
+			siftDown(values, i, count);
+		}
+		for (int end = count - 1; end > 0; end--)
+		{
+			final long max = values[0];
+			values[0] = values[end];
+			values[end] = max;
+			siftDown(values, 0, end);
+		}
+	}
+
+	private static void siftDown(long[] values, int root, int count)
+	{
+		final long value = values[root];
+		int parent = root;
+		int child;
+		while ((child = 2 * parent + 1) < count)
+		{
+			if (child + 1 < count && values[child + 1] > values[child])
+			{
+				child++;
+			}
+			if (values[child] <= value)
+			{
+				break;
+			}
+			values[parent] = values[child];
+			parent = child;
+		}
+		values[parent] = value;
+	}
+}
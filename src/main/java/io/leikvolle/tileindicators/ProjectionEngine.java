@@ -0,0 +1,264 @@
+package io.leikvolle.tileindicators;
+
+import net.runelite.api.Client;
+import net.runelite.api.Perspective;
+
+/**
+ * Projects local coordinates to the canvas with a camera transform captured once per frame, instead of reading
+ * the camera back from the client for every model and point like {@link Perspective} does. Every projection of
+ * a frame, actor models and single points alike, is appended to the same flat screen space buffers and is
+ * referred to by its offset into them. Points that fail to project are stored as {@link Integer#MIN_VALUE}.
+ */
+final class ProjectionEngine
+{
+	// Closer than this to the camera a point does not project, same as the client
+	private static final int NEAR_PLANE = 50;
+	// Pixels the frustum is widened by on every side, so rounding never culls anything visible
+	private static final int FRUSTUM_MARGIN = 2;
+
+	private int cameraX;
+	private int cameraY;
+	private int cameraZ;
+	private int pitchSin;
+	private int pitchCos;
+	private int yawSin;
+	private int yawCos;
+	private int scale;
+	private int centreX;
+	private int centreY;
+	private int clipX1;
+	private int clipY1;
+	private int clipX2;
+	private int clipY2;
+
+	// Side planes of the view frustum, through the camera and the viewport's edges
+	private int halfWidth;
+	private int halfHeight;
+	private float horizontalNorm;
+	private float verticalNorm;
+
+	int[] x2d = new int[0];
+	int[] y2d = new int[0];
+	private int size;
+
+	/**
+	 * Captures the camera and viewport for the frame about to be drawn and empties the buffers.
+	 */
+	void begin(Client client)
+	{
+		begin(client.getCameraX(), client.getCameraY(), client.getCameraZ(), client.getCameraPitch(), client.getCameraYaw(), client.getScale(),
+			client.getViewportXOffset(), client.getViewportYOffset(), client.getViewportWidth(), client.getViewportHeight());
+	}
+
+	/**
+	 * Takes the camera and viewport from a snapshot captured on the client thread and empties the buffers.
+	 */
+	void begin(OccluderSnapshot snapshot)
+	{
+		begin(snapshot.cameraX, snapshot.cameraY, snapshot.cameraZ, snapshot.cameraPitch, snapshot.cameraYaw, snapshot.scale,
+			snapshot.viewportX, snapshot.viewportY, snapshot.viewportWidth, snapshot.viewportHeight);
+	}
+
+	private void begin(int cameraX, int cameraY, int cameraZ, int cameraPitch, int cameraYaw, int scale,
+		int viewportX, int viewportY, int viewportWidth, int viewportHeight)
+	{
+		this.cameraX = cameraX;
+		this.cameraY = cameraY;
+		this.cameraZ = cameraZ;
+		pitchSin = Perspective.SINE[cameraPitch];
+		pitchCos = Perspective.COSINE[cameraPitch];
+		yawSin = Perspective.SINE[cameraYaw];
+		yawCos = Perspective.COSINE[cameraYaw];
+		this.scale = scale;
+		centreX = viewportX + viewportWidth / 2;
+		centreY = viewportY + viewportHeight / 2;
+		clipX1 = viewportX;
+		clipY1 = viewportY;
+		clipX2 = clipX1 + viewportWidth;
+		clipY2 = clipY1 + viewportHeight;
+		halfWidth = viewportWidth / 2 + FRUSTUM_MARGIN;
+		halfHeight = viewportHeight / 2 + FRUSTUM_MARGIN;
+		horizontalNorm = (float) (1 / Math.hypot(scale, halfWidth));
+		verticalNorm = (float) (1 / Math.hypot(scale, halfHeight));
+		size = 0;
+	}
+
+	/**
+	 * Empties the buffers, keeping the camera.
+	 */
+	void reset()
+	{
+		size = 0;
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Projects a model standing at the given local coordinates and turned by {@code orientation}, the same way as
+	 * {@link Perspective#modelToCanvas}. {@code z3d} holds the vertical axis. Returns the offset of the model's
+	 * first vertex in the buffers.
+	 */
+	int projectModel(int count, int localX, int localY, int localZ, int orientation, float[] x3d, float[] y3d, float[] z3d)
+	{
+		final int offset = reserve(count);
+		final int[] x2d = this.x2d;
+		final int[] y2d = this.y2d;
+		final int rotateSin = Perspective.SINE[orientation];
+		final int rotateCos = Perspective.COSINE[orientation];
+		final int dx = localX - cameraX;
+		final int dy = localY - cameraY;
+		final int dz = localZ - cameraZ;
+
+		for (int i = 0; i < count; i++)
+		{
+			int x = (int) x3d[i];
+			int y = (int) y3d[i];
+			final int z = (int) z3d[i] + dz;
+			if (orientation != 0)
+			{
+				final int x0 = x;
+				x = x0 * rotateCos + y * rotateSin >> 16;
+				y = y * rotateCos - x0 * rotateSin >> 16;
+			}
+			x += dx;
+			y += dy;
+
+			final int x1 = x * yawCos + y * yawSin >> 16;
+			final int y1 = y * yawCos - x * yawSin >> 16;
+			final int depth = y1 * pitchCos + z * pitchSin >> 16;
+			if (depth < NEAR_PLANE)
+			{
+				x2d[offset + i] = Integer.MIN_VALUE;
+				y2d[offset + i] = Integer.MIN_VALUE;
+			}
+			else
+			{
+				x2d[offset + i] = centreX + x1 * scale / depth;
+				y2d[offset + i] = centreY + (z * pitchCos - y1 * pitchSin >> 16) * scale / depth;
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Projects one point, the same way as {@link Perspective#localToCanvas(Client, int, int, int)} including its
+	 * rejection of points outside the scene. Returns the point's offset in the buffers.
+	 */
+	int projectPoint(int localX, int localY, int localZ)
+	{
+		final int offset = reserve(1);
+		x2d[offset] = Integer.MIN_VALUE;
+		y2d[offset] = Integer.MIN_VALUE;
+		if (localX < 128 || localY < 128 || localX > 13056 || localY > 13056)
+		{
+			return offset;
+		}
+
+		final int x = localX - cameraX;
+		final int y = localY - cameraY;
+		final int z = localZ - cameraZ;
+		final int x1 = x * yawCos + y * yawSin >> 16;
+		final int y1 = y * yawCos - x * yawSin >> 16;
+		final int depth = y1 * pitchCos + z * pitchSin >> 16;
+		if (depth >= NEAR_PLANE)
+		{
+			x2d[offset] = centreX + x1 * scale / depth;
+			y2d[offset] = centreY + (z * pitchCos - y1 * pitchSin >> 16) * scale / depth;
+		}
+		return offset;
+	}
+
+	/**
+	 * Returns false if a sphere around the given local coordinates is entirely outside the view frustum, so
+	 * nothing inside it can show up on the canvas. Conservative: it may return true for spheres that only
+	 * touch the frustum's corners without being visible.
+	 */
+	boolean sphereInView(int localX, int localY, int localZ, int radius)
+	{
+		final int x = localX - cameraX;
+		final int y = localY - cameraY;
+		final int z = localZ - cameraZ;
+		final int x1 = x * yawCos + y * yawSin >> 16;
+		final int y1 = y * yawCos - x * yawSin >> 16;
+		final int y2 = z * pitchCos - y1 * pitchSin >> 16;
+		final int depth = y1 * pitchCos + z * pitchSin >> 16;
+
+		if (depth + radius < NEAR_PLANE)
+		{
+			return false;
+		}
+		// Distance from the centre to the nearer of each pair of side planes, positive outside
+		if (((float) Math.abs(x1) * scale - (float) depth * halfWidth) * horizontalNorm > radius)
+		{
+			return false;
+		}
+		return ((float) Math.abs(y2) * scale - (float) depth * halfHeight) * verticalNorm <= radius;
+	}
+
+	/**
+	 * Returns true if the triangle between the three projected points lies entirely beyond one edge of the
+	 * viewport. Points that failed to project count as beyond the top left corner.
+	 */
+	boolean triangleOutside(int a, int b, int c)
+	{
+		final int[] x2d = this.x2d;
+		final int[] y2d = this.y2d;
+		return x2d[a] < clipX1 && x2d[b] < clipX1 && x2d[c] < clipX1
+			|| y2d[a] < clipY1 && y2d[b] < clipY1 && y2d[c] < clipY1
+			|| x2d[a] >= clipX2 && x2d[b] >= clipX2 && x2d[c] >= clipX2
+			|| y2d[a] >= clipY2 && y2d[b] >= clipY2 && y2d[c] >= clipY2;
+	}
+
+	/**
+	 * Returns true if any of the {@code count} projected points starting at {@code offset} is inside the viewport.
+	 */
+	boolean anyVisible(int offset, int count)
+	{
+		for (int i = offset; i < offset + count; i++)
+		{
+			final int x = x2d[i];
+			final int y = y2d[i];
+			if (x >= clipX1 && x < clipX2 && y >= clipY1 && y < clipY2)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the distance of the point from the camera along the view direction.
+	 */
+	int depth(int localX, int localY, int localZ)
+	{
+		final int x = localX - cameraX;
+		final int y = localY - cameraY;
+		final int y1 = y * yawCos - x * yawSin >> 16;
+		return y1 * pitchCos + (localZ - cameraZ) * pitchSin >> 16;
+	}
+
+	int getScale()
+	{
+		return scale;
+	}
+
+	private int reserve(int count)
+	{
+		final int offset = size;
+		if (offset + count > x2d.length)
+		{
+			final int capacity = Math.max(offset + count, x2d.length * 2);
+			final int[] x = new int[capacity];
+			final int[] y = new int[capacity];
+			System.arraycopy(x2d, 0, x, 0, offset);
+			System.arraycopy(y2d, 0, y, 0, offset);
+			x2d = x;
+			y2d = y;
+		}
+		size = offset + count;
+		return offset;
+	}
+}
@@ -0,0 +1,42 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+import net.runelite.api.Actor;
+
+/**
+ * Primitive buffers reused by the overlay between frames, so the paint path does not allocate in steady state.
+ * Buffers only ever grow, settling at the size of the largest set of occluding actors seen.
+ */
+final class ScratchArena
+{
+	Actor[] actors = new Actor[0];
+	int[] actorDistances = new int[0];
+	int[] actorPriorities = new int[0];
+	int actorCount;
+
+	/**
+	 * Makes room for the given number of actors, keeping the ones already collected this frame.
+	 */
+	void ensureActorCapacity(int count)
+	{
+		if (actors.length < count)
+		{
+			final int capacity = Math.max(count, actors.length * 2);
+			actors = Arrays.copyOf(actors, capacity);
+			actorDistances = Arrays.copyOf(actorDistances, capacity);
+			actorPriorities = Arrays.copyOf(actorPriorities, capacity);
+		}
+	}
+
+	/**
+	 * Drops the actor references collected this frame so despawned actors are not kept alive by the arena.
+	 */
+	void releaseActors()
+	{
+		for (int i = 0; i < actorCount; i++)
+		{
+			actors[i] = null;
+		}
+		actorCount = 0;
+	}
+}
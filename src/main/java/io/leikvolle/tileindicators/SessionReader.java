@@ -0,0 +1,284 @@
+package io.leikvolle.tileindicators;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import net.runelite.api.Constants;
+import net.runelite.api.Perspective;
+
+/**
+ * Reads a session written by {@link SessionRecorder} straight out of a memory mapped file, handing each record
+ * to a {@link Handler}. Frames are read into one reused {@link Frame}.
+ */
+class SessionReader implements Closeable
+{
+	interface Handler
+	{
+		void scene(int baseX, int baseY, int[][][] tileHeights, byte[][][] tileSettings);
+
+		void model(int id, float[] x, float[] y, float[] z, int[] a, int[] b, int[] c, byte[] transparencies);
+
+		void npcSpawned(int index, int id, String name, int size);
+
+		void npcDespawned(int index);
+
+		void frame(Frame frame);
+	}
+
+	static class Actor
+	{
+		int index;
+		int x;
+		int y;
+		int orientation;
+		int animation;
+		int animationFrame;
+		int modelId;
+		// Only recorded for other players
+		String name;
+		boolean friend;
+		boolean clanMember;
+	}
+
+	static class Frame
+	{
+		int gameCycle;
+		int cameraX;
+		int cameraY;
+		int cameraZ;
+		int cameraPitch;
+		int cameraYaw;
+		int scale;
+		int viewportX;
+		int viewportY;
+		int viewportWidth;
+		int viewportHeight;
+		int plane;
+		int destinationX;
+		int destinationY;
+		boolean hasPlayer;
+		final Actor player = new Actor();
+		int playerAppearance;
+		int npcCount;
+		Actor[] npcs = new Actor[0];
+		int otherCount;
+		Actor[] others = new Actor[0];
+	}
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final Frame frame = new Frame();
+
+	private final String topNpcs;
+	private final String topNpcIds;
+
+	SessionReader(Path file) throws IOException
+	{
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+		if (buffer.getInt() != SessionRecorder.MAGIC)
+		{
+			throw new IOException("Not a recorded session: " + file);
+		}
+		final int version = buffer.getInt();
+		if (version != SessionRecorder.VERSION)
+		{
+			throw new IOException("Unsupported session version " + version);
+		}
+		topNpcs = readUTF();
+		topNpcIds = readUTF();
+	}
+
+	String getTopNpcs()
+	{
+		return topNpcs;
+	}
+
+	String getTopNpcIds()
+	{
+		return topNpcIds;
+	}
+
+	/**
+	 * Reads the next record and hands it to the handler. Returns false once the end of the session is reached.
+	 */
+	boolean next(Handler handler)
+	{
+		if (!buffer.hasRemaining())
+		{
+			return false;
+		}
+
+		final byte type = buffer.get();
+		switch (type)
+		{
+			case SessionRecorder.SCENE:
+				readScene(handler);
+				break;
+			case SessionRecorder.MODEL:
+				readModel(handler);
+				break;
+			case SessionRecorder.NPC_SPAWNED:
+				handler.npcSpawned(buffer.getInt(), buffer.getInt(), readUTF(), buffer.get());
+				break;
+			case SessionRecorder.NPC_DESPAWNED:
+				handler.npcDespawned(buffer.getInt());
+				break;
+			case SessionRecorder.FRAME:
+				readFrame();
+				handler.frame(frame);
+				break;
+			default:
+				throw new IllegalStateException("Unknown record type " + type + " at " + (buffer.position() - 1));
+		}
+		return true;
+	}
+
+	private void readScene(Handler handler)
+	{
+		final int baseX = buffer.getInt();
+		final int baseY = buffer.getInt();
+		final int[][][] heights = new int[Constants.MAX_Z][Perspective.SCENE_SIZE + 1][Perspective.SCENE_SIZE + 1];
+		final byte[][][] settings = new byte[Constants.MAX_Z][Perspective.SCENE_SIZE][Perspective.SCENE_SIZE];
+		for (int z = 0; z < Constants.MAX_Z; z++)
+		{
+			for (int x = 0; x <= Perspective.SCENE_SIZE; x++)
+			{
+				for (int y = 0; y <= Perspective.SCENE_SIZE; y++)
+				{
+					heights[z][x][y] = buffer.getInt();
+				}
+			}
+			for (int x = 0; x < Perspective.SCENE_SIZE; x++)
+			{
+				buffer.get(settings[z][x]);
+			}
+		}
+		handler.scene(baseX, baseY, heights, settings);
+	}
+
+	private void readModel(Handler handler)
+	{
+		final int id = buffer.getInt();
+		final int vertexCount = buffer.getInt();
+		final float[] x = new float[vertexCount];
+		final float[] y = new float[vertexCount];
+		final float[] z = new float[vertexCount];
+		for (int i = 0; i < vertexCount; i++)
+		{
+			x[i] = buffer.getFloat();
+			y[i] = buffer.getFloat();
+			z[i] = buffer.getFloat();
+		}
+		final int faceCount = buffer.getInt();
+		final int[] a = new int[faceCount];
+		final int[] b = new int[faceCount];
+		final int[] c = new int[faceCount];
+		for (int i = 0; i < faceCount; i++)
+		{
+			a[i] = buffer.getInt();
+			b[i] = buffer.getInt();
+			c[i] = buffer.getInt();
+		}
+		byte[] transparencies = null;
+		if (buffer.get() != 0)
+		{
+			transparencies = new byte[faceCount];
+			buffer.get(transparencies);
+		}
+		handler.model(id, x, y, z, a, b, c, transparencies);
+	}
+
+	private void readFrame()
+	{
+		frame.gameCycle = buffer.getInt();
+		frame.cameraX = buffer.getInt();
+		frame.cameraY = buffer.getInt();
+		frame.cameraZ = buffer.getInt();
+		frame.cameraPitch = buffer.getShort();
+		frame.cameraYaw = buffer.getShort();
+		frame.scale = buffer.getInt();
+		frame.viewportX = buffer.getShort();
+		frame.viewportY = buffer.getShort();
+		frame.viewportWidth = buffer.getShort();
+		frame.viewportHeight = buffer.getShort();
+		frame.plane = buffer.get();
+		frame.destinationX = buffer.getInt();
+		frame.destinationY = buffer.getInt();
+
+		frame.hasPlayer = buffer.get() != 0;
+		if (frame.hasPlayer)
+		{
+			readActor(frame.player);
+			frame.playerAppearance = buffer.getInt();
+		}
+
+		frame.npcCount = buffer.getShort() & 0xFFFF;
+		frame.npcs = ensureCapacity(frame.npcs, frame.npcCount);
+		for (int i = 0; i < frame.npcCount; i++)
+		{
+			frame.npcs[i].index = buffer.getInt();
+			readActor(frame.npcs[i]);
+		}
+
+		frame.otherCount = buffer.getShort() & 0xFFFF;
+		frame.others = ensureCapacity(frame.others, frame.otherCount);
+		for (int i = 0; i < frame.otherCount; i++)
+		{
+			final Actor other = frame.others[i];
+			other.index = buffer.getShort() & 0xFFFF;
+			final byte flags = buffer.get();
+			other.friend = (flags & SessionRecorder.FRIEND) != 0;
+			other.clanMember = (flags & SessionRecorder.CLAN_MEMBER) != 0;
+			other.name = readUTF();
+			readActor(other);
+		}
+	}
+
+	private static Actor[] ensureCapacity(Actor[] actors, int count)
+	{
+		if (actors.length >= count)
+		{
+			return actors;
+		}
+		final Actor[] grown = new Actor[count];
+		System.arraycopy(actors, 0, grown, 0, actors.length);
+		for (int i = actors.length; i < grown.length; i++)
+		{
+			grown[i] = new Actor();
+		}
+		return grown;
+	}
+
+	private void readActor(Actor actor)
+	{
+		actor.x = buffer.getInt();
+		actor.y = buffer.getInt();
+		actor.orientation = buffer.getShort();
+		actor.animation = buffer.getInt();
+		actor.animationFrame = buffer.getInt();
+		actor.modelId = buffer.getInt();
+	}
+
+	/**
+	 * Reads a string written by {@link java.io.DataOutputStream#writeUTF(String)}, which for the names and tag
+	 * lists recorded here is plain UTF-8.
+	 */
+	private String readUTF()
+	{
+		final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
@@ -0,0 +1,470 @@
+package io.leikvolle.tileindicators;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import net.runelite.api.Actor;
+import net.runelite.api.Client;
+import net.runelite.api.Model;
+import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.Perspective;
+import net.runelite.api.Player;
+import net.runelite.api.PlayerComposition;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Writes everything the overlay reads to a compact binary file, one frame at a time, so that a session can be
+ * replayed offline with {@link SessionReader}. Each distinct model is written once and referred to by id after
+ * that, and the scene's tile heights are only written again after the client loads a new scene. Geometry is only
+ * kept for the local player, the tracked NPCs and the other players the config picks, which are the only actors
+ * the overlay draws. Picked players are written with their name and friend and clan flags, so a replay picks
+ * them again the same way.
+ */
+class SessionRecorder implements Closeable
+{
+	static final int MAGIC = 0x49544953;
+	static final int VERSION = 2;
+
+	static final byte SCENE = 1;
+	static final byte MODEL = 2;
+	static final byte NPC_SPAWNED = 3;
+	static final byte NPC_DESPAWNED = 4;
+	static final byte FRAME = 5;
+
+	static final int NO_MODEL = -1;
+
+	static final int FRIEND = 1;
+	static final int CLAN_MEMBER = 2;
+
+	private final DataOutputStream out;
+	// Every model written so far by content hash, with colliding models chained
+	private final Map<Long, RecordedModel> models = new HashMap<>();
+	private int modelCount;
+	// The model each actor had in the last frame, so an unchanged model and pose skip hashing
+	private final Map<Actor, ModelStamp> stamps = new IdentityHashMap<>();
+	private int frame;
+	private int[] npcModels = new int[0];
+	private Player[] others = new Player[0];
+	private int[] otherModels = new int[0];
+	// Whether the next frame writes the scene first: set for the first frame and whenever a new scene loads
+	private boolean sceneChanged = true;
+
+	SessionRecorder(File file, String topNpcs, String topNpcIds) throws IOException
+	{
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(topNpcs);
+		out.writeUTF(topNpcIds);
+	}
+
+	void npcSpawned(NPC npc) throws IOException
+	{
+		final NPCComposition composition = npc.getTransformedComposition();
+		out.writeByte(NPC_SPAWNED);
+		out.writeInt(npc.getIndex());
+		out.writeInt(npc.getId());
+		out.writeUTF(npc.getName() == null ? "" : npc.getName());
+		out.writeByte(composition == null ? 1 : composition.getSize());
+	}
+
+	void npcDespawned(NPC npc) throws IOException
+	{
+		out.writeByte(NPC_DESPAWNED);
+		out.writeInt(npc.getIndex());
+	}
+
+	/**
+	 * Marks the scene as changed, for when the client starts loading a new one, so it is written again with the
+	 * next frame.
+	 */
+	void sceneChanged()
+	{
+		sceneChanged = true;
+	}
+
+	/**
+	 * Writes the camera, the destination and every drawn actor's position for the frame about to be drawn.
+	 */
+	void recordFrame(Client client, ConfigSnapshot config, NpcIndexSnapshot tracked) throws IOException
+	{
+		if (sceneChanged)
+		{
+			writeScene(client);
+			sceneChanged = false;
+		}
+
+		// Forget the actors the last frame did not record, such as despawned NPCs
+		frame++;
+		for (Iterator<ModelStamp> it = stamps.values().iterator(); it.hasNext(); )
+		{
+			if (it.next().lastFrame != frame - 1)
+			{
+				it.remove();
+			}
+		}
+
+		final Player player = client.getLocalPlayer();
+		final int playerModel = player == null ? NO_MODEL : modelId(player);
+		final NPC[] cachedNpcs = client.getCachedNPCs();
+		if (npcModels.length < tracked.size())
+		{
+			npcModels = new int[Math.max(tracked.size(), npcModels.length * 2)];
+		}
+		for (int i = 0; i < tracked.size(); i++)
+		{
+			final NPC npc = cachedNpcs[tracked.get(i)];
+			npcModels[i] = npc == null ? NO_MODEL : modelId(npc);
+		}
+		int otherCount = 0;
+		for (Player other : client.getCachedPlayers())
+		{
+			if (other != null && other != player && ImprovedTileIndicatorsOverlay.isPicked(other,
+				config.otherPlayersFriends, config.otherPlayersClan, config.otherPlayerMatcher))
+			{
+				if (otherCount == others.length)
+				{
+					others = Arrays.copyOf(others, Math.max(16, otherCount * 2));
+					otherModels = new int[others.length];
+				}
+				others[otherCount++] = other;
+			}
+		}
+		for (int i = 0; i < otherCount; i++)
+		{
+			otherModels[i] = modelId(others[i]);
+		}
+
+		out.writeByte(FRAME);
+		out.writeInt(client.getGameCycle());
+		out.writeInt(client.getCameraX());
+		out.writeInt(client.getCameraY());
+		out.writeInt(client.getCameraZ());
+		out.writeShort(client.getCameraPitch());
+		out.writeShort(client.getCameraYaw());
+		out.writeInt(client.getScale());
+		out.writeShort(client.getViewportXOffset());
+		out.writeShort(client.getViewportYOffset());
+		out.writeShort(client.getViewportWidth());
+		out.writeShort(client.getViewportHeight());
+		out.writeByte(client.getPlane());
+
+		final LocalPoint destination = client.getLocalDestinationLocation();
+		out.writeInt(destination == null ? Integer.MIN_VALUE : destination.getX());
+		out.writeInt(destination == null ? Integer.MIN_VALUE : destination.getY());
+
+		out.writeBoolean(player != null);
+		if (player != null)
+		{
+			final PlayerComposition composition = player.getPlayerComposition();
+			writeActor(player, playerModel);
+			out.writeInt(composition == null ? 0 : Arrays.hashCode(composition.getEquipmentIds()));
+		}
+
+		int npcCount = 0;
+		for (int i = 0; i < tracked.size(); i++)
+		{
+			if (cachedNpcs[tracked.get(i)] != null)
+			{
+				npcCount++;
+			}
+		}
+		out.writeShort(npcCount);
+		for (int i = 0; i < tracked.size(); i++)
+		{
+			final NPC npc = cachedNpcs[tracked.get(i)];
+			if (npc != null)
+			{
+				out.writeInt(npc.getIndex());
+				writeActor(npc, npcModels[i]);
+			}
+		}
+
+		out.writeShort(otherCount);
+		for (int i = 0; i < otherCount; i++)
+		{
+			final Player other = others[i];
+			// Only valid for this frame, so the buffer does not keep the player reachable
+			others[i] = null;
+			out.writeShort(other.getId());
+			out.writeByte((other.isFriend() ? FRIEND : 0) | (other.isClanMember() ? CLAN_MEMBER : 0));
+			out.writeUTF(other.getName() == null ? "" : other.getName());
+			writeActor(other, otherModels[i]);
+		}
+	}
+
+	private void writeActor(Actor actor, int modelId) throws IOException
+	{
+		final LocalPoint location = actor.getLocalLocation();
+		out.writeInt(location.getX());
+		out.writeInt(location.getY());
+		out.writeShort(actor.getCurrentOrientation());
+		out.writeInt(actor.getAnimation());
+		out.writeInt(actor.getAnimationFrame());
+		out.writeInt(modelId);
+	}
+
+	private void writeScene(Client client) throws IOException
+	{
+		final int[][][] sceneHeights = client.getTileHeights();
+		final byte[][][] tileSettings = client.getTileSettings();
+
+		out.writeByte(SCENE);
+		out.writeInt(client.getBaseX());
+		out.writeInt(client.getBaseY());
+		for (int z = 0; z < sceneHeights.length; z++)
+		{
+			for (int x = 0; x <= Perspective.SCENE_SIZE; x++)
+			{
+				for (int y = 0; y <= Perspective.SCENE_SIZE; y++)
+				{
+					out.writeInt(sceneHeights[z][x][y]);
+				}
+			}
+			for (int x = 0; x < Perspective.SCENE_SIZE; x++)
+			{
+				out.write(tileSettings[z][x], 0, Perspective.SCENE_SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Returns the id of the actor's current model. An actor whose model object, appearance and animation frames
+	 * are the same as in the last frame keeps its id without looking at the geometry.
+	 */
+	private int modelId(Actor actor) throws IOException
+	{
+		final Model model = actor.getModel();
+		final int appearance = appearance(actor);
+		ModelStamp stamp = stamps.get(actor);
+		if (stamp == null)
+		{
+			stamp = new ModelStamp();
+			stamps.put(actor, stamp);
+		}
+		else if (stamp.matches(model, appearance, actor))
+		{
+			stamp.lastFrame = frame;
+			return stamp.id;
+		}
+
+		stamp.model = model;
+		stamp.appearance = appearance;
+		stamp.animation = actor.getAnimation();
+		stamp.animationFrame = actor.getAnimationFrame();
+		stamp.poseAnimation = actor.getPoseAnimation();
+		stamp.poseAnimationFrame = actor.getPoseAnimationFrame();
+		stamp.id = modelId(model);
+		stamp.lastFrame = frame;
+		return stamp.id;
+	}
+
+	private static int appearance(Actor actor)
+	{
+		if (actor instanceof NPC)
+		{
+			final NPCComposition composition = ((NPC) actor).getTransformedComposition();
+			return composition == null ? 0 : composition.getId();
+		}
+		if (actor instanceof Player)
+		{
+			final PlayerComposition composition = ((Player) actor).getPlayerComposition();
+			return composition == null ? 0 : Arrays.hashCode(composition.getEquipmentIds());
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the id of the model's geometry, writing the geometry first if it has not been seen before. Animated
+	 * models are rebuilt by the client every frame, so geometry is matched by content rather than identity: by
+	 * hash first, then against the recorded copy, so two models with the same hash never share an id.
+	 */
+	private int modelId(Model model) throws IOException
+	{
+		if (model == null)
+		{
+			return NO_MODEL;
+		}
+
+		final int vertexCount = model.getVerticesCount();
+		final int faceCount = model.getFaceCount();
+		final float[] x = model.getVerticesX();
+		final float[] y = model.getVerticesY();
+		final float[] z = model.getVerticesZ();
+		final int[] a = model.getFaceIndices1();
+		final int[] b = model.getFaceIndices2();
+		final int[] c = model.getFaceIndices3();
+		final byte[] transparencies = model.getFaceTransparencies();
+
+		long hash = vertexCount * 31L + faceCount;
+		for (int i = 0; i < vertexCount; i++)
+		{
+			hash = hash * 0x9E3779B97F4A7C15L + Float.floatToIntBits(x[i]);
+			hash = hash * 0x9E3779B97F4A7C15L + Float.floatToIntBits(y[i]);
+			hash = hash * 0x9E3779B97F4A7C15L + Float.floatToIntBits(z[i]);
+		}
+		for (int i = 0; i < faceCount; i++)
+		{
+			hash = hash * 0x9E3779B97F4A7C15L + ((long) a[i] << 40 ^ (long) b[i] << 20 ^ c[i]);
+			if (transparencies != null)
+			{
+				hash = hash * 31 + transparencies[i];
+			}
+		}
+
+		final RecordedModel first = models.get(hash);
+		for (RecordedModel known = first; known != null; known = known.next)
+		{
+			if (known.matches(vertexCount, faceCount, x, y, z, a, b, c, transparencies))
+			{
+				return known.id;
+			}
+		}
+
+		final RecordedModel recorded = new RecordedModel(modelCount++, vertexCount, faceCount, x, y, z, a, b, c, transparencies);
+		recorded.next = first;
+		models.put(hash, recorded);
+
+		out.writeByte(MODEL);
+		out.writeInt(recorded.id);
+		out.writeInt(vertexCount);
+		for (int i = 0; i < vertexCount; i++)
+		{
+			out.writeFloat(x[i]);
+			out.writeFloat(y[i]);
+			out.writeFloat(z[i]);
+		}
+		out.writeInt(faceCount);
+		for (int i = 0; i < faceCount; i++)
+		{
+			out.writeInt(a[i]);
+			out.writeInt(b[i]);
+			out.writeInt(c[i]);
+		}
+		out.writeBoolean(transparencies != null);
+		if (transparencies != null)
+		{
+			out.write(transparencies, 0, faceCount);
+		}
+		return recorded.id;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		out.close();
+	}
+
+	/**
+	 * The model and pose an actor was recorded with, and the id that model got.
+	 */
+	private static final class ModelStamp
+	{
+		private Model model;
+		private int appearance;
+		private int animation;
+		private int animationFrame;
+		private int poseAnimation;
+		private int poseAnimationFrame;
+		private int id;
+		private int lastFrame;
+
+		private boolean matches(Model model, int appearance, Actor actor)
+		{
+			return this.model == model
+				&& this.appearance == appearance
+				&& animation == actor.getAnimation()
+				&& animationFrame == actor.getAnimationFrame()
+				&& poseAnimation == actor.getPoseAnimation()
+				&& poseAnimationFrame == actor.getPoseAnimationFrame();
+		}
+	}
+
+	/**
+	 * A copy of a written model's geometry, to tell it apart from other models with the same hash.
+	 */
+	private static final class RecordedModel
+	{
+		private final int id;
+		private final float[] x;
+		private final float[] y;
+		private final float[] z;
+		private final int[] a;
+		private final int[] b;
+		private final int[] c;
+		private final byte[] transparencies;
+		private RecordedModel next;
+
+		private RecordedModel(int id, int vertexCount, int faceCount, float[] x, float[] y, float[] z, int[] a, int[] b, int[] c, byte[] transparencies)
+		{
+			this.id = id;
+			this.x = Arrays.copyOf(x, vertexCount);
+			this.y = Arrays.copyOf(y, vertexCount);
+			this.z = Arrays.copyOf(z, vertexCount);
+			this.a = Arrays.copyOf(a, faceCount);
+			this.b = Arrays.copyOf(b, faceCount);
+			this.c = Arrays.copyOf(c, faceCount);
+			this.transparencies = transparencies == null ? null : Arrays.copyOf(transparencies, faceCount);
+		}
+
+		private boolean matches(int vertexCount, int faceCount, float[] x, float[] y, float[] z, int[] a, int[] b, int[] c, byte[] transparencies)
+		{
+			return this.x.length == vertexCount
+				&& this.a.length == faceCount
+				&& (this.transparencies == null) == (transparencies == null)
+				&& equal(this.x, x, vertexCount)
+				&& equal(this.y, y, vertexCount)
+				&& equal(this.z, z, vertexCount)
+				&& equal(this.a, a, faceCount)
+				&& equal(this.b, b, faceCount)
+				&& equal(this.c, c, faceCount)
+				&& (transparencies == null || equal(this.transparencies, transparencies, faceCount));
+		}
+
+		// The client's arrays can be longer than the model, so only the first count entries are compared
+		private static boolean equal(float[] recorded, float[] current, int count)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				if (Float.floatToIntBits(recorded[i]) != Float.floatToIntBits(current[i]))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean equal(int[] recorded, int[] current, int count)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				if (recorded[i] != current[i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean equal(byte[] recorded, byte[] current, int count)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				if (recorded[i] != current[i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
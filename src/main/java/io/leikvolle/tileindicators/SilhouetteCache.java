@@ -0,0 +1,291 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+import lombok.Getter;
+import net.runelite.api.Actor;
+
+/**
+ * Remembers the screen space triangles each occluding actor covered last frame, so an actor whose pose and
+ * position are unchanged under an unchanged camera can be redrawn into the coverage mask without re-projecting
+ * and re-culling its model. Entries are evicted least recently used first once the cache is full, but never
+ * during the frame that last used them, so more occluders than entries cannot take turns evicting each other
+ * and never hit; the occluders that do not fit get a spare silhouette that is not remembered. Actors missing
+ * from a whole frame are forgotten, so despawned actors are not kept reachable.
+ * <p>
+ * The entries live in fixed arrays, found by comparing actors by identity, and an evicted or forgotten entry's
+ * buffers are handed to the actor that replaces it. Spares are reused from one frame to the next, so nothing is
+ * allocated once every slot and spare has been filled, even when there are more occluders than slots.
+ */
+class SilhouetteCache
+{
+	private static final int CAPACITY = 64;
+
+	private final Actor[] actors = new Actor[CAPACITY];
+	private final Silhouette[] silhouettes = new Silhouette[CAPACITY];
+	private final long[] lastUsed = new long[CAPACITY];
+	private long clock;
+
+	// Counts the frames, so entries know which one last used them
+	private final int[] lastBuild = new int[CAPACITY];
+	private int build;
+
+	private Silhouette[] spares = new Silhouette[0];
+	private int spareCount;
+
+	private final int[] camera = new int[9];
+	private int cameraRevision;
+
+	@Getter
+	private long hits;
+
+	@Getter
+	private long misses;
+
+	/**
+	 * Starts a frame: forgets the actors last frame did not use, and compares the camera against last frame's,
+	 * invalidating every cached silhouette if it moved.
+	 */
+	void begin(OccluderSnapshot snapshot)
+	{
+		build++;
+		for (int slot = 0; slot < CAPACITY; slot++)
+		{
+			if (actors[slot] != null && lastBuild[slot] != build - 1)
+			{
+				actors[slot] = null;
+				lastUsed[slot] = 0;
+			}
+		}
+		spareCount = 0;
+
+		boolean changed = false;
+		changed |= updateCamera(0, snapshot.cameraX);
+		changed |= updateCamera(1, snapshot.cameraY);
+		changed |= updateCamera(2, snapshot.cameraZ);
+		changed |= updateCamera(3, snapshot.cameraPitch);
+		changed |= updateCamera(4, snapshot.cameraYaw);
+		changed |= updateCamera(5, snapshot.scale);
+		changed |= updateCamera(6, snapshot.viewportX);
+		changed |= updateCamera(7, snapshot.viewportY);
+		changed |= updateCamera(8, snapshot.viewportWidth << 16 | snapshot.viewportHeight);
+		if (changed)
+		{
+			cameraRevision++;
+		}
+	}
+
+	private boolean updateCamera(int index, int value)
+	{
+		if (camera[index] == value)
+		{
+			return false;
+		}
+		camera[index] = value;
+		return true;
+	}
+
+	/**
+	 * Returns the cached silhouette for the occluder's actor if it is still valid for the captured pose,
+	 * otherwise {@code null}. Every call counts as a hit or a miss.
+	 */
+	Silhouette get(OccluderSnapshot.Occluder occluder)
+	{
+		final int slot = find(occluder.actor);
+		if (slot >= 0)
+		{
+			lastUsed[slot] = ++clock;
+			lastBuild[slot] = build;
+			if (silhouettes[slot].matches(cameraRevision, occluder))
+			{
+				hits++;
+				return silhouettes[slot];
+			}
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Returns an entry for the actor ready to record a new silhouette into, reusing the old entry's buffer. If
+	 * every entry is already in use this frame, the spare silhouette returned is not remembered.
+	 */
+	Silhouette record(OccluderSnapshot.Occluder occluder)
+	{
+		int slot = find(occluder.actor);
+		if (slot < 0)
+		{
+			slot = leastRecentlyUsed();
+			if (slot < 0)
+			{
+				return reset(spare(), occluder);
+			}
+			actors[slot] = occluder.actor;
+			if (silhouettes[slot] == null)
+			{
+				silhouettes[slot] = new Silhouette();
+			}
+		}
+		lastUsed[slot] = ++clock;
+		lastBuild[slot] = build;
+		return reset(silhouettes[slot], occluder);
+	}
+
+	private Silhouette spare()
+	{
+		if (spareCount == spares.length)
+		{
+			spares = Arrays.copyOf(spares, Math.max(16, spareCount * 2));
+		}
+		if (spares[spareCount] == null)
+		{
+			spares[spareCount] = new Silhouette();
+		}
+		return spares[spareCount++];
+	}
+
+	private Silhouette reset(Silhouette silhouette, OccluderSnapshot.Occluder occluder)
+	{
+		silhouette.cameraRevision = cameraRevision;
+		silhouette.localX = occluder.localX;
+		silhouette.localY = occluder.localY;
+		silhouette.localZ = occluder.localZ;
+		silhouette.orientation = occluder.orientation;
+		silhouette.appearance = occluder.appearance;
+		silhouette.detail = occluder.detail;
+		silhouette.animation = occluder.animation;
+		silhouette.animationFrame = occluder.animationFrame;
+		silhouette.poseAnimation = occluder.poseAnimation;
+		silhouette.poseAnimationFrame = occluder.poseAnimationFrame;
+		silhouette.triangleCount = 0;
+		silhouette.edgeCount = 0;
+		return silhouette;
+	}
+
+	int size()
+	{
+		int size = 0;
+		for (Actor actor : actors)
+		{
+			if (actor != null)
+			{
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Forgets every actor, keeping the buffers for the actors that come next.
+	 */
+	void clear()
+	{
+		Arrays.fill(actors, null);
+		Arrays.fill(lastUsed, 0);
+	}
+
+	private int find(Actor actor)
+	{
+		for (int slot = 0; slot < CAPACITY; slot++)
+		{
+			if (actors[slot] == actor)
+			{
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the least recently used slot this frame has not used, or -1 if there is none.
+	 */
+	private int leastRecentlyUsed()
+	{
+		int oldest = -1;
+		for (int slot = 0; slot < CAPACITY; slot++)
+		{
+			if (actors[slot] == null)
+			{
+				return slot;
+			}
+			if (lastBuild[slot] != build && (oldest < 0 || lastUsed[slot] < lastUsed[oldest]))
+			{
+				oldest = slot;
+			}
+		}
+		return oldest;
+	}
+
+	static final class Silhouette
+	{
+		private int cameraRevision;
+		private int localX;
+		private int localY;
+		private int localZ;
+		private int orientation;
+		private int appearance;
+		private SilhouetteDetail detail;
+		private int animation;
+		private int animationFrame;
+		private int poseAnimation;
+		private int poseAnimationFrame;
+
+		/**
+		 * Screen space triangles, six coordinates each.
+		 */
+		int[] triangles = new int[0];
+		int triangleCount;
+
+		/**
+		 * Screen space outline edges, filled with the non-zero winding rule. Five values each: both end points
+		 * followed by the winding weight.
+		 */
+		int[] edges = new int[0];
+		int edgeCount;
+
+		private boolean matches(int cameraRevision, OccluderSnapshot.Occluder occluder)
+		{
+			return this.cameraRevision == cameraRevision
+				&& localX == occluder.localX
+				&& localY == occluder.localY
+				&& localZ == occluder.localZ
+				&& orientation == occluder.orientation
+				&& appearance == occluder.appearance
+				&& detail == occluder.detail
+				&& animation == occluder.animation
+				&& animationFrame == occluder.animationFrame
+				&& poseAnimation == occluder.poseAnimation
+				&& poseAnimationFrame == occluder.poseAnimationFrame;
+		}
+
+		void add(int x1, int y1, int x2, int y2, int x3, int y3)
+		{
+			final int offset = triangleCount * 6;
+			if (offset + 6 > triangles.length)
+			{
+				triangles = Arrays.copyOf(triangles, Math.max(64, triangles.length * 2));
+			}
+			triangles[offset] = x1;
+			triangles[offset + 1] = y1;
+			triangles[offset + 2] = x2;
+			triangles[offset + 3] = y2;
+			triangles[offset + 4] = x3;
+			triangles[offset + 5] = y3;
+			triangleCount++;
+		}
+
+		void addEdge(int x1, int y1, int x2, int y2, int weight)
+		{
+			final int offset = edgeCount * 5;
+			if (offset + 5 > edges.length)
+			{
+				edges = Arrays.copyOf(edges, Math.max(80, edges.length * 2));
+			}
+			edges[offset] = x1;
+			edges[offset + 1] = y1;
+			edges[offset + 2] = x2;
+			edges[offset + 3] = y2;
+			edges[offset + 4] = weight;
+			edgeCount++;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package io.leikvolle.tileindicators;
+
+/**
+ * How precisely an occluding actor is rasterized into the coverage mask, from most to least precise. The
+ * coarser shapes fill fewer and larger triangles, so they pay off on models covering many pixels; on small,
+ * dense models the extra edge work can make {@link #OUTLINE} cost more than {@link #EXACT}.
+ */
+enum SilhouetteDetail
+{
+	/**
+	 * Every front facing, non-transparent face.
+	 */
+	EXACT,
+	/**
+	 * The merged boundary of the faces {@link #EXACT} would draw.
+	 */
+	OUTLINE,
+	/**
+	 * The convex hull of the projected vertices.
+	 */
+	HULL
+}
@@ -0,0 +1,218 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+
+/**
+ * Builds the coarser silhouette shapes used for distant actors: a merged outline made of the boundary edges
+ * of the front facing faces, and a convex hull of the projected vertices. Scratch storage is reused between
+ * calls, so neither allocates once it has grown to the largest model seen.
+ */
+final class SilhouetteGeometry
+{
+	// Widest projection whose hull points are bucketed by column instead of sorted
+	private static final int MAX_COLUMNS = 4096;
+
+	// Whether each packed face of the outline being built faces the camera
+	private boolean[] front = new boolean[0];
+
+	private long[] points = new long[0];
+	private int[] columnTop = new int[0];
+	private int[] columnBottom = new int[0];
+	private int[] hullX = new int[0];
+	private int[] hullY = new int[0];
+
+	/**
+	 * Writes the outline of the front facing faces of the projected model to the silhouette: every edge of such a
+	 * face whose neighbour across that edge, from {@link OpaqueFaceCache.OpaqueFaces#neighbours}, does not face the
+	 * camera too. Faces with a vertex that failed to project are left out whole, so the outline stays closed.
+	 * Returns the number of front facing faces.
+	 */
+	int emitOutline(int[] x2d, int[] y2d, int offset, OpaqueFaceCache.OpaqueFaces opaqueFaces, SilhouetteCache.Silhouette silhouette)
+	{
+		final int count = opaqueFaces.count;
+		final int[] faces = opaqueFaces.faces;
+		if (front.length < count)
+		{
+			front = new boolean[count];
+		}
+
+		int frontCount = 0;
+		for (int face = 0, i = 0; face < count; face++, i += 3)
+		{
+			final int a = offset + faces[i];
+			final int b = offset + faces[i + 1];
+			final int c = offset + faces[i + 2];
+			final boolean facing = x2d[a] != Integer.MIN_VALUE && x2d[b] != Integer.MIN_VALUE && x2d[c] != Integer.MIN_VALUE
+				&& (x2d[b] - x2d[a]) * (y2d[c] - y2d[a]) - (y2d[b] - y2d[a]) * (x2d[c] - x2d[a]) < 0;
+			front[face] = facing;
+			if (facing)
+			{
+				frontCount++;
+			}
+		}
+
+		final int[] neighbours = opaqueFaces.neighbours;
+		for (int face = 0, i = 0; face < count; face++, i += 3)
+		{
+			if (!front[face])
+			{
+				continue;
+			}
+			final int a = offset + faces[i];
+			final int b = offset + faces[i + 1];
+			final int c = offset + faces[i + 2];
+			addOutlineEdge(x2d, y2d, a, b, neighbours[i], silhouette);
+			addOutlineEdge(x2d, y2d, b, c, neighbours[i + 1], silhouette);
+			addOutlineEdge(x2d, y2d, c, a, neighbours[i + 2], silhouette);
+		}
+		return frontCount;
+	}
+
+	private void addOutlineEdge(int[] x2d, int[] y2d, int from, int to, int neighbour, SilhouetteCache.Silhouette silhouette)
+	{
+		if (neighbour < 0 || !front[neighbour])
+		{
+			silhouette.addEdge(x2d[from], y2d[from], x2d[to], y2d[to], 1);
+		}
+	}
+
+	/**
+	 * Writes the convex hull of the {@code count} projected vertices starting at {@code offset} to the silhouette
+	 * as a triangle fan. Vertices that failed to project are ignored.
+	 */
+	void emitHull(int[] x2d, int[] y2d, int offset, int count, SilhouetteCache.Silhouette silhouette)
+	{
+		int minX = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int projected = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			if (x2d[i] != Integer.MIN_VALUE)
+			{
+				minX = Math.min(minX, x2d[i]);
+				maxX = Math.max(maxX, x2d[i]);
+				projected++;
+			}
+		}
+		if (projected < 3)
+		{
+			return;
+		}
+
+		final int n = (long) maxX - minX < MAX_COLUMNS
+			? columnPoints(x2d, y2d, offset, count, minX, maxX - minX + 1)
+			: sortedPoints(x2d, y2d, offset, count);
+
+		if (hullX.length < 2 * n)
+		{
+			hullX = new int[2 * n];
+			hullY = new int[2 * n];
+		}
+
+		// Andrew's monotone chain, lower hull then upper hull
+		int k = 0;
+		for (int i = 0; i < n; i++)
+		{
+			k = pushHullPoint(k, 2, points[i]);
+		}
+		for (int i = n - 2, lower = k + 1; i >= 0; i--)
+		{
+			k = pushHullPoint(k, lower, points[i]);
+		}
+		// The last point repeats the first
+		k--;
+
+		for (int i = 1; i + 1 < k; i++)
+		{
+			silhouette.add(hullX[0], hullY[0], hullX[i], hullY[i], hullX[i + 1], hullY[i + 1]);
+		}
+	}
+
+	/**
+	 * Writes the lowest and highest projected point of every column to the points, which leaves them sorted by
+	 * x and then y without sorting, and drops only points that cannot be on the hull. Returns the point count.
+	 */
+	private int columnPoints(int[] x2d, int[] y2d, int offset, int count, int minX, int columns)
+	{
+		if (columnTop.length < columns)
+		{
+			columnTop = new int[columns];
+			columnBottom = new int[columns];
+		}
+		Arrays.fill(columnTop, 0, columns, Integer.MAX_VALUE);
+		Arrays.fill(columnBottom, 0, columns, Integer.MIN_VALUE);
+		for (int i = offset; i < offset + count; i++)
+		{
+			if (x2d[i] != Integer.MIN_VALUE)
+			{
+				final int column = x2d[i] - minX;
+				columnTop[column] = Math.min(columnTop[column], y2d[i]);
+				columnBottom[column] = Math.max(columnBottom[column], y2d[i]);
+			}
+		}
+
+		if (points.length < 2 * columns)
+		{
+			points = new long[2 * columns];
+		}
+		int n = 0;
+		for (int column = 0; column < columns; column++)
+		{
+			final int top = columnTop[column];
+			if (top == Integer.MAX_VALUE)
+			{
+				continue;
+			}
+			points[n++] = point(minX + column, top);
+			if (columnBottom[column] != top)
+			{
+				points[n++] = point(minX + column, columnBottom[column]);
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Writes every projected point to the points and sorts them by x and then y. Returns the point count.
+	 */
+	private int sortedPoints(int[] x2d, int[] y2d, int offset, int count)
+	{
+		if (points.length < count)
+		{
+			points = new long[count];
+		}
+		int n = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			if (x2d[i] != Integer.MIN_VALUE)
+			{
+				points[n++] = point(x2d[i], y2d[i]);
+			}
+		}
+		PrimitiveSort.sort(points, n);
+		return n;
+	}
+
+	private static long point(int x, int y)
+	{
+		return (long) x << 32 | ((long) y - Integer.MIN_VALUE);
+	}
+
+	private int pushHullPoint(int k, int minSize, long point)
+	{
+		final int x = (int) (point >> 32);
+		final int y = (int) ((point & 0xFFFFFFFFL) + Integer.MIN_VALUE);
+		while (k >= minSize && cross(hullX[k - 2], hullY[k - 2], hullX[k - 1], hullY[k - 1], x, y) <= 0)
+		{
+			k--;
+		}
+		hullX[k] = x;
+		hullY[k] = y;
+		return k + 1;
+	}
+
+	private static long cross(int ox, int oy, int ax, int ay, int bx, int by)
+	{
+		return ((long) ax - ox) * ((long) by - oy) - ((long) ay - oy) * ((long) bx - ox);
+	}
+}
@@ -0,0 +1,87 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import net.runelite.api.Client;
+import net.runelite.api.Perspective;
+
+/**
+ * Builds the outlines of a frame's tile markers into paths, so any number of markers can be drawn with one call
+ * per path. Tile corners are projected at most once a frame, however many markers share them, and are stamped
+ * with the frame that projected them rather than cleared.
+ */
+final class TileMarkers
+{
+	private static final int CORNERS = Perspective.SCENE_SIZE + 1;
+
+	// Per corner, indexed by x * CORNERS + y: the frame that last projected it and its offset in the buffers
+	private final int[] cornerStamps = new int[CORNERS * CORNERS];
+	private final int[] cornerOffsets = new int[CORNERS * CORNERS];
+	private int stamp;
+
+	private Client client;
+	private ProjectionEngine projection;
+	private int plane;
+
+	/**
+	 * Starts a frame, forgetting the corners projected for the last one. The projection engine must already have
+	 * begun the frame.
+	 */
+	void begin(Client client, ProjectionEngine projection)
+	{
+		this.client = client;
+		this.projection = projection;
+		plane = client.getPlane();
+		if (++stamp == 0)
+		{
+			Arrays.fill(cornerStamps, 0);
+			stamp = 1;
+		}
+	}
+
+	/**
+	 * Appends the outline of the {@code size} by {@code size} tiles from the given south west scene tile to the
+	 * path. Returns false, appending nothing, if the area is outside the scene or a corner failed to project.
+	 */
+	boolean add(Path2D.Float outline, int sceneX, int sceneY, int size)
+	{
+		if (sceneX < 0 || sceneY < 0 || sceneX + size > Perspective.SCENE_SIZE || sceneY + size > Perspective.SCENE_SIZE)
+		{
+			return false;
+		}
+
+		final int southWest = corner(sceneX, sceneY);
+		final int southEast = corner(sceneX + size, sceneY);
+		final int northEast = corner(sceneX + size, sceneY + size);
+		final int northWest = corner(sceneX, sceneY + size);
+		// Read after projecting, which may have grown the buffers
+		final int[] x2d = projection.x2d;
+		final int[] y2d = projection.y2d;
+		if (x2d[southWest] == Integer.MIN_VALUE || x2d[southEast] == Integer.MIN_VALUE
+			|| x2d[northEast] == Integer.MIN_VALUE || x2d[northWest] == Integer.MIN_VALUE)
+		{
+			return false;
+		}
+
+		outline.moveTo(x2d[southWest], y2d[southWest]);
+		outline.lineTo(x2d[southEast], y2d[southEast]);
+		outline.lineTo(x2d[northEast], y2d[northEast]);
+		outline.lineTo(x2d[northWest], y2d[northWest]);
+		outline.closePath();
+		return true;
+	}
+
+	private int corner(int x, int y)
+	{
+		final int index = x * CORNERS + y;
+		if (cornerStamps[index] != stamp)
+		{
+			final int localX = x << Perspective.LOCAL_COORD_BITS;
+			final int localY = y << Perspective.LOCAL_COORD_BITS;
+			cornerStamps[index] = stamp;
+			cornerOffsets[index] = projection.projectPoint(localX, localY,
+				ImprovedTileIndicatorsOverlay.getTileHeight(client, localX, localY, plane));
+		}
+		return cornerOffsets[index];
+	}
+}
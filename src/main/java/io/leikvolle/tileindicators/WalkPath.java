@@ -0,0 +1,250 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.Perspective;
+
+/**
+ * Predicts the tiles the player walks over to reach the destination, with a breadth first search over the
+ * scene's collision flags that checks moves in the same order and the same way as the client. Everything the
+ * search needs is allocated once for the whole scene, and tiles are stamped with the search that visited them
+ * rather than cleared, so searching produces no garbage.
+ * <p>
+ * The path is kept for as long as the destination and the collision flags stay the same. While the player walks
+ * along it only the part already walked is dropped; it is searched again when the player leaves it.
+ */
+final class WalkPath
+{
+	private static final int SIZE = Perspective.SCENE_SIZE;
+	// How far around an unreachable destination the client looks for a reachable tile to walk to instead
+	private static final int ALTERNATIVE_RANGE = 10;
+
+	private static final int BLOCK_WEST = CollisionDataFlag.BLOCK_MOVEMENT_FULL | CollisionDataFlag.BLOCK_MOVEMENT_EAST;
+	private static final int BLOCK_EAST = CollisionDataFlag.BLOCK_MOVEMENT_FULL | CollisionDataFlag.BLOCK_MOVEMENT_WEST;
+	private static final int BLOCK_SOUTH = CollisionDataFlag.BLOCK_MOVEMENT_FULL | CollisionDataFlag.BLOCK_MOVEMENT_NORTH;
+	private static final int BLOCK_NORTH = CollisionDataFlag.BLOCK_MOVEMENT_FULL | CollisionDataFlag.BLOCK_MOVEMENT_SOUTH;
+	private static final int BLOCK_SOUTH_WEST = BLOCK_WEST | BLOCK_SOUTH | CollisionDataFlag.BLOCK_MOVEMENT_NORTH_EAST;
+	private static final int BLOCK_SOUTH_EAST = BLOCK_EAST | BLOCK_SOUTH | CollisionDataFlag.BLOCK_MOVEMENT_NORTH_WEST;
+	private static final int BLOCK_NORTH_WEST = BLOCK_WEST | BLOCK_NORTH | CollisionDataFlag.BLOCK_MOVEMENT_SOUTH_EAST;
+	private static final int BLOCK_NORTH_EAST = BLOCK_EAST | BLOCK_NORTH | CollisionDataFlag.BLOCK_MOVEMENT_SOUTH_WEST;
+
+	// Per tile, indexed by x * SIZE + y: the search that last reached it, from where and in how many steps
+	private final int[] visited = new int[SIZE * SIZE];
+	private final int[] parents = new int[SIZE * SIZE];
+	private final int[] steps = new int[SIZE * SIZE];
+	private final int[] queue = new int[SIZE * SIZE];
+	private int stamp;
+
+	/**
+	 * Scene tiles of the path from the player's tile to the destination, from {@link #getFirst()} inclusive to
+	 * {@link #getEnd()} exclusive, each as {@code x * SIZE + y}.
+	 */
+	final int[] tiles = new int[SIZE * SIZE];
+	@Getter(AccessLevel.PACKAGE)
+	private int first;
+	@Getter(AccessLevel.PACKAGE)
+	private int end;
+
+	private boolean valid;
+	private int[][] flags;
+	// The tile the path starts from, so a player who cannot move towards the destination is not searched for again
+	private int origin;
+	private int destinationX;
+	private int destinationY;
+	private int revision;
+
+	@Getter(AccessLevel.PACKAGE)
+	private long searches;
+
+	/**
+	 * Brings the path up to date for the given start and destination scene tiles, searching again only if the
+	 * destination or the collision flags changed or the player left the path. {@code revision} must change
+	 * whenever the flags do. Returns false if either tile is outside the scene.
+	 */
+	boolean update(int[][] flags, int revision, int startX, int startY, int destinationX, int destinationY)
+	{
+		if (!inScene(startX, startY) || !inScene(destinationX, destinationY))
+		{
+			valid = false;
+			return false;
+		}
+
+		final int start = startX * SIZE + startY;
+		if (valid && flags == this.flags && revision == this.revision
+			&& destinationX == this.destinationX && destinationY == this.destinationY)
+		{
+			if (start == origin)
+			{
+				return true;
+			}
+			for (int i = first; i < end; i++)
+			{
+				if (tiles[i] == start)
+				{
+					first = i;
+					origin = start;
+					return true;
+				}
+			}
+		}
+
+		this.flags = flags;
+		origin = start;
+		this.revision = revision;
+		this.destinationX = destinationX;
+		this.destinationY = destinationY;
+		search(flags, start, destinationX * SIZE + destinationY);
+		valid = true;
+		return true;
+	}
+
+	/**
+	 * Forgets the path, for when there is no destination.
+	 */
+	void clear()
+	{
+		valid = false;
+		first = 0;
+		end = 0;
+	}
+
+	private void search(int[][] flags, int start, int destination)
+	{
+		searches++;
+		if (++stamp == 0)
+		{
+			Arrays.fill(visited, 0);
+			stamp = 1;
+		}
+
+		visit(start, start, 0);
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = start;
+		while (head < tail && visited[destination] != stamp)
+		{
+			final int tile = queue[head++];
+			final int x = tile / SIZE;
+			final int y = tile % SIZE;
+			final int next = steps[tile] + 1;
+
+			final boolean west = x > 0 && (flags[x - 1][y] & BLOCK_WEST) == 0;
+			final boolean east = x < SIZE - 1 && (flags[x + 1][y] & BLOCK_EAST) == 0;
+			final boolean south = y > 0 && (flags[x][y - 1] & BLOCK_SOUTH) == 0;
+			final boolean north = y < SIZE - 1 && (flags[x][y + 1] & BLOCK_NORTH) == 0;
+			if (west)
+			{
+				tail = enqueue(tile - SIZE, tile, next, tail);
+			}
+			if (east)
+			{
+				tail = enqueue(tile + SIZE, tile, next, tail);
+			}
+			if (south)
+			{
+				tail = enqueue(tile - 1, tile, next, tail);
+			}
+			if (north)
+			{
+				tail = enqueue(tile + 1, tile, next, tail);
+			}
+			// Diagonal moves need both of the straight moves they cut between to be possible too
+			if (west && south && (flags[x - 1][y - 1] & BLOCK_SOUTH_WEST) == 0)
+			{
+				tail = enqueue(tile - SIZE - 1, tile, next, tail);
+			}
+			if (east && south && (flags[x + 1][y - 1] & BLOCK_SOUTH_EAST) == 0)
+			{
+				tail = enqueue(tile + SIZE - 1, tile, next, tail);
+			}
+			if (west && north && (flags[x - 1][y + 1] & BLOCK_NORTH_WEST) == 0)
+			{
+				tail = enqueue(tile - SIZE + 1, tile, next, tail);
+			}
+			if (east && north && (flags[x + 1][y + 1] & BLOCK_NORTH_EAST) == 0)
+			{
+				tail = enqueue(tile + SIZE + 1, tile, next, tail);
+			}
+		}
+
+		final int reached = visited[destination] == stamp ? destination : alternative(destination);
+		if (reached < 0)
+		{
+			first = 0;
+			end = 0;
+			return;
+		}
+
+		// Walked back from the end, so the path is written back to front
+		int i = tiles.length;
+		for (int tile = reached; ; tile = parents[tile])
+		{
+			tiles[--i] = tile;
+			if (tile == start)
+			{
+				break;
+			}
+		}
+		first = i;
+		end = tiles.length;
+	}
+
+	private int enqueue(int tile, int parent, int steps, int tail)
+	{
+		if (visited[tile] == stamp)
+		{
+			return tail;
+		}
+		visit(tile, parent, steps);
+		queue[tail] = tile;
+		return tail + 1;
+	}
+
+	private void visit(int tile, int parent, int steps)
+	{
+		visited[tile] = stamp;
+		parents[tile] = parent;
+		this.steps[tile] = steps;
+	}
+
+	/**
+	 * Returns the reached tile the client walks to when the destination cannot be reached: the closest one to it
+	 * within range, the fewest steps away on ties. Returns -1 if there is none.
+	 */
+	private int alternative(int destination)
+	{
+		final int destinationX = destination / SIZE;
+		final int destinationY = destination % SIZE;
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		int bestSteps = Integer.MAX_VALUE;
+		for (int x = Math.max(0, destinationX - ALTERNATIVE_RANGE); x <= Math.min(SIZE - 1, destinationX + ALTERNATIVE_RANGE); x++)
+		{
+			for (int y = Math.max(0, destinationY - ALTERNATIVE_RANGE); y <= Math.min(SIZE - 1, destinationY + ALTERNATIVE_RANGE); y++)
+			{
+				final int tile = x * SIZE + y;
+				if (visited[tile] != stamp)
+				{
+					continue;
+				}
+				final int dx = x - destinationX;
+				final int dy = y - destinationY;
+				final int distance = dx * dx + dy * dy;
+				if (distance < bestDistance || distance == bestDistance && steps[tile] < bestSteps)
+				{
+					best = tile;
+					bestDistance = distance;
+					bestSteps = steps[tile];
+				}
+			}
+		}
+		return best;
+	}
+
+	private static boolean inScene(int x, int y)
+	{
+		return x >= 0 && y >= 0 && x < SIZE && y < SIZE;
+	}
+}
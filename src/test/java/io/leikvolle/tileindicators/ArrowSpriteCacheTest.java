@@ -0,0 +1,67 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ArrowSpriteCacheTest
+{
+	private static BufferedImage icon()
+	{
+		final BufferedImage icon = new BufferedImage(42, 32, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < icon.getHeight(); y++)
+		{
+			for (int x = 0; x < icon.getWidth(); x++)
+			{
+				icon.setRGB(x, y, 0xFFFF0000);
+			}
+		}
+		return icon;
+	}
+
+	@Test
+	public void testScalesAreQuantisedToWholePixels()
+	{
+		final ArrowSpriteCache cache = new ArrowSpriteCache(icon());
+		final Graphics2D graphics = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+		final BufferedImage sprite = cache.get(graphics, 0.5);
+		assertEquals(21, sprite.getWidth());
+		assertEquals(16, sprite.getHeight());
+		assertSame(sprite, cache.get(graphics, 0.505));
+		assertNotSame(sprite, cache.get(graphics, 0.6));
+
+		// Every scale down to nothing fits in one sprite per pixel of width
+		for (double scale = 0; scale <= 2; scale += 0.001)
+		{
+			cache.get(graphics, scale);
+		}
+		assertEquals(42, cache.size());
+	}
+
+	@Test
+	public void testSpritesKeepTheImage()
+	{
+		final ArrowSpriteCache cache = new ArrowSpriteCache(icon());
+		final Graphics2D graphics = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+		final BufferedImage sprite = cache.get(graphics, 0.2);
+		assertEquals(8, sprite.getWidth());
+		assertTrue((sprite.getRGB(4, 3) >>> 24) > 250);
+		assertEquals(0xFF0000, sprite.getRGB(4, 3) & 0xFFFFFF);
+	}
+
+	@Test
+	public void testNewGraphicsConfigurationRebuildsSprites()
+	{
+		final ArrowSpriteCache cache = new ArrowSpriteCache(icon());
+		final BufferedImage sprite = cache.get(new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB).createGraphics(), 0.5);
+		cache.get(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB).createGraphics(), 0.5);
+		assertEquals(1, cache.size());
+		assertNotSame(sprite, cache.get(new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB).createGraphics(), 0.5));
+	}
+}
@@ -0,0 +1,108 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import net.runelite.api.NPC;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.NpcDespawned;
+import net.runelite.api.events.NpcSpawned;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Spawns and despawns tagged NPCs as fast as it can on one thread, ticking every few changes, while another
+ * thread draws frames without pause, the way the client thread and the paint path would race if they ever ran
+ * apart.
+ */
+public class ConcurrentTrackingTest
+{
+	private static final LocalPoint PLAYER_LOCATION = LocalPoint.fromScene(52, 52);
+	private static final int MAX_INDEX = 200;
+	private static final int CHANGES = 200_000;
+	private static final int CHANGES_PER_TICK = 25;
+
+	@Test
+	public void testSpawnsRaceRendering() throws Exception
+	{
+		final HeadlessClient client = new HeadlessClient();
+		client.lookAt(PLAYER_LOCATION, 1800, 300, 200);
+		client.setLocalPlayer(new HeadlessActor(0, -1, "Player", PLAYER_LOCATION, HeadlessModels.sphere(200, 50)));
+
+		final HeadlessConfig config = new HeadlessConfig();
+		config.overlaysBelowNPCs = true;
+		config.topNPCs = "Guard";
+		final HeadlessRenderer renderer = new HeadlessRenderer(client, config);
+		renderer.rebuild();
+		renderer.plugin.updateConfigSnapshot();
+		final ImprovedTileIndicatorsPlugin plugin = renderer.plugin;
+
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final AtomicInteger frames = new AtomicInteger();
+		final Thread painter = new Thread(() ->
+		{
+			final BufferedImage image = HeadlessRenderer.newImage(client);
+			try
+			{
+				while (!done.get())
+				{
+					final Graphics2D graphics = image.createGraphics();
+					renderer.overlay.render(graphics);
+					graphics.dispose();
+					frames.incrementAndGet();
+				}
+			}
+			catch (Throwable t)
+			{
+				failure.set(t);
+			}
+		}, "painter");
+		painter.start();
+
+		final Random random = new Random(7);
+		for (int change = 0; change < CHANGES && failure.get() == null; change++)
+		{
+			final int index = 1 + random.nextInt(MAX_INDEX);
+			final NPC existing = client.cachedNpcs[index];
+			if (existing == null)
+			{
+				final LocalPoint location = LocalPoint.fromScene(44 + random.nextInt(17), 44 + random.nextInt(17));
+				final HeadlessActor actor = new HeadlessActor(index, 1, random.nextInt(4) == 0 ? "Cow" : "Guard", location, HeadlessModels.box(60, 120, true));
+				plugin.onNpcSpawned(new NpcSpawned(client.addNpc(actor)));
+			}
+			else
+			{
+				plugin.onNpcDespawned(new NpcDespawned(existing));
+				client.removeNpc(existing);
+			}
+
+			if (change % CHANGES_PER_TICK == 0)
+			{
+				client.tickCount++;
+				plugin.onGameTick(new GameTick());
+			}
+		}
+		done.set(true);
+		painter.join();
+
+		assertNull(failure.get());
+		assertTrue(frames.get() > 0);
+
+		// Once ticked, the overlay sees exactly the tracked set
+		plugin.onGameTick(new GameTick());
+		final NpcIndexSnapshot snapshot = plugin.getTrackedNpcs();
+		final NpcIndexSet tracked = plugin.getOnTopNpcs();
+		assertEquals(tracked.size(), snapshot.size());
+		for (int i = 0; i < snapshot.size(); i++)
+		{
+			assertTrue(tracked.contains(snapshot.get(i)));
+		}
+	}
+}
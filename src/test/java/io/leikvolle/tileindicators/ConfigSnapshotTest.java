@@ -0,0 +1,52 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Color;
+import net.runelite.api.Perspective;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ConfigSnapshotTest
+{
+	@Test
+	public void testCompilesConfig()
+	{
+		final HeadlessConfig config = new HeadlessConfig();
+		config.destinationTileBorderWidth = 3.5;
+		config.highlightDestinationColor = new Color(0x80112233, true);
+		config.outlineDistance = 6;
+		config.hullDistance = 12;
+		config.otherPlayerNames = "Zezima, Lynx*";
+
+		final ConfigSnapshot snapshot = new ConfigSnapshot(config);
+		assertEquals(3.5f, snapshot.destinationStroke.getLineWidth(), 0);
+		assertEquals(config.highlightDestinationColor, snapshot.destinationColor);
+		assertEquals(6 * Perspective.LOCAL_TILE_SIZE, snapshot.outlineDistance);
+		assertEquals(12 * Perspective.LOCAL_TILE_SIZE, snapshot.hullDistance);
+		assertTrue(snapshot.otherPlayerMatcher.matches("zezima"));
+		assertTrue(snapshot.otherPlayerMatcher.matches("Lynx Titan"));
+		assertFalse(snapshot.otherPlayerMatcher.matches("Woox"));
+	}
+
+	@Test
+	public void testChangesOnlyReachNewSnapshots()
+	{
+		final HeadlessConfig config = new HeadlessConfig();
+		final ImprovedTileIndicatorsPlugin plugin = new HeadlessRenderer(new HeadlessClient(), config).plugin;
+		plugin.updateConfigSnapshot();
+		final ConfigSnapshot before = plugin.getConfigSnapshot();
+
+		config.frameBudget = 2500;
+		config.overlaysBelowNPCs = !config.overlaysBelowNPCs;
+		assertEquals(0, before.frameBudget);
+
+		plugin.updateConfigSnapshot();
+		final ConfigSnapshot after = plugin.getConfigSnapshot();
+		assertNotSame(before, after);
+		assertEquals(2500, after.frameBudget);
+		assertEquals(config.overlaysBelowNPCs, after.overlaysBelowNPCs);
+		assertEquals(!config.overlaysBelowNPCs, before.overlaysBelowNPCs);
+	}
+}
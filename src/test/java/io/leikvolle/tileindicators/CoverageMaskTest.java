@@ -0,0 +1,148 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CoverageMaskTest
+{
+	private static final int WIDTH = 320;
+	private static final int HEIGHT = 240;
+
+	/**
+	 * Fraction of the reference coverage that may differ from per-triangle Java2D fills. Differences come from
+	 * samples exactly on a sloped edge, so they are most frequent on the tiny faces models are made of.
+	 */
+	private static final double TOLERANCE = 0.01;
+
+	@Test
+	public void testMatchesJava2DFill()
+	{
+		final Random random = new Random(1234);
+		for (int scene = 0; scene < 20; scene++)
+		{
+			final int[] triangles = new int[300 * 6];
+			for (int i = 0; i < triangles.length; i += 2)
+			{
+				triangles[i] = random.nextInt(WIDTH + 80) - 40;
+				triangles[i + 1] = random.nextInt(HEIGHT + 80) - 40;
+			}
+			assertWithinTolerance(triangles);
+		}
+	}
+
+	@Test
+	public void testMatchesJava2DFillForSmallTriangles()
+	{
+		// Model faces are mostly a handful of pixels across, where rounding rules matter the most
+		final Random random = new Random(4321);
+		final int[] triangles = new int[2000 * 6];
+		for (int i = 0; i < triangles.length; i += 6)
+		{
+			final int x = random.nextInt(WIDTH);
+			final int y = random.nextInt(HEIGHT);
+			for (int v = 0; v < 6; v += 2)
+			{
+				triangles[i + v] = x + random.nextInt(9) - 4;
+				triangles[i + v + 1] = y + random.nextInt(9) - 4;
+			}
+		}
+		assertWithinTolerance(triangles);
+	}
+
+	@Test
+	public void testResetClearsPreviousFrame()
+	{
+		final CoverageMask mask = new CoverageMask();
+		mask.reset(10, 20, WIDTH, HEIGHT);
+		mask.fillTriangle(10, 20, 200, 20, 10, 200);
+		assertTrue(mask.isCovered(20, 30));
+
+		mask.reset(10, 20, WIDTH, HEIGHT);
+		assertTrue(mask.isEmpty());
+		for (int y = 20; y < 20 + HEIGHT; y++)
+		{
+			for (int x = 10; x < 10 + WIDTH; x++)
+			{
+				assertTrue(!mask.isCovered(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testSkipsUnprojectedVertices()
+	{
+		final CoverageMask mask = new CoverageMask();
+		mask.reset(0, 0, WIDTH, HEIGHT);
+		mask.fillTriangle(Integer.MIN_VALUE, Integer.MIN_VALUE, 100, 10, 10, 100);
+		assertTrue(mask.isEmpty());
+	}
+
+	@Test
+	public void testClearRemovesCoveredPixels()
+	{
+		final BufferedImage target = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D graphics = target.createGraphics();
+		graphics.setColor(Color.RED);
+		graphics.fillRect(0, 0, WIDTH, HEIGHT);
+
+		final CoverageMask mask = new CoverageMask();
+		mask.reset(0, 0, WIDTH, HEIGHT);
+		mask.fillTriangle(20, 20, 120, 20, 20, 120);
+		mask.clear(graphics);
+		graphics.dispose();
+
+		assertEquals(0, target.getRGB(30, 30));
+		assertEquals(Color.RED.getRGB(), target.getRGB(200, 200));
+	}
+
+	private static void assertWithinTolerance(int[] triangles)
+	{
+		final BufferedImage reference = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D graphics = reference.createGraphics();
+		graphics.setColor(Color.WHITE);
+		graphics.fillRect(0, 0, WIDTH, HEIGHT);
+		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+		graphics.setComposite(AlphaComposite.Clear);
+
+		final CoverageMask mask = new CoverageMask();
+		mask.reset(0, 0, WIDTH, HEIGHT);
+
+		for (int i = 0; i < triangles.length; i += 6)
+		{
+			graphics.fill(new Polygon(
+				new int[]{triangles[i], triangles[i + 2], triangles[i + 4]},
+				new int[]{triangles[i + 1], triangles[i + 3], triangles[i + 5]},
+				3));
+			mask.fillTriangle(triangles[i], triangles[i + 1], triangles[i + 2], triangles[i + 3], triangles[i + 4], triangles[i + 5]);
+		}
+		graphics.dispose();
+
+		int covered = 0;
+		int differing = 0;
+		for (int y = 0; y < HEIGHT; y++)
+		{
+			for (int x = 0; x < WIDTH; x++)
+			{
+				final boolean expected = (reference.getRGB(x, y) >>> 24) == 0;
+				if (expected)
+				{
+					covered++;
+				}
+				if (expected != mask.isCovered(x, y))
+				{
+					differing++;
+				}
+			}
+		}
+
+		assertTrue("differing pixels " + differing + " of " + covered, differing <= Math.max(1, covered * TOLERANCE));
+	}
+}
@@ -0,0 +1,84 @@
+package io.leikvolle.tileindicators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class FrameBudgetTest
+{
+	private static FrameBudget withCosts(long exact, long outline, long hull)
+	{
+		final FrameBudget budget = new FrameBudget();
+		budget.record(new long[]{exact * 1000, outline * 1000, hull * 1000}, new int[]{1, 1, 1}, new int[3]);
+		return budget;
+	}
+
+	@Test
+	public void testUnlimitedKeepsPreferredDetail()
+	{
+		final FrameBudget budget = withCosts(1000, 1000, 1000);
+		budget.begin(0);
+		for (int i = 0; i < 100; i++)
+		{
+			assertEquals(SilhouetteDetail.EXACT, budget.fit(SilhouetteDetail.EXACT));
+		}
+		assertEquals(0, budget.end());
+	}
+
+	@Test
+	public void testDegradesThenSkips()
+	{
+		final FrameBudget budget = withCosts(100, 40, 10);
+		budget.begin(150);
+		assertEquals(SilhouetteDetail.EXACT, budget.fit(SilhouetteDetail.EXACT));
+		assertEquals(SilhouetteDetail.OUTLINE, budget.fit(SilhouetteDetail.EXACT));
+		assertEquals(SilhouetteDetail.HULL, budget.fit(SilhouetteDetail.OUTLINE));
+		assertNull(budget.fit(SilhouetteDetail.HULL));
+		assertEquals(2, budget.end());
+
+		// Charged occluders leave less for the NPCs
+		budget.begin(150);
+		budget.charge(SilhouetteDetail.EXACT);
+		assertEquals(SilhouetteDetail.OUTLINE, budget.fit(SilhouetteDetail.EXACT));
+		assertEquals(1, budget.end());
+	}
+
+	@Test
+	public void testFirstNpcIsAlwaysDrawn()
+	{
+		final FrameBudget budget = withCosts(1000, 1000, 1000);
+		budget.begin(1);
+		assertEquals(SilhouetteDetail.HULL, budget.fit(SilhouetteDetail.EXACT));
+		assertNull(budget.fit(SilhouetteDetail.HULL));
+	}
+
+	@Test
+	public void testEstimatesFollowMeasurements()
+	{
+		final FrameBudget budget = withCosts(100, 40, 10);
+		for (int frame = 0; frame < 100; frame++)
+		{
+			budget.record(new long[]{2 * 200_000, 0, 0}, new int[]{2, 0, 0}, new int[3]);
+		}
+		assertTrue(Math.abs(budget.getCost(SilhouetteDetail.EXACT) - 200_000) < 1000);
+
+		// Details nothing was drawn at are tried again eventually
+		assertTrue(budget.getCost(SilhouetteDetail.OUTLINE) < 40_000 / 2);
+		assertTrue(budget.getCost(SilhouetteDetail.HULL) < 10_000 / 2);
+	}
+
+	@Test
+	public void testReusedSilhouettesKeepEstimates()
+	{
+		// A camera standing still, where every silhouette is reused
+		final FrameBudget budget = withCosts(100, 40, 10);
+		for (int frame = 0; frame < 100; frame++)
+		{
+			budget.record(new long[3], new int[3], new int[]{5, 3, 1});
+		}
+		assertEquals(100_000, budget.getCost(SilhouetteDetail.EXACT));
+		assertEquals(40_000, budget.getCost(SilhouetteDetail.OUTLINE));
+		assertEquals(10_000, budget.getCost(SilhouetteDetail.HULL));
+	}
+}
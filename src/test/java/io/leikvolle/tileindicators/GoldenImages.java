@@ -0,0 +1,81 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.imageio.ImageIO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares rendered frames against the golden images in the test resources. Run the tests with
+ * {@code -Ptileindicators.updateGoldens=true} to write the current output as the new golden images, and look in
+ * {@code build/golden} for the output of a failing comparison.
+ */
+final class GoldenImages
+{
+	private static final String RESOURCE_DIR = "src/test/resources/io/leikvolle/tileindicators/golden";
+	private static final String FAILURE_DIR = "build/golden";
+
+	private GoldenImages()
+	{
+	}
+
+	/**
+	 * Asserts that at most {@code tolerance} of the pixels that either image changed from the backdrop differ.
+	 * Some tolerance is needed since the client's own projection may round a vertex differently from the
+	 * projection the golden images were made with.
+	 */
+	static void assertMatches(String name, BufferedImage actual, BufferedImage backdrop, double tolerance) throws IOException
+	{
+		if (Boolean.getBoolean("tileindicators.updateGoldens"))
+		{
+			write(actual, new File(RESOURCE_DIR, name + ".png"));
+			return;
+		}
+
+		final BufferedImage expected;
+		try (InputStream in = GoldenImages.class.getResourceAsStream("golden/" + name + ".png"))
+		{
+			assertNotNull("No golden image " + name + ", run with -Ptileindicators.updateGoldens=true to create it", in);
+			expected = ImageIO.read(in);
+		}
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+
+		int changed = 0;
+		int differing = 0;
+		for (int y = 0; y < actual.getHeight(); y++)
+		{
+			for (int x = 0; x < actual.getWidth(); x++)
+			{
+				final int background = backdrop.getRGB(x, y);
+				final int expectedPixel = expected.getRGB(x, y);
+				final int actualPixel = actual.getRGB(x, y);
+				if (expectedPixel != background || actualPixel != background)
+				{
+					changed++;
+				}
+				if (expectedPixel != actualPixel)
+				{
+					differing++;
+				}
+			}
+		}
+
+		if (differing > changed * tolerance)
+		{
+			write(actual, new File(FAILURE_DIR, name + ".png"));
+		}
+		assertTrue(name + ": " + differing + " of " + changed + " changed pixels differ from the golden image",
+			differing <= changed * tolerance);
+	}
+
+	private static void write(BufferedImage image, File file) throws IOException
+	{
+		file.getParentFile().mkdirs();
+		ImageIO.write(image, "png", file);
+	}
+}
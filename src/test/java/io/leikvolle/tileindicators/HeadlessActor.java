@@ -0,0 +1,93 @@
+package io.leikvolle.tileindicators;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import net.runelite.api.Actor;
+import net.runelite.api.Model;
+import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.Player;
+import net.runelite.api.PlayerComposition;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Mutable state behind an NPC or player stand-in. Like {@link HeadlessClient}, the stand-in reads the fields on
+ * every call.
+ */
+final class HeadlessActor
+{
+	int index;
+	int id;
+	String name;
+	int size = 1;
+	LocalPoint location;
+	int orientation;
+	Model model;
+	int animation = -1;
+	int animationFrame;
+	int logicalHeight = 200;
+	Actor interacting;
+	int[] equipment = new int[12];
+	boolean friend;
+	boolean clanMember;
+
+	HeadlessActor(int index, int id, String name, LocalPoint location, Model model)
+	{
+		this.index = index;
+		this.id = id;
+		this.name = name;
+		this.location = location;
+		this.model = model;
+	}
+
+	NPC asNpc(HeadlessClient client)
+	{
+		final Map<String, Object> composition = new HashMap<>();
+		supply(composition, "getId", () -> id);
+		supply(composition, "getName", () -> name);
+		supply(composition, "getSize", () -> size);
+		final NPCComposition npcComposition = StandIn.of(NPCComposition.class, composition);
+
+		final Map<String, Object> values = actorValues(client);
+		supply(values, "getIndex", () -> index);
+		supply(values, "getId", () -> id);
+		values.put("getComposition", npcComposition);
+		values.put("getTransformedComposition", npcComposition);
+		return StandIn.of(NPC.class, values);
+	}
+
+	Player asPlayer(HeadlessClient client)
+	{
+		final Map<String, Object> composition = new HashMap<>();
+		supply(composition, "getEquipmentIds", () -> equipment);
+
+		final Map<String, Object> values = actorValues(client);
+		supply(values, "getId", () -> index);
+		values.put("getPlayerComposition", StandIn.of(PlayerComposition.class, composition));
+		supply(values, "isFriend", () -> friend);
+		supply(values, "isClanMember", () -> clanMember);
+		return StandIn.of(Player.class, values);
+	}
+
+	private Map<String, Object> actorValues(HeadlessClient client)
+	{
+		final Map<String, Object> values = new HashMap<>();
+		supply(values, "getName", () -> name);
+		supply(values, "getLocalLocation", () -> location);
+		supply(values, "getWorldLocation", () -> client.toWorld(location));
+		supply(values, "getCurrentOrientation", () -> orientation);
+		supply(values, "getModel", () -> model);
+		supply(values, "getAnimation", () -> animation);
+		supply(values, "getAnimationFrame", () -> animationFrame);
+		values.put("getPoseAnimation", -1);
+		supply(values, "getLogicalHeight", () -> logicalHeight);
+		supply(values, "getInteracting", () -> interacting);
+		return values;
+	}
+
+	private static void supply(Map<String, Object> values, String method, Supplier<Object> supplier)
+	{
+		values.put(method, supplier);
+	}
+}
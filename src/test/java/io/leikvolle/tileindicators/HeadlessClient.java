@@ -0,0 +1,163 @@
+package io.leikvolle.tileindicators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import net.runelite.api.Client;
+import net.runelite.api.CollisionData;
+import net.runelite.api.Constants;
+import net.runelite.api.GameState;
+import net.runelite.api.NPC;
+import net.runelite.api.Perspective;
+import net.runelite.api.Player;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * Client state for headless rendering: a flat scene, a camera and the actors in it. The {@link Client} stand-in
+ * reads these fields on every call, so tests move the camera or actors simply by assigning them between frames.
+ */
+final class HeadlessClient
+{
+	static final int MAX_NPCS = 32768;
+	static final int MAX_PLAYERS = 2048;
+
+	int cameraX;
+	int cameraY;
+	int cameraZ;
+	int cameraPitch = 300;
+	int cameraYaw;
+	int scale = 512;
+
+	int viewportX = 4;
+	int viewportY = 4;
+	int viewportWidth = 765;
+	int viewportHeight = 503;
+
+	int baseX = 3200;
+	int baseY = 3200;
+	int plane;
+	int gameCycle;
+	int tickCount;
+	boolean gpu = true;
+
+	final int[][][] tileHeights = new int[Constants.MAX_Z][Perspective.SCENE_SIZE + 1][Perspective.SCENE_SIZE + 1];
+	final byte[][][] tileSettings = new byte[Constants.MAX_Z][Perspective.SCENE_SIZE][Perspective.SCENE_SIZE];
+	// Every tile is walkable until a test sets flags from CollisionDataFlag
+	final int[][][] collisionFlags = new int[Constants.MAX_Z][Perspective.SCENE_SIZE][Perspective.SCENE_SIZE];
+
+	final NPC[] cachedNpcs = new NPC[MAX_NPCS];
+	final List<NPC> npcs = new ArrayList<>();
+	final Player[] cachedPlayers = new Player[MAX_PLAYERS];
+	Player localPlayer;
+	LocalPoint destination;
+
+	private final Client client;
+
+	HeadlessClient()
+	{
+		final Map<String, Object> values = new ConcurrentHashMap<>();
+		supply(values, "getCameraX", () -> cameraX);
+		supply(values, "getCameraY", () -> cameraY);
+		supply(values, "getCameraZ", () -> cameraZ);
+		supply(values, "getCameraPitch", () -> cameraPitch);
+		supply(values, "getCameraYaw", () -> cameraYaw);
+		supply(values, "getCameraFpX", () -> (double) cameraX);
+		supply(values, "getCameraFpY", () -> (double) cameraY);
+		supply(values, "getCameraFpZ", () -> (double) cameraZ);
+		supply(values, "getCameraFpPitch", () -> cameraPitch * Perspective.UNIT);
+		supply(values, "getCameraFpYaw", () -> cameraYaw * Perspective.UNIT);
+		supply(values, "getScale", () -> scale);
+		supply(values, "get3dZoom", () -> scale);
+		supply(values, "getViewportXOffset", () -> viewportX);
+		supply(values, "getViewportYOffset", () -> viewportY);
+		supply(values, "getViewportWidth", () -> viewportWidth);
+		supply(values, "getViewportHeight", () -> viewportHeight);
+		supply(values, "getBaseX", () -> baseX);
+		supply(values, "getBaseY", () -> baseY);
+		supply(values, "getPlane", () -> plane);
+		supply(values, "getGameCycle", () -> gameCycle);
+		supply(values, "getTickCount", () -> tickCount);
+		supply(values, "isGpu", () -> gpu);
+		supply(values, "getLocalPlayer", () -> localPlayer);
+		supply(values, "getLocalDestinationLocation", () -> destination);
+		supply(values, "getNpcs", () -> npcs);
+		values.put("getCachedNPCs", cachedNpcs);
+		values.put("getCachedPlayers", cachedPlayers);
+		values.put("getTileHeights", tileHeights);
+		values.put("getTileSettings", tileSettings);
+		final CollisionData[] collisionMaps = new CollisionData[Constants.MAX_Z];
+		for (int z = 0; z < Constants.MAX_Z; z++)
+		{
+			collisionMaps[z] = StandIn.of(CollisionData.class, Collections.singletonMap("getFlags", collisionFlags[z]));
+		}
+		values.put("getCollisionMaps", collisionMaps);
+		values.put("getExtendedTileSettings", tileSettings);
+		values.put("getGameState", GameState.LOGGED_IN);
+		// The top level world view, which newer clients resolve scene lookups through
+		values.put("getId", -1);
+		client = StandIn.of(Client.class, values);
+	}
+
+	private static void supply(Map<String, Object> values, String method, Supplier<Object> supplier)
+	{
+		values.put(method, supplier);
+	}
+
+	Client getClient()
+	{
+		return client;
+	}
+
+	/**
+	 * Places the camera {@code distance} local units away from the target, looking straight at it, at the
+	 * given pitch and yaw in client angle units.
+	 */
+	void lookAt(LocalPoint target, int distance, int pitch, int yaw)
+	{
+		final double pitchAngle = pitch * Perspective.UNIT;
+		final double yawAngle = yaw * Perspective.UNIT;
+		final double horizontal = distance * Math.cos(pitchAngle);
+		cameraPitch = pitch;
+		cameraYaw = yaw;
+		cameraX = (int) Math.round(target.getX() + horizontal * Math.sin(yawAngle));
+		cameraY = (int) Math.round(target.getY() - horizontal * Math.cos(yawAngle));
+		// Heights grow downwards, so a camera above the ground has a negative height
+		cameraZ = (int) Math.round(-distance * Math.sin(pitchAngle));
+	}
+
+	NPC addNpc(HeadlessActor actor)
+	{
+		final NPC npc = actor.asNpc(this);
+		cachedNpcs[actor.index] = npc;
+		npcs.add(npc);
+		return npc;
+	}
+
+	void removeNpc(NPC npc)
+	{
+		cachedNpcs[npc.getIndex()] = null;
+		npcs.remove(npc);
+	}
+
+	Player setLocalPlayer(HeadlessActor actor)
+	{
+		localPlayer = addPlayer(actor);
+		return localPlayer;
+	}
+
+	Player addPlayer(HeadlessActor actor)
+	{
+		final Player player = actor.asPlayer(this);
+		cachedPlayers[actor.index] = player;
+		return player;
+	}
+
+	WorldPoint toWorld(LocalPoint point)
+	{
+		return new WorldPoint(baseX + point.getSceneX(), baseY + point.getSceneY(), plane);
+	}
+}
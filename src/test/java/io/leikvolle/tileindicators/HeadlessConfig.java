@@ -0,0 +1,178 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Color;
+
+/**
+ * A config that starts out with the plugin's defaults and can be changed by assigning its fields.
+ */
+final class HeadlessConfig implements ImprovedTileIndicatorsConfig
+{
+	boolean overlaysBelowPlayer = ImprovedTileIndicatorsConfig.super.overlaysBelowPlayer();
+	boolean overlaysBelowOtherPlayers = ImprovedTileIndicatorsConfig.super.overlaysBelowOtherPlayers();
+	boolean otherPlayersFriends = ImprovedTileIndicatorsConfig.super.otherPlayersFriends();
+	boolean otherPlayersClan = ImprovedTileIndicatorsConfig.super.otherPlayersClan();
+	String otherPlayerNames = ImprovedTileIndicatorsConfig.super.otherPlayerNames();
+	boolean customDestinationTile = ImprovedTileIndicatorsConfig.super.customDestinationTile();
+	TileStyle highlightDestinationStyle = ImprovedTileIndicatorsConfig.super.highlightDestinationStyle();
+	double destinationTileBorderWidth = ImprovedTileIndicatorsConfig.super.destinationTileBorderWidth();
+	Color highlightDestinationColor = ImprovedTileIndicatorsConfig.super.highlightDestinationColor();
+	boolean destinationPath = ImprovedTileIndicatorsConfig.super.destinationPath();
+	boolean overlaysBelowNPCs = ImprovedTileIndicatorsConfig.super.overlaysBelowNPCs();
+	// Headless frames are compared pixel for pixel, so nothing that depends on timing is on unless a test asks
+	int frameBudget = 0;
+	String topNPCs = ImprovedTileIndicatorsConfig.super.getTopNPCs();
+	String topNPCIds = ImprovedTileIndicatorsConfig.super.getTopNPCIds();
+	int outlineDistance = ImprovedTileIndicatorsConfig.super.outlineDistance();
+	int hullDistance = ImprovedTileIndicatorsConfig.super.hullDistance();
+	boolean backgroundCoverage = false;
+	boolean trueTileMarkers = ImprovedTileIndicatorsConfig.super.trueTileMarkers();
+	double trueTileBorderWidth = ImprovedTileIndicatorsConfig.super.trueTileBorderWidth();
+	Color trueTileNpcColor = ImprovedTileIndicatorsConfig.super.trueTileNpcColor();
+	Color trueTilePlayerColor = ImprovedTileIndicatorsConfig.super.trueTilePlayerColor();
+	boolean debugFrameTimings = ImprovedTileIndicatorsConfig.super.debugFrameTimings();
+	boolean recordSession = ImprovedTileIndicatorsConfig.super.recordSession();
+
+	@Override
+	public boolean overlaysBelowPlayer()
+	{
+		return overlaysBelowPlayer;
+	}
+
+	@Override
+	public boolean overlaysBelowOtherPlayers()
+	{
+		return overlaysBelowOtherPlayers;
+	}
+
+	@Override
+	public boolean otherPlayersFriends()
+	{
+		return otherPlayersFriends;
+	}
+
+	@Override
+	public boolean otherPlayersClan()
+	{
+		return otherPlayersClan;
+	}
+
+	@Override
+	public String otherPlayerNames()
+	{
+		return otherPlayerNames;
+	}
+
+	@Override
+	public boolean customDestinationTile()
+	{
+		return customDestinationTile;
+	}
+
+	@Override
+	public TileStyle highlightDestinationStyle()
+	{
+		return highlightDestinationStyle;
+	}
+
+	@Override
+	public double destinationTileBorderWidth()
+	{
+		return destinationTileBorderWidth;
+	}
+
+	@Override
+	public Color highlightDestinationColor()
+	{
+		return highlightDestinationColor;
+	}
+
+	@Override
+	public boolean destinationPath()
+	{
+		return destinationPath;
+	}
+
+	@Override
+	public boolean overlaysBelowNPCs()
+	{
+		return overlaysBelowNPCs;
+	}
+
+	@Override
+	public int frameBudget()
+	{
+		return frameBudget;
+	}
+
+	@Override
+	public String getTopNPCs()
+	{
+		return topNPCs;
+	}
+
+	@Override
+	public void setTopNPCs(String npcsToDrawAbove)
+	{
+		topNPCs = npcsToDrawAbove;
+	}
+
+	@Override
+	public String getTopNPCIds()
+	{
+		return topNPCIds;
+	}
+
+	@Override
+	public int outlineDistance()
+	{
+		return outlineDistance;
+	}
+
+	@Override
+	public int hullDistance()
+	{
+		return hullDistance;
+	}
+
+	@Override
+	public boolean debugFrameTimings()
+	{
+		return debugFrameTimings;
+	}
+
+	@Override
+	public boolean backgroundCoverage()
+	{
+		return backgroundCoverage;
+	}
+
+	@Override
+	public boolean trueTileMarkers()
+	{
+		return trueTileMarkers;
+	}
+
+	@Override
+	public double trueTileBorderWidth()
+	{
+		return trueTileBorderWidth;
+	}
+
+	@Override
+	public Color trueTileNpcColor()
+	{
+		return trueTileNpcColor;
+	}
+
+	@Override
+	public Color trueTilePlayerColor()
+	{
+		return trueTilePlayerColor;
+	}
+
+	@Override
+	public boolean recordSession()
+	{
+		return recordSession;
+	}
+}
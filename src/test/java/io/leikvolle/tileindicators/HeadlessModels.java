@@ -0,0 +1,120 @@
+package io.leikvolle.tileindicators;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.runelite.api.Model;
+
+/**
+ * Synthetic models for headless rendering, built deterministically from their parameters.
+ */
+final class HeadlessModels
+{
+	private HeadlessModels()
+	{
+	}
+
+	/**
+	 * A sphere of roughly the given number of faces and radius in local units, resting on the ground.
+	 */
+	static Model sphere(int faces, int radius)
+	{
+		final int stacks = Math.max(2, (int) Math.round(Math.sqrt(faces / 4.0)));
+		final int slices = stacks * 2;
+
+		final int vertexCount = (stacks + 1) * slices;
+		final float[] x = new float[vertexCount];
+		final float[] y = new float[vertexCount];
+		final float[] z = new float[vertexCount];
+		for (int stack = 0; stack <= stacks; stack++)
+		{
+			final double phi = Math.PI * stack / stacks;
+			for (int slice = 0; slice < slices; slice++)
+			{
+				final double theta = 2 * Math.PI * slice / slices;
+				final int vertex = stack * slices + slice;
+				x[vertex] = (float) (radius * Math.sin(phi) * Math.cos(theta));
+				z[vertex] = (float) (radius * Math.sin(phi) * Math.sin(theta));
+				// Model heights grow downwards
+				y[vertex] = (float) (-radius - radius * Math.cos(phi));
+			}
+		}
+
+		final int faceCount = 2 * slices * stacks;
+		final int[] a = new int[faceCount];
+		final int[] b = new int[faceCount];
+		final int[] c = new int[faceCount];
+		int face = 0;
+		for (int stack = 0; stack < stacks; stack++)
+		{
+			for (int slice = 0; slice < slices; slice++)
+			{
+				final int v1 = stack * slices + slice;
+				final int v2 = stack * slices + (slice + 1) % slices;
+				final int v3 = v1 + slices;
+				final int v4 = v2 + slices;
+				a[face] = v1;
+				b[face] = v3;
+				c[face++] = v2;
+				a[face] = v2;
+				b[face] = v3;
+				c[face++] = v4;
+			}
+		}
+
+		return model(x, y, z, a, b, c, null);
+	}
+
+	/**
+	 * A box standing on the ground with the given footprint and height in local units. One of the two faces of the
+	 * top is fully transparent when {@code transparentTop} is set, which occluders should ignore.
+	 */
+	static Model box(int width, int height, boolean transparentTop)
+	{
+		final int half = width / 2;
+		final float[] x = {-half, half, half, -half, -half, half, half, -half};
+		final float[] y = {0, 0, 0, 0, -height, -height, -height, -height};
+		final float[] z = {-half, -half, half, half, -half, -half, half, half};
+		// Two triangles per side, wound like the sphere so the outside faces the camera
+		final int[] a = {0, 0, 4, 4, 0, 0, 1, 1, 2, 2, 3, 3};
+		final int[] b = {2, 3, 5, 6, 5, 1, 6, 2, 7, 3, 4, 0};
+		final int[] c = {1, 2, 6, 7, 4, 5, 5, 6, 6, 7, 7, 4};
+		final byte[] transparencies = new byte[a.length];
+		if (transparentTop)
+		{
+			transparencies[2] = (byte) 255;
+		}
+		return model(x, y, z, a, b, c, transparencies);
+	}
+
+	static Model model(float[] x, float[] y, float[] z, int[] a, int[] b, int[] c, byte[] transparencies)
+	{
+		final Map<String, Object> values = new HashMap<>();
+		values.put("getVerticesCount", x.length);
+		values.put("getVerticesX", x);
+		values.put("getVerticesY", y);
+		values.put("getVerticesZ", z);
+		values.put("getFaceCount", a.length);
+		values.put("getFaceIndices1", a);
+		values.put("getFaceIndices2", b);
+		values.put("getFaceIndices3", c);
+		if (transparencies != null)
+		{
+			values.put("getFaceTransparencies", transparencies);
+		}
+
+		// Bounds as the client's calculateBoundsCylinder leaves them
+		int height = 0;
+		int bottomY = 0;
+		int xyzMag = 0;
+		for (int i = 0; i < x.length; i++)
+		{
+			height = Math.max(height, (int) -y[i]);
+			bottomY = Math.max(bottomY, (int) y[i]);
+			xyzMag = Math.max(xyzMag, (int) (x[i] * x[i] + z[i] * z[i]));
+		}
+		values.put("getModelHeight", height);
+		values.put("getBottomY", bottomY);
+		values.put("getXYZMag", (int) (Math.sqrt(xyzMag) + 0.99));
+		return StandIn.of(Model.class, values);
+	}
+}
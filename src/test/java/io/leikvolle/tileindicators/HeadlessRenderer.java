@@ -0,0 +1,104 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import net.runelite.api.Client;
+
+/**
+ * Runs the plugin and its overlay against a {@link HeadlessClient}, drawing frames into a {@link BufferedImage}
+ * on top of a backdrop standing in for the tile overlays that actors should cover.
+ */
+final class HeadlessRenderer
+{
+	private static final Color BACKDROP_LIGHT = new Color(0x8000FFFF, true);
+	private static final Color BACKDROP_DARK = new Color(0xC0FF00FF, true);
+	private static final int BACKDROP_TILE = 16;
+
+	final HeadlessClient client;
+	final HeadlessConfig config;
+	final ImprovedTileIndicatorsPlugin plugin;
+	final ImprovedTileIndicatorsOverlay overlay;
+
+	HeadlessRenderer(HeadlessClient client, HeadlessConfig config)
+	{
+		this.client = client;
+		this.config = config;
+		plugin = new ImprovedTileIndicatorsPlugin();
+		set(ImprovedTileIndicatorsPlugin.class, plugin, "client", client.getClient());
+		set(ImprovedTileIndicatorsPlugin.class, plugin, "config", config);
+
+		try
+		{
+			final Constructor<ImprovedTileIndicatorsOverlay> constructor =
+				ImprovedTileIndicatorsOverlay.class.getDeclaredConstructor(Client.class);
+			constructor.setAccessible(true);
+			overlay = constructor.newInstance(client.getClient());
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		set(ImprovedTileIndicatorsOverlay.class, overlay, "plugin", plugin);
+		set(ImprovedTileIndicatorsPlugin.class, plugin, "overlay", overlay);
+	}
+
+	/**
+	 * Re-reads the tag lists from the config and tracks the matching NPCs, as starting the plugin would.
+	 */
+	void rebuild()
+	{
+		plugin.rebuild();
+	}
+
+	BufferedImage render()
+	{
+		final BufferedImage image = newImage(client);
+		final Graphics2D graphics = image.createGraphics();
+		paintBackdrop(graphics, client);
+		// Tests change the config and the NPCs between frames, so both are published again as a config change
+		// and a game tick would
+		plugin.updateConfigSnapshot();
+		plugin.publishTrackedNpcs();
+		overlay.render(graphics);
+		graphics.dispose();
+		return image;
+	}
+
+	static BufferedImage newImage(HeadlessClient client)
+	{
+		return new BufferedImage(client.viewportX + client.viewportWidth, client.viewportY + client.viewportHeight, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	/**
+	 * Fills the viewport with a translucent checkerboard, so that every pixel an actor clears is visible.
+	 */
+	static void paintBackdrop(Graphics2D graphics, HeadlessClient client)
+	{
+		for (int y = 0; y < client.viewportHeight; y += BACKDROP_TILE)
+		{
+			for (int x = 0; x < client.viewportWidth; x += BACKDROP_TILE)
+			{
+				graphics.setColor(((x + y) / BACKDROP_TILE & 1) == 0 ? BACKDROP_LIGHT : BACKDROP_DARK);
+				graphics.fillRect(client.viewportX + x, client.viewportY + y,
+					Math.min(BACKDROP_TILE, client.viewportWidth - x), Math.min(BACKDROP_TILE, client.viewportHeight - y));
+			}
+		}
+	}
+
+	private static <T> void set(Class<T> type, T target, String name, Object value)
+	{
+		try
+		{
+			final Field field = type.getDeclaredField(name);
+			field.setAccessible(true);
+			field.set(target, value);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
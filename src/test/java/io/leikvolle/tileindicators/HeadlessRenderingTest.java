@@ -0,0 +1,471 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import net.runelite.api.Actor;
+import net.runelite.api.NPC;
+import net.runelite.api.Perspective;
+import net.runelite.api.Player;
+import net.runelite.api.Point;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.coords.WorldPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HeadlessRenderingTest
+{
+	private static final LocalPoint PLAYER_LOCATION = LocalPoint.fromScene(52, 52);
+
+	private HeadlessClient client;
+	private HeadlessConfig config;
+	private HeadlessRenderer renderer;
+	private final List<Actor> tracked = new ArrayList<>();
+	private HeadlessActor player;
+	private HeadlessActor guard;
+	private HeadlessActor archer;
+	private NPC archerNpc;
+
+	@Before
+	public void setUp()
+	{
+		client = new HeadlessClient();
+		client.lookAt(PLAYER_LOCATION, 1800, 300, 200);
+		player = new HeadlessActor(0, -1, "Player", PLAYER_LOCATION, HeadlessModels.sphere(800, 50));
+		tracked.add(client.setLocalPlayer(player));
+
+		config = new HeadlessConfig();
+		config.overlaysBelowNPCs = true;
+		config.topNPCs = "Guard,Goblin*";
+		config.topNPCIds = "3000";
+
+		// A ring of NPCs around the player, in front of and behind it, with one that is not tagged
+		for (int i = 0; i < 12; i++)
+		{
+			final double angle = 2 * Math.PI * i / 12;
+			final LocalPoint location = new LocalPoint(
+				PLAYER_LOCATION.getX() + (int) (300 * Math.cos(angle)),
+				PLAYER_LOCATION.getY() + (int) (300 * Math.sin(angle)));
+			final HeadlessActor actor;
+			switch (i % 4)
+			{
+				case 0:
+					actor = new HeadlessActor(i + 1, 100, "Guard", location, HeadlessModels.sphere(300 + 200 * i, 55));
+					if (guard == null)
+					{
+						guard = actor;
+					}
+					break;
+				case 1:
+					actor = new HeadlessActor(i + 1, 200, "Goblin archer", location, HeadlessModels.box(90, 160, true));
+					break;
+				case 2:
+					actor = new HeadlessActor(i + 1, 3000, "Hunllef", location, HeadlessModels.box(200, 260, false));
+					actor.size = 2;
+					break;
+				default:
+					actor = new HeadlessActor(i + 1, 400, i == 3 ? "Cow" : "Guard", location, HeadlessModels.sphere(1200, 40));
+			}
+			actor.orientation = i * 170;
+			final NPC npc = client.addNpc(actor);
+			if (i == 9)
+			{
+				archer = actor;
+				archerNpc = npc;
+			}
+			if (!"Cow".equals(actor.name))
+			{
+				tracked.add(npc);
+			}
+		}
+
+		renderer = new HeadlessRenderer(client, config);
+		renderer.rebuild();
+	}
+
+	@Test
+	public void testTracksTaggedNpcs()
+	{
+		assertEquals(tracked.size() - 1, renderer.plugin.getOnTopNpcs().size());
+	}
+
+	@Test
+	public void testMatchesReferenceRenderer()
+	{
+		exactOnly();
+		final BufferedImage expected = ReferenceRenderer.render(client, tracked.toArray(new Actor[0]));
+		assertSimilar(expected, renderer.render(), 0.01);
+	}
+
+	@Test
+	public void testOutlineMatchesExact()
+	{
+		exactOnly();
+		final BufferedImage exact = renderer.render();
+		config.outlineDistance = 0;
+		assertSimilar(exact, renderer.render(), 0.01);
+	}
+
+	@Test
+	public void testHullCoversExact()
+	{
+		exactOnly();
+		final BufferedImage exact = renderer.render();
+		config.hullDistance = 0;
+		final BufferedImage hull = renderer.render();
+
+		int cleared = 0;
+		int uncovered = 0;
+		for (int y = client.viewportY; y < client.viewportY + client.viewportHeight; y++)
+		{
+			for (int x = client.viewportX; x < client.viewportX + client.viewportWidth; x++)
+			{
+				if (exact.getRGB(x, y) == 0)
+				{
+					cleared++;
+					if (hull.getRGB(x, y) != 0)
+					{
+						uncovered++;
+					}
+				}
+			}
+		}
+		assertTrue(cleared > 0);
+		assertTrue(uncovered + " of " + cleared + " pixels not covered by the hulls", uncovered <= cleared * 0.01);
+	}
+
+	@Test
+	public void testCachedSilhouettesRedrawTheSameFrame()
+	{
+		final SilhouetteCache cache = renderer.overlay.getWorker().getSynchronousBuilder().getSilhouetteCache();
+		final BufferedImage first = renderer.render();
+		final long hits = cache.getHits();
+
+		// Only the turned NPC's silhouette has to be built again
+		guard.orientation = (guard.orientation + 256) & 2047;
+		renderer.render();
+		assertEquals(hits + tracked.size() - 1, cache.getHits());
+
+		guard.orientation = (guard.orientation - 256) & 2047;
+		assertSimilar(first, renderer.render(), 0);
+
+		// Moving the camera has to invalidate every silhouette
+		client.lookAt(PLAYER_LOCATION, 1800, 300, 400);
+		final long misses = cache.getMisses();
+		renderer.render();
+		assertEquals(misses + tracked.size(), cache.getMisses());
+	}
+
+	@Test
+	public void testBackgroundCoverageLagsAtMostOneFrame() throws InterruptedException
+	{
+		final LocalPoint start = guard.location;
+		final LocalPoint next = new LocalPoint(start.getX() + Perspective.LOCAL_TILE_SIZE, start.getY());
+		guard.location = next;
+		final BufferedImage moved = renderer.render();
+		guard.location = start;
+		final BufferedImage still = renderer.render();
+		assertTrue(mismatched(still, moved) > 0);
+
+		// Nothing has been built in the background yet, so the first frame is built on this thread
+		config.backgroundCoverage = true;
+		final CoverageWorker worker = renderer.overlay.getWorker();
+		assertSimilar(still, renderer.render(), 0);
+		awaitIdle(worker);
+		assertSimilar(still, renderer.render(), 0);
+		assertEquals(tracked.size(), worker.getBackgroundBuilder().getSilhouetteCache().getMisses());
+
+		// The frame the NPC moves on still shows last frame's coverage, the one after catches up
+		guard.location = next;
+		assertSimilar(still, renderer.render(), 0);
+		awaitIdle(worker);
+		assertSimilar(moved, renderer.render(), 0);
+		worker.shutDown();
+	}
+
+	@Test
+	public void testMoreOccludersThanCachedSilhouettes()
+	{
+		exactOnly();
+		final SilhouetteCache cache = renderer.overlay.getWorker().getSynchronousBuilder().getSilhouetteCache();
+		// A crowd of small guards on a grid in front of the player, together well over the cache's 64 entries
+		final List<HeadlessActor> moving = new ArrayList<>();
+		for (int i = 0; i < 90; i++)
+		{
+			final LocalPoint location = LocalPoint.fromScene(43 + i % 10 * 2, 40 + i / 10);
+			final HeadlessActor actor = new HeadlessActor(100 + i, 100, "Guard", location, HeadlessModels.sphere(150 + i % 7 * 40, 30));
+			actor.orientation = i * 97 & 2047;
+			tracked.add(client.addNpc(actor));
+			if (i % 3 == 0)
+			{
+				moving.add(actor);
+			}
+		}
+		renderer.rebuild();
+
+		// A third of the crowd steps back and forth while the rest stand still, so some silhouettes are reused
+		// and some rebuilt in every frame
+		for (int frame = 0; frame < 6; frame++)
+		{
+			for (HeadlessActor actor : moving)
+			{
+				final int step = (frame & 1) == 0 ? Perspective.LOCAL_TILE_SIZE : -Perspective.LOCAL_TILE_SIZE;
+				actor.location = new LocalPoint(actor.location.getX() + step, actor.location.getY());
+			}
+			final BufferedImage expected = ReferenceRenderer.render(client, tracked.toArray(new Actor[0]));
+			assertSimilar(expected, renderer.render(), 0.01);
+		}
+		assertTrue(cache.getHits() > 0);
+	}
+
+	@Test
+	public void testNpcsFightingThePlayerComeFirst()
+	{
+		final ImprovedTileIndicatorsOverlay overlay = renderer.overlay;
+		overlay.collectNpcs(renderer.plugin.getTrackedNpcs(), PLAYER_LOCATION, tracked.size());
+		overlay.selectNext(0);
+		assertNotEquals(archerNpc, overlay.getScratch().actors[0]);
+
+		archer.interacting = client.getClient().getLocalPlayer();
+		overlay.collectNpcs(renderer.plugin.getTrackedNpcs(), PLAYER_LOCATION, tracked.size());
+		overlay.selectNext(0);
+		assertEquals(archerNpc, overlay.getScratch().actors[0]);
+
+		// The NPC the player fights is collected even when it is not among the nearest
+		archer.interacting = null;
+		player.interacting = archerNpc;
+		overlay.getScratch().releaseActors();
+		assertEquals(2, overlay.collectNpcs(renderer.plugin.getTrackedNpcs(), PLAYER_LOCATION, 1));
+		overlay.selectNext(0);
+		assertEquals(archerNpc, overlay.getScratch().actors[0]);
+		overlay.getScratch().releaseActors();
+	}
+
+	@Test
+	public void testDrawsBelowPickedOtherPlayers()
+	{
+		exactOnly();
+		config.overlaysBelowOtherPlayers = true;
+		config.otherPlayerNames = "Zezima*";
+		renderer.rebuild();
+
+		// A friend, a clan member, one picked by name and a stranger, further out than the NPCs
+		final List<Actor> picked = new ArrayList<>(tracked);
+		final List<Actor> all = new ArrayList<>(tracked);
+		for (int i = 0; i < 4; i++)
+		{
+			final double angle = 2 * Math.PI * i / 4 + Math.PI / 4;
+			final LocalPoint location = new LocalPoint(
+				PLAYER_LOCATION.getX() + (int) (600 * Math.cos(angle)),
+				PLAYER_LOCATION.getY() + (int) (600 * Math.sin(angle)));
+			final HeadlessActor other = new HeadlessActor(i + 1, -1, i == 2 ? "Zezima\u00A0alt" : "Player " + i, location, HeadlessModels.sphere(600, 50));
+			other.friend = i == 0;
+			other.clanMember = i == 1;
+			final Player added = client.addPlayer(other);
+			all.add(added);
+			if (i < 3)
+			{
+				picked.add(added);
+			}
+		}
+
+		final BufferedImage expected = ReferenceRenderer.render(client, picked.toArray(new Actor[0]));
+		final BufferedImage actual = renderer.render();
+		assertSimilar(expected, actual, 0.01);
+		assertTrue(mismatched(ReferenceRenderer.render(client, all.toArray(new Actor[0])), actual) > 0);
+
+		config.otherPlayersFriends = false;
+		config.otherPlayersClan = false;
+		picked.remove(tracked.size());
+		picked.remove(tracked.size());
+		assertSimilar(ReferenceRenderer.render(client, picked.toArray(new Actor[0])), renderer.render(), 0.01);
+	}
+
+	@Test
+	public void testCullsActorsOutOfView()
+	{
+		config.overlaysBelowPlayer = true;
+		config.debugFrameTimings = true;
+		final FrameProfiler profiler = renderer.plugin.getProfiler();
+
+		renderer.render();
+		assertEquals(0, profiler.percentile(FrameProfiler.Counter.ACTORS_CULLED, 0.5));
+
+		// Look at the ground further north, with the player and the crowd behind the camera
+		client.lookAt(new LocalPoint(PLAYER_LOCATION.getX(), PLAYER_LOCATION.getY() + 20 * 128), 600, 300, 0);
+		// Re-enabling on the next frame starts a new window
+		profiler.setEnabled(false);
+		renderer.render();
+		assertEquals(tracked.size(), profiler.percentile(FrameProfiler.Counter.ACTORS_CULLED, 0.5));
+		assertEquals(0, profiler.percentile(FrameProfiler.Counter.VERTICES_PROJECTED, 0.5));
+	}
+
+	@Test
+	public void testGoldenCrowd() throws Exception
+	{
+		GoldenImages.assertMatches("crowd", renderer.render(), ReferenceRenderer.render(client), 0.02);
+	}
+
+	@Test
+	public void testGoldenDestination() throws Exception
+	{
+		config.overlaysBelowNPCs = false;
+		config.customDestinationTile = true;
+		config.highlightDestinationStyle = TileStyle.RS3_NO_ARROW;
+		client.destination = LocalPoint.fromScene(PLAYER_LOCATION.getSceneX() + 2, PLAYER_LOCATION.getSceneY() + 3);
+		renderer.render();
+		// The ring grows to its full size over the first few game cycles
+		client.gameCycle = 10;
+		GoldenImages.assertMatches("destination", renderer.render(), ReferenceRenderer.render(client), 0.02);
+	}
+
+	@Test
+	public void testArrowIsDrawnFromCachedSprites()
+	{
+		config.overlaysBelowNPCs = false;
+		config.customDestinationTile = true;
+		config.highlightDestinationStyle = TileStyle.RS3_NO_ARROW;
+		client.destination = LocalPoint.fromScene(PLAYER_LOCATION.getSceneX() + 2, PLAYER_LOCATION.getSceneY() + 3);
+		final BufferedImage withoutArrow = renderer.render();
+		config.highlightDestinationStyle = TileStyle.RS3;
+		final BufferedImage withArrow = renderer.render();
+
+		int arrowPixels = 0;
+		for (int y = client.viewportY; y < client.viewportY + client.viewportHeight; y++)
+		{
+			for (int x = client.viewportX; x < client.viewportX + client.viewportWidth; x++)
+			{
+				if (withArrow.getRGB(x, y) != withoutArrow.getRGB(x, y))
+				{
+					arrowPixels++;
+				}
+			}
+		}
+		assertTrue(arrowPixels > 100);
+
+		// The arrow bobs every frame but stays the same size until the camera zooms
+		for (int cycle = 1; cycle < 50; cycle++)
+		{
+			client.gameCycle = cycle;
+			renderer.render();
+		}
+		assertEquals(1, renderer.overlay.getArrowSprites().size());
+	}
+
+	@Test
+	public void testTrueTileMarkersMatchSeparatePolygons()
+	{
+		config.overlaysBelowPlayer = false;
+		config.overlaysBelowNPCs = false;
+		config.trueTileMarkers = true;
+		config.trueTileBorderWidth = 2;
+		final HeadlessActor friend = new HeadlessActor(1, -1, "Friend", LocalPoint.fromScene(55, 50), HeadlessModels.sphere(600, 50));
+		friend.friend = true;
+		final Player friendPlayer = client.addPlayer(friend);
+
+		// The straightforward way: one polygon and one draw call per marker
+		final BufferedImage expected = HeadlessRenderer.newImage(client);
+		final Graphics2D graphics = expected.createGraphics();
+		HeadlessRenderer.paintBackdrop(graphics, client);
+		graphics.setStroke(new BasicStroke(2));
+		graphics.setColor(config.trueTileNpcColor);
+		for (Actor actor : tracked.subList(1, tracked.size()))
+		{
+			graphics.draw(tilePolygon(actor.getWorldLocation(), ((NPC) actor).getTransformedComposition().getSize()));
+		}
+		graphics.setColor(config.trueTilePlayerColor);
+		graphics.draw(tilePolygon(friendPlayer.getWorldLocation(), 1));
+		graphics.dispose();
+
+		final BufferedImage actual = renderer.render();
+		int marked = 0;
+		int differing = 0;
+		for (int y = client.viewportY; y < client.viewportY + client.viewportHeight; y++)
+		{
+			for (int x = client.viewportX; x < client.viewportX + client.viewportWidth; x++)
+			{
+				final int rgb = expected.getRGB(x, y);
+				if (rgb == config.trueTileNpcColor.getRGB() || rgb == config.trueTilePlayerColor.getRGB())
+				{
+					marked++;
+				}
+				if (rgb != actual.getRGB(x, y))
+				{
+					differing++;
+				}
+			}
+		}
+		assertTrue(marked > 100);
+		assertTrue(differing + " of " + marked + " marked pixels differ", differing <= marked / 100);
+	}
+
+	private Polygon tilePolygon(WorldPoint location, int size)
+	{
+		final int x = location.getX() - client.baseX << Perspective.LOCAL_COORD_BITS;
+		final int y = location.getY() - client.baseY << Perspective.LOCAL_COORD_BITS;
+		final int extent = size << Perspective.LOCAL_COORD_BITS;
+		final Polygon polygon = new Polygon();
+		for (int[] corner : new int[][]{{x, y}, {x + extent, y}, {x + extent, y + extent}, {x, y + extent}})
+		{
+			final Point point = Perspective.localToCanvas(client.getClient(), corner[0], corner[1], 0);
+			polygon.addPoint(point.getX(), point.getY());
+		}
+		return polygon;
+	}
+
+	private void exactOnly()
+	{
+		config.outlineDistance = 104;
+		config.hullDistance = 104;
+	}
+
+	private void assertSimilar(BufferedImage expected, BufferedImage actual, double tolerance)
+	{
+		int cleared = 0;
+		for (int y = client.viewportY; y < client.viewportY + client.viewportHeight; y++)
+		{
+			for (int x = client.viewportX; x < client.viewportX + client.viewportWidth; x++)
+			{
+				if (expected.getRGB(x, y) == 0)
+				{
+					cleared++;
+				}
+			}
+		}
+		final int mismatched = mismatched(expected, actual);
+		assertTrue(cleared > 0);
+		assertTrue(mismatched + " of " + cleared + " cleared pixels differ", mismatched <= cleared * tolerance);
+	}
+
+	private int mismatched(BufferedImage expected, BufferedImage actual)
+	{
+		int mismatched = 0;
+		for (int y = client.viewportY; y < client.viewportY + client.viewportHeight; y++)
+		{
+			for (int x = client.viewportX; x < client.viewportX + client.viewportWidth; x++)
+			{
+				if ((expected.getRGB(x, y) == 0) != (actual.getRGB(x, y) == 0))
+				{
+					mismatched++;
+				}
+			}
+		}
+		return mismatched;
+	}
+
+	private static void awaitIdle(CoverageWorker worker) throws InterruptedException
+	{
+		for (int i = 0; i < 500 && worker.isBusy(); i++)
+		{
+			Thread.sleep(10);
+		}
+		assertFalse(worker.isBusy());
+	}
+}
@@ -0,0 +1,76 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Random;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+/**
+ * Sweeps the number of tagged NPCs, their model size and the frame budget and prints the overlay's frame time
+ * percentiles for each combination. The camera turns a little every frame, so every silhouette is rebuilt every
+ * frame. Only runs with {@code -Ptileindicators.stress=true}.
+ */
+public class HeadlessStressTest
+{
+	private static final int[] NPC_COUNTS = {1, 10, 50, 100};
+	private static final int[] FACE_COUNTS = {500, 2000, 10000};
+	private static final int[] BUDGETS = {0, 1000};
+	private static final int WARMUP_FRAMES = 100;
+	private static final int FRAMES = 256;
+
+	@Test
+	public void testFrameTimeSweep()
+	{
+		assumeTrue(Boolean.getBoolean("tileindicators.stress"));
+
+		System.out.printf("%6s %6s %12s %10s %10s %12s %9s%n", "npcs", "faces", "budget (us)", "p50 (us)", "p99 (us)", "tris/frame", "degraded");
+		for (int npcs : NPC_COUNTS)
+		{
+			for (int faces : FACE_COUNTS)
+			{
+				for (int budget : BUDGETS)
+				{
+					run(npcs, faces, budget);
+				}
+			}
+		}
+	}
+
+	private static void run(int npcCount, int faces, int budget)
+	{
+		final LocalPoint centre = LocalPoint.fromScene(52, 52);
+		final HeadlessClient client = new HeadlessClient();
+		client.setLocalPlayer(new HeadlessActor(0, -1, "Player", centre, HeadlessModels.sphere(faces, 50)));
+
+		final Random random = new Random(npcCount * 31 + faces);
+		for (int i = 0; i < npcCount; i++)
+		{
+			final LocalPoint location = LocalPoint.fromScene(44 + random.nextInt(17), 44 + random.nextInt(17));
+			final HeadlessActor actor = new HeadlessActor(i + 1, 1, "Stress", location, HeadlessModels.sphere(faces, 40 + random.nextInt(40)));
+			actor.orientation = random.nextInt(2048);
+			client.addNpc(actor);
+		}
+
+		final HeadlessConfig config = new HeadlessConfig();
+		config.overlaysBelowNPCs = true;
+		config.frameBudget = budget;
+		config.topNPCs = "Stress";
+		config.debugFrameTimings = true;
+
+		final HeadlessRenderer renderer = new HeadlessRenderer(client, config);
+		renderer.rebuild();
+
+		for (int frame = 0; frame < WARMUP_FRAMES + FRAMES; frame++)
+		{
+			client.lookAt(centre, 2000, 300, frame * 3 & 2047);
+			renderer.render();
+		}
+
+		final FrameProfiler profiler = renderer.plugin.getProfiler();
+		System.out.printf("%6d %6d %12d %10d %10d %12d %9d%n", npcCount, faces, budget,
+			profiler.percentile(FrameProfiler.Phase.TOTAL, 0.5) / 1000,
+			profiler.percentile(FrameProfiler.Phase.TOTAL, 0.99) / 1000,
+			profiler.percentile(FrameProfiler.Counter.TRIANGLES_FILLED, 0.5),
+			profiler.percentile(FrameProfiler.Counter.ACTORS_DEGRADED, 0.5));
+	}
+}
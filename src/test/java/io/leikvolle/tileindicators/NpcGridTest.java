@@ -0,0 +1,161 @@
+package io.leikvolle.tileindicators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import net.runelite.api.NPC;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NpcGridTest
+{
+	private static final LocalPoint PLAYER_LOCATION = LocalPoint.fromScene(52, 52);
+
+	private final Random random = new Random(7);
+	private final HeadlessClient client = new HeadlessClient();
+	private final NpcIndexSet tracked = new NpcIndexSet();
+	private final List<HeadlessActor> actors = new ArrayList<>();
+	private final NpcGrid grid = new NpcGrid();
+
+	@Before
+	public void setUp()
+	{
+		for (int i = 0; i < 500; i++)
+		{
+			final HeadlessActor actor = new HeadlessActor(i * 7, 1, "Scattered", randomLocation(), null);
+			client.addNpc(actor);
+			tracked.add(actor.index);
+			actors.add(actor);
+		}
+		grid.update(client.cachedNpcs, tracked.snapshot(), client.tickCount);
+	}
+
+	private LocalPoint randomLocation()
+	{
+		return new LocalPoint(random.nextInt(104 * 128), random.nextInt(104 * 128));
+	}
+
+	@Test
+	public void testNearestMatchesSort()
+	{
+		final NPC[] npcs = new NPC[tracked.size()];
+		final int[] distances = new int[tracked.size()];
+		for (int round = 0; round < 20; round++)
+		{
+			final LocalPoint from = randomLocation();
+			for (int limit : new int[]{1, 5, 50, 1000})
+			{
+				final int count = grid.nearest(client.cachedNpcs, from, limit, npcs, distances);
+				final int[] expected = sortedDistances(from);
+				assertEquals(Math.min(limit, expected.length), count);
+				assertEquals(Arrays.toString(Arrays.copyOf(expected, count)), Arrays.toString(Arrays.copyOf(distances, count)));
+				for (int i = 0; i < count; i++)
+				{
+					assertEquals(distances[i], npcs[i].getLocalLocation().distanceTo(from));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFollowsMovesAndDespawns()
+	{
+		// Walking up to the margin is found before the next update, further needs the tick to have passed
+		for (HeadlessActor actor : actors)
+		{
+			actor.location = new LocalPoint(
+				Math.max(0, Math.min(104 * 128 - 1, actor.location.getX() + (random.nextInt(5) - 2) * 128)),
+				Math.max(0, Math.min(104 * 128 - 1, actor.location.getY() + (random.nextInt(5) - 2) * 128)));
+		}
+		final NPC[] npcs = new NPC[tracked.size()];
+		final int[] distances = new int[tracked.size()];
+		int count = grid.nearest(client.cachedNpcs, PLAYER_LOCATION, 10, npcs, distances);
+		assertEquals(Arrays.toString(Arrays.copyOf(sortedDistances(PLAYER_LOCATION), 10)), Arrays.toString(Arrays.copyOf(distances, count)));
+
+		for (int i = 0; i < 100; i++)
+		{
+			final HeadlessActor actor = actors.remove(actors.size() - 1);
+			client.removeNpc(client.cachedNpcs[actor.index]);
+			tracked.remove(actor.index);
+		}
+		for (HeadlessActor actor : actors)
+		{
+			actor.location = randomLocation();
+		}
+		client.tickCount++;
+		grid.update(client.cachedNpcs, tracked.snapshot(), client.tickCount);
+		assertEquals(actors.size(), grid.size());
+
+		count = grid.nearest(client.cachedNpcs, PLAYER_LOCATION, 10, npcs, distances);
+		assertEquals(Arrays.toString(Arrays.copyOf(sortedDistances(PLAYER_LOCATION), 10)), Arrays.toString(Arrays.copyOf(distances, count)));
+	}
+
+	@Test
+	public void testRegionMatchesFilter()
+	{
+		final NPC[] npcs = new NPC[tracked.size()];
+		for (int round = 0; round < 50; round++)
+		{
+			final int minX = random.nextInt(104);
+			final int minY = random.nextInt(104);
+			final int maxX = minX + random.nextInt(20);
+			final int maxY = minY + random.nextInt(20);
+			final int count = grid.inRegion(client.cachedNpcs, minX, minY, maxX, maxY, npcs);
+
+			final Set<NPC> expected = new HashSet<>();
+			for (HeadlessActor actor : actors)
+			{
+				final LocalPoint location = actor.location;
+				if (location.getSceneX() >= minX && location.getSceneX() <= maxX && location.getSceneY() >= minY && location.getSceneY() <= maxY)
+				{
+					expected.add(client.cachedNpcs[actor.index]);
+				}
+			}
+			assertEquals(expected, new HashSet<>(Arrays.asList(npcs).subList(0, count)));
+		}
+	}
+
+	@Test
+	public void testViewContainsEveryNpcOnScreen()
+	{
+		client.lookAt(PLAYER_LOCATION, 1800, 300, 400);
+		final ProjectionEngine projection = new ProjectionEngine();
+		projection.begin(client.getClient());
+
+		final NPC[] npcs = new NPC[tracked.size()];
+		final int count = grid.inView(client.cachedNpcs, projection, 0, 400, npcs);
+		final Set<NPC> inView = new HashSet<>(Arrays.asList(npcs).subList(0, count));
+		assertTrue(count < actors.size());
+
+		int onScreen = 0;
+		for (HeadlessActor actor : actors)
+		{
+			final int offset = projection.projectPoint(actor.location.getX(), actor.location.getY(), 0);
+			final int x = projection.x2d[offset];
+			final int y = projection.y2d[offset];
+			if (x >= client.viewportX && x < client.viewportX + client.viewportWidth && y >= client.viewportY && y < client.viewportY + client.viewportHeight)
+			{
+				onScreen++;
+				assertTrue(inView.contains(client.cachedNpcs[actor.index]));
+			}
+		}
+		assertTrue(onScreen > 0);
+	}
+
+	private int[] sortedDistances(LocalPoint from)
+	{
+		final int[] distances = new int[actors.size()];
+		for (int i = 0; i < actors.size(); i++)
+		{
+			distances[i] = actors.get(i).location.distanceTo(from);
+		}
+		Arrays.sort(distances);
+		return distances;
+	}
+}
@@ -0,0 +1,78 @@
+package io.leikvolle.tileindicators;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class NpcIndexSetTest
+{
+	@Test
+	public void testMatchesHashSet()
+	{
+		final Random random = new Random(42);
+		final NpcIndexSet set = new NpcIndexSet();
+		final Set<Integer> expected = new HashSet<>();
+
+		for (int op = 0; op < 100_000; op++)
+		{
+			final int index = random.nextInt(op < 50_000 ? 300 : 65536);
+			switch (random.nextInt(3))
+			{
+				case 0:
+					assertEquals(expected.add(index), set.add(index));
+					break;
+				case 1:
+					assertEquals(expected.remove(index), set.remove(index));
+					break;
+				default:
+					assertEquals(expected.contains(index), set.contains(index));
+			}
+		}
+
+		assertEquals(expected.size(), set.size());
+		final Set<Integer> iterated = new HashSet<>();
+		for (int i = 0; i < set.size(); i++)
+		{
+			assertTrue(iterated.add(set.get(i)));
+		}
+		assertEquals(expected, iterated);
+	}
+
+	@Test
+	public void testClear()
+	{
+		final NpcIndexSet set = new NpcIndexSet();
+		set.add(5);
+		set.add(40000);
+		set.clear();
+		assertEquals(0, set.size());
+		assertFalse(set.contains(5));
+		assertFalse(set.contains(40000));
+		assertTrue(set.add(5));
+	}
+
+	@Test
+	public void testSnapshotKeepsItsMembers()
+	{
+		final NpcIndexSet set = new NpcIndexSet();
+		set.add(5);
+		set.add(700);
+		final NpcIndexSnapshot snapshot = set.snapshot();
+		set.remove(5);
+		set.add(40000);
+
+		assertEquals(2, snapshot.size());
+		assertTrue(snapshot.contains(5));
+		assertTrue(snapshot.contains(700));
+		assertFalse(snapshot.contains(40000));
+		assertFalse(snapshot.contains(-1));
+		assertEquals(5, snapshot.get(0));
+		assertEquals(700, snapshot.get(1));
+		assertTrue(snapshot.getVersion() != set.getVersion());
+		assertEquals(set.getVersion(), set.snapshot().getVersion());
+	}
+}
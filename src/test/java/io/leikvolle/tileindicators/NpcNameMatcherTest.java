@@ -0,0 +1,67 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.runelite.client.util.WildcardMatcher;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class NpcNameMatcherTest
+{
+	private static final List<String> PATTERNS = Arrays.asList("Hunllef", "corrupted*", "*dragon", "Vet'ion", "tz*-*");
+	private static final List<String> NAMES = Arrays.asList("Hunllef", "hunllef", "Corrupted Hunllef",
+		"Black dragon", "Dragon", "Baby dragon", "Vet'ion", "Vet'ion Reborn", "TzTok-Jad", "TzHaar-Ket", "Goblin",
+		"Corrupted*", "");
+
+	@Test
+	public void testMatchesLikeWildcardMatcher()
+	{
+		assertMatchesLikeWildcardMatcher(new NpcNameMatcher(PATTERNS));
+	}
+
+	@Test
+	public void testUnmemoizedMatchesLikeWildcardMatcher()
+	{
+		assertMatchesLikeWildcardMatcher(new NpcNameMatcher(PATTERNS, false));
+	}
+
+	@Test
+	public void testEmptyList()
+	{
+		final NpcNameMatcher matcher = new NpcNameMatcher(Collections.emptyList());
+		assertFalse(matcher.matches("Hunllef"));
+		assertFalse(matcher.isListed("Hunllef"));
+		assertFalse(matcher.matchesWildcard("Hunllef"));
+	}
+
+	@Test
+	public void testRegexCharactersAreLiteral()
+	{
+		final NpcNameMatcher matcher = new NpcNameMatcher(Collections.singletonList("Dusk (.*"));
+		assertTrue(matcher.matches("Dusk (.* first form"));
+		assertFalse(matcher.matches("Dusk"));
+	}
+
+	private static void assertMatchesLikeWildcardMatcher(NpcNameMatcher matcher)
+	{
+		// Twice over, so the memoized results are checked as well
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (String name : NAMES)
+			{
+				final boolean expected = PATTERNS.stream().anyMatch(pattern -> WildcardMatcher.matches(pattern, name));
+				final boolean expectedListed = PATTERNS.stream().anyMatch(name::equalsIgnoreCase);
+				final boolean expectedWildcard = PATTERNS.stream()
+					.filter(pattern -> !pattern.equalsIgnoreCase(name))
+					.anyMatch(pattern -> WildcardMatcher.matches(pattern, name));
+
+				assertEquals(name, expected, matcher.matches(name));
+				assertEquals(name, expectedListed, matcher.isListed(name));
+				assertEquals(name, expectedWildcard, matcher.matchesWildcard(name));
+			}
+		}
+	}
+}
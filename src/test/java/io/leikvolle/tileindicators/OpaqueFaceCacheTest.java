@@ -0,0 +1,132 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Arrays;
+import net.runelite.api.Model;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class OpaqueFaceCacheTest
+{
+	@Test
+	public void testPacksOpaqueFaces()
+	{
+		final Model model = HeadlessModels.box(128, 256, true);
+		final OpaqueFaceCache.OpaqueFaces faces = new OpaqueFaceCache().get(model, 0);
+
+		assertEquals(12, faces.faceCount);
+		assertEquals(11, faces.count);
+		// The transparent third face is left out, the others keep their order
+		assertArrayEquals(new int[]{0, 2, 1, 0, 3, 2, 4, 6, 7}, Arrays.copyOf(faces.faces, 9));
+	}
+
+	@Test
+	public void testPacksEveryFaceWithoutTransparencies()
+	{
+		final OpaqueFaceCache.OpaqueFaces faces = new OpaqueFaceCache().get(HeadlessModels.sphere(200, 50), 0);
+		assertEquals(faces.faceCount, faces.count);
+	}
+
+	@Test
+	public void testReusesEntries()
+	{
+		final OpaqueFaceCache cache = new OpaqueFaceCache();
+		final Model model = HeadlessModels.box(128, 256, true);
+
+		final OpaqueFaceCache.OpaqueFaces first = cache.get(model, 0);
+		assertSame(first, cache.get(model, 0));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testSamePoseIsNotRescanned()
+	{
+		final OpaqueFaceCache cache = new OpaqueFaceCache();
+		final Model model = HeadlessModels.box(128, 256, true);
+		final OpaqueFaceCache.OpaqueFaces before = cache.get(model, 1);
+
+		// Transparency only changes along with the pose, so a change without one goes unnoticed
+		model.getFaceTransparencies()[2] = 0;
+		assertSame(before, cache.get(model, 1));
+		assertEquals(0, cache.getRescans());
+	}
+
+	@Test
+	public void testRebuildsWhenTransparencyChangesWithPose()
+	{
+		final OpaqueFaceCache cache = new OpaqueFaceCache();
+		final Model model = HeadlessModels.box(128, 256, true);
+		final OpaqueFaceCache.OpaqueFaces before = cache.get(model, 1);
+
+		// A new pose with the same transparencies is rescanned but kept
+		assertSame(before, cache.get(model, 2));
+		assertEquals(1, cache.getRescans());
+
+		// As when the client animates transparency in place
+		model.getFaceTransparencies()[2] = 0;
+		final OpaqueFaceCache.OpaqueFaces after = cache.get(model, 3);
+		assertNotSame(before, after);
+		assertEquals(12, after.count);
+		assertEquals(11, before.count);
+		assertEquals(1, cache.size());
+		assertSame(after, cache.get(model, 3));
+	}
+
+	@Test
+	public void testPairsSharedEdges()
+	{
+		// Every edge of a closed box is shared by exactly two faces
+		final OpaqueFaceCache.OpaqueFaces faces = new OpaqueFaceCache().get(HeadlessModels.box(128, 256, false), 0);
+		for (int edge = 0; edge < faces.count * 3; edge++)
+		{
+			final int neighbour = faces.neighbours[edge];
+			assertTrue(neighbour >= 0 && neighbour != edge / 3);
+			final int from = faces.faces[edge];
+			final int to = faces.faces[edge % 3 == 2 ? edge - 2 : edge + 1];
+			assertTrue(sharesEdge(faces.faces, neighbour, to, from));
+		}
+
+		// The transparent face leaves the faces around it without a neighbour on one edge each
+		final OpaqueFaceCache.OpaqueFaces open = new OpaqueFaceCache().get(HeadlessModels.box(128, 256, true), 0);
+		assertEquals(3, Arrays.stream(open.neighbours).filter(neighbour -> neighbour < 0).count());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed()
+	{
+		final OpaqueFaceCache cache = new OpaqueFaceCache();
+		final Model[] models = new Model[OpaqueFaceCache.MAX_ENTRIES];
+		for (int i = 0; i < models.length; i++)
+		{
+			models[i] = HeadlessModels.box(128, 256, false);
+			cache.get(models[i], 0);
+		}
+
+		// The first model is used again, so the second is now the least recently used
+		final OpaqueFaceCache.OpaqueFaces first = cache.get(models[0], 0);
+		cache.get(HeadlessModels.box(128, 256, false), 0);
+		assertEquals(OpaqueFaceCache.MAX_ENTRIES, cache.size());
+
+		final long misses = cache.getMisses();
+		assertSame(first, cache.get(models[0], 0));
+		assertEquals(misses, cache.getMisses());
+		cache.get(models[1], 0);
+		assertEquals(misses + 1, cache.getMisses());
+	}
+
+	private static boolean sharesEdge(int[] faces, int face, int from, int to)
+	{
+		for (int i = 0; i < 3; i++)
+		{
+			if (faces[face * 3 + i] == from && faces[face * 3 + (i + 1) % 3] == to)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,288 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.Random;
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Draws thousands of frames in a few typical scenes and fails when the paint path allocates more bytes per frame
+ * than its budget, so that garbage creeping back into the overlay is caught when it is introduced. Each scene is
+ * measured against the same frames drawn with every overlay turned off, and only what the scene adds on top of
+ * that counts. Its budget is made of allowances for what the stand-in client and Java2D allocate themselves,
+ * which is not the overlay's to avoid.
+ */
+public class PaintAllocationTest
+{
+	private static final LocalPoint PLAYER_LOCATION = LocalPoint.fromScene(52, 52);
+	private static final int WARMUP_FRAMES = 500;
+	private static final int FRAMES = 2000;
+
+	private static final int NPCS = 100;
+	private static final int TRUE_TILE_NPCS = 150;
+
+	// The stand-in client boxes the ints it returns, about 128 bytes a frame for the camera once anything is
+	// captured and 16 bytes for each occluder
+	private static final long CLIENT_PER_CAPTURE = 128;
+	private static final long CLIENT_PER_OCCLUDER = 16;
+	// Reading an actor's true tile makes a new WorldPoint, in the stand-in just like in the client
+	private static final long CLIENT_PER_TRUE_TILE = 24;
+	// Java2D allocates about 100 bytes for each image it draws, and up to about 1.5 kB for each ring or batch of
+	// markers it strokes in software, more for the longer lines of a walk path
+	private static final long JAVA2D_PER_IMAGE = 96;
+	private static final long JAVA2D_PER_STROKE = 1536;
+	private static final long JAVA2D_PER_PATH_STROKE = 2560;
+	// The executor allocates about 100 bytes for each build handed to the coverage thread, a queue entry and the
+	// lock nodes of waking the thread up
+	private static final long EXECUTOR_PER_BUILD = 128;
+	// Room for measurement noise, which is all the overlay itself may allocate
+	private static final long SLACK = 64;
+
+	// The coverage mask is drawn once a frame
+	private static final long PLAYER_ONLY_BUDGET = CLIENT_PER_CAPTURE + CLIENT_PER_OCCLUDER + JAVA2D_PER_IMAGE + SLACK;
+	private static final long NPC_HEAVY_BUDGET = CLIENT_PER_CAPTURE + CLIENT_PER_OCCLUDER * (NPCS + 1) + JAVA2D_PER_IMAGE + SLACK;
+	private static final long BACKGROUND_BUDGET = NPC_HEAVY_BUDGET + EXECUTOR_PER_BUILD;
+	// The ring and its shadow are stroked for the destination and for the one fading out, and the arrow is drawn
+	private static final long DESTINATION_BUDGET = JAVA2D_PER_STROKE * 4 + JAVA2D_PER_IMAGE + SLACK;
+	// The path and its shadow are stroked on top of the destination
+	private static final long WALK_PATH_BUDGET = DESTINATION_BUDGET + JAVA2D_PER_PATH_STROKE * 2;
+	// Every marker is stroked in one batch
+	private static final long TRUE_TILES_BUDGET = CLIENT_PER_TRUE_TILE * TRUE_TILE_NPCS + JAVA2D_PER_STROKE + SLACK;
+
+	private HeadlessClient client;
+	private HeadlessConfig config;
+	private HeadlessRenderer renderer;
+	private com.sun.management.ThreadMXBean threads;
+
+	@Before
+	public void setUp()
+	{
+		assumeTrue(allocationsMeasured());
+
+		client = new HeadlessClient();
+		client.lookAt(PLAYER_LOCATION, 1800, 300, 200);
+		client.setLocalPlayer(new HeadlessActor(0, -1, "Player", PLAYER_LOCATION, HeadlessModels.sphere(800, 50)));
+
+		config = new HeadlessConfig();
+		config.overlaysBelowPlayer = false;
+		config.overlaysBelowNPCs = false;
+		config.topNPCs = "Guard";
+		renderer = new HeadlessRenderer(client, config);
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	}
+
+	@Test
+	public void testPlayerOnly()
+	{
+		config.overlaysBelowPlayer = true;
+		assertWithinBudget("player only", PLAYER_ONLY_BUDGET, frame -> client.gameCycle = frame);
+	}
+
+	@Test
+	public void testNpcHeavy()
+	{
+		config.overlaysBelowPlayer = true;
+		config.overlaysBelowNPCs = true;
+		addNpcs();
+
+		// The camera turns every frame, so every silhouette is rebuilt every frame
+		assertWithinBudget("NPC heavy", NPC_HEAVY_BUDGET, this::turnCamera);
+	}
+
+	@Test
+	public void testBackgroundCoverage()
+	{
+		config.overlaysBelowPlayer = true;
+		config.overlaysBelowNPCs = true;
+		config.backgroundCoverage = true;
+		addNpcs();
+
+		// Counts what the coverage thread allocates building the silhouettes along with the rendering thread
+		assertWithinBudget("background coverage", BACKGROUND_BUDGET, this::turnCamera);
+		renderer.overlay.getWorker().shutDown();
+	}
+
+	@Test
+	public void testDestinationAnimating()
+	{
+		config.customDestinationTile = true;
+		config.highlightDestinationStyle = TileStyle.RS3;
+		final LocalPoint[] destinations = {
+			LocalPoint.fromScene(54, 55),
+			LocalPoint.fromScene(49, 53),
+		};
+
+		// Clicks a new tile every 20 frames, so rings keep growing and fading while the arrow bobs
+		assertWithinBudget("destination", DESTINATION_BUDGET, frame ->
+		{
+			client.gameCycle = frame;
+			client.destination = destinations[frame / 20 % destinations.length];
+		});
+	}
+
+	private void addNpcs()
+	{
+		final Random random = new Random(3);
+		for (int i = 1; i <= NPCS; i++)
+		{
+			final LocalPoint location = LocalPoint.fromScene(40 + random.nextInt(25), 40 + random.nextInt(25));
+			final HeadlessActor actor = new HeadlessActor(i, 1, "Guard", location, HeadlessModels.sphere(300, 30 + random.nextInt(40)));
+			actor.orientation = random.nextInt(2048);
+			client.addNpc(actor);
+		}
+	}
+
+	private void turnCamera(int frame)
+	{
+		client.gameCycle = frame;
+		client.cameraYaw = frame & 2047;
+	}
+
+	@Test
+	public void testWalkPath()
+	{
+		config.customDestinationTile = true;
+		config.destinationPath = true;
+		// A wall with a gap, so the paths bend around it
+		for (int y = 40; y < 70; y++)
+		{
+			if (y != 45)
+			{
+				client.collisionFlags[0][56][y] = CollisionDataFlag.BLOCK_MOVEMENT_FULL;
+			}
+		}
+		final LocalPoint[] destinations = {
+			LocalPoint.fromScene(60, 58),
+			LocalPoint.fromScene(44, 50),
+		};
+
+		// Clicks a new tile every 20 frames, so the path is searched again every time
+		assertWithinBudget("walk path", WALK_PATH_BUDGET, frame ->
+		{
+			client.gameCycle = frame;
+			client.destination = destinations[frame / 20 % destinations.length];
+		});
+	}
+
+	@Test
+	public void testTrueTileMarkers()
+	{
+		config.trueTileMarkers = true;
+		final Random random = new Random(5);
+		for (int i = 1; i <= TRUE_TILE_NPCS; i++)
+		{
+			final LocalPoint location = LocalPoint.fromScene(40 + random.nextInt(25), 40 + random.nextInt(25));
+			client.addNpc(new HeadlessActor(i, 1, "Guard", location, HeadlessModels.sphere(300, 30)));
+		}
+		renderer.rebuild();
+
+		assertWithinBudget("true tiles", TRUE_TILES_BUDGET, frame ->
+		{
+			client.gameCycle = frame;
+			client.cameraYaw = frame & 2047;
+		});
+	}
+
+	private void assertWithinBudget(String scenario, long budget, Frame setUp)
+	{
+		// Every overlay is off for the baseline, so it only holds what drawing any frame at all allocates
+		final boolean belowPlayer = config.overlaysBelowPlayer;
+		final boolean belowNpcs = config.overlaysBelowNPCs;
+		final boolean destination = config.customDestinationTile;
+		final boolean trueTiles = config.trueTileMarkers;
+		config.overlaysBelowPlayer = false;
+		config.overlaysBelowNPCs = false;
+		config.customDestinationTile = false;
+		config.trueTileMarkers = false;
+		final long baseline = measure(setUp);
+
+		config.overlaysBelowPlayer = belowPlayer;
+		config.overlaysBelowNPCs = belowNpcs;
+		config.customDestinationTile = destination;
+		config.trueTileMarkers = trueTiles;
+		final long perFrame = measure(setUp) - baseline;
+		assertTrue(scenario + " allocated " + perFrame + " bytes per frame over its baseline of " + baseline
+			+ ", over its budget of " + budget, perFrame <= budget);
+	}
+
+	/**
+	 * Returns the bytes each frame allocates on the rendering thread and on the coverage thread, if there is one.
+	 */
+	private long measure(Frame setUp)
+	{
+		renderer.rebuild();
+		renderer.plugin.updateConfigSnapshot();
+		renderer.plugin.publishTrackedNpcs();
+		final BufferedImage image = HeadlessRenderer.newImage(client);
+		final Graphics2D graphics = image.createGraphics();
+
+		for (int frame = 0; frame < WARMUP_FRAMES; frame++)
+		{
+			setUp.apply(frame);
+			renderer.overlay.render(graphics);
+		}
+
+		final long[] ids = threadIds();
+		final long before = allocatedBytes(ids);
+		for (int frame = WARMUP_FRAMES; frame < WARMUP_FRAMES + FRAMES; frame++)
+		{
+			setUp.apply(frame);
+			renderer.overlay.render(graphics);
+		}
+		final long perFrame = (allocatedBytes(ids) - before) / FRAMES;
+		graphics.dispose();
+		return perFrame;
+	}
+
+	private long[] threadIds()
+	{
+		for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds()))
+		{
+			if (thread != null && thread.getThreadName().equals("tile-indicators-coverage"))
+			{
+				return new long[]{Thread.currentThread().getId(), thread.getThreadId()};
+			}
+		}
+		return new long[]{Thread.currentThread().getId()};
+	}
+
+	private long allocatedBytes(long[] ids)
+	{
+		long bytes = 0;
+		for (long id : ids)
+		{
+			bytes += threads.getThreadAllocatedBytes(id);
+		}
+		return bytes;
+	}
+
+	private static boolean allocationsMeasured()
+	{
+		try
+		{
+			final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled())
+			{
+				threads.setThreadAllocatedMemoryEnabled(true);
+			}
+			return threads.isThreadAllocatedMemorySupported();
+		}
+		catch (ClassCastException | UnsupportedOperationException e)
+		{
+			return false;
+		}
+	}
+
+	@FunctionalInterface
+	private interface Frame
+	{
+		void apply(int frame);
+	}
+}
@@ -0,0 +1,164 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Random;
+import net.runelite.api.Client;
+import net.runelite.api.Model;
+import net.runelite.api.Perspective;
+import net.runelite.api.Point;
+import net.runelite.api.coords.LocalPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProjectionEngineTest
+{
+	private static final LocalPoint CENTRE = LocalPoint.fromScene(52, 52);
+
+	private HeadlessClient headless;
+	private Client client;
+	private final ProjectionEngine projection = new ProjectionEngine();
+
+	@Before
+	public void setUp()
+	{
+		headless = new HeadlessClient();
+		// The client only projects with integer math without GPU, which is what the engine mirrors
+		headless.gpu = false;
+		client = headless.getClient();
+	}
+
+	@Test
+	public void testModelMatchesPerspective()
+	{
+		final Random random = new Random(7);
+		final Model model = HeadlessModels.sphere(2000, 80);
+		final int count = model.getVerticesCount();
+		final int[] x2d = new int[count];
+		final int[] y2d = new int[count];
+
+		for (int i = 0; i < 50; i++)
+		{
+			headless.lookAt(CENTRE, 400 + random.nextInt(3000), 128 + random.nextInt(256), random.nextInt(2048));
+			headless.scale = 256 + random.nextInt(1024);
+			projection.begin(client);
+
+			// Several models share the buffers, each at its own offset
+			for (int j = 0; j < 3; j++)
+			{
+				final int localX = CENTRE.getX() + random.nextInt(2000) - 1000;
+				final int localY = CENTRE.getY() + random.nextInt(2000) - 1000;
+				final int localZ = -random.nextInt(200);
+				final int orientation = random.nextInt(2048);
+
+				Perspective.modelToCanvas(client, count, localX, localY, localZ, orientation,
+					model.getVerticesX(), model.getVerticesZ(), model.getVerticesY(), x2d, y2d);
+				final int offset = projection.projectModel(count, localX, localY, localZ, orientation,
+					model.getVerticesX(), model.getVerticesZ(), model.getVerticesY());
+
+				assertEquals(j * count, offset);
+				for (int v = 0; v < count; v++)
+				{
+					assertEquals(x2d[v], projection.x2d[offset + v]);
+					assertEquals(y2d[v], projection.y2d[offset + v]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPointMatchesPerspective()
+	{
+		final Random random = new Random(11);
+		for (int i = 0; i < 50; i++)
+		{
+			headless.lookAt(CENTRE, 400 + random.nextInt(3000), 128 + random.nextInt(256), random.nextInt(2048));
+			projection.begin(client);
+			for (int j = 0; j < 100; j++)
+			{
+				final int x = random.nextInt(13312);
+				final int y = random.nextInt(13312);
+				final int z = -random.nextInt(400);
+
+				final Point expected = Perspective.localToCanvas(client, x, y, z);
+				final int offset = projection.projectPoint(x, y, z);
+				if (expected == null)
+				{
+					assertEquals(Integer.MIN_VALUE, projection.x2d[offset]);
+				}
+				else
+				{
+					assertEquals(expected.getX(), projection.x2d[offset]);
+					assertEquals(expected.getY(), projection.y2d[offset]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPointsOutsideSceneDoNotProject()
+	{
+		headless.lookAt(CENTRE, 1600, 300, 0);
+		projection.begin(client);
+		assertNull(Perspective.localToCanvas(client, 64, CENTRE.getY(), 0));
+		final int offset = projection.projectPoint(64, CENTRE.getY(), 0);
+		assertEquals(Integer.MIN_VALUE, projection.x2d[offset]);
+	}
+
+	@Test
+	public void testSphereInViewIsConservative()
+	{
+		final Random random = new Random(13);
+		final int samples = 64;
+		int culled = 0;
+		for (int i = 0; i < 20000; i++)
+		{
+			if (i % 100 == 0)
+			{
+				headless.lookAt(CENTRE, 400 + random.nextInt(3000), 128 + random.nextInt(256), random.nextInt(2048));
+				headless.scale = 256 + random.nextInt(1024);
+				projection.begin(client);
+			}
+			final int localX = CENTRE.getX() + random.nextInt(8000) - 4000;
+			final int localY = CENTRE.getY() + random.nextInt(8000) - 4000;
+			final int localZ = -random.nextInt(400);
+			final int radius = 20 + random.nextInt(400);
+			if (projection.sphereInView(localX, localY, localZ, radius))
+			{
+				continue;
+			}
+			culled++;
+
+			// Nothing inside a culled sphere may show up in the viewport
+			projection.reset();
+			final int first = projection.size();
+			projection.projectPoint(localX, localY, localZ);
+			for (int j = 0; j < samples; j++)
+			{
+				final double theta = random.nextDouble() * 2 * Math.PI;
+				final double z = random.nextDouble() * 2 - 1;
+				final double r = Math.sqrt(1 - z * z) * radius;
+				projection.projectPoint(localX + (int) (r * Math.cos(theta)), localY + (int) (r * Math.sin(theta)), localZ + (int) (z * radius));
+			}
+			assertFalse(projection.anyVisible(first, samples + 1));
+		}
+		assertTrue(culled > 1000);
+	}
+
+	@Test
+	public void testAnyVisible()
+	{
+		headless.lookAt(CENTRE, 1600, 300, 0);
+		projection.begin(client);
+		final int visible = projection.projectPoint(CENTRE.getX(), CENTRE.getY(), 0);
+		final int behind = projection.projectPoint(CENTRE.getX(), CENTRE.getY() - 3000, 0);
+		assertTrue(projection.anyVisible(visible, 1));
+		assertFalse(projection.anyVisible(behind, 1));
+		assertTrue(projection.anyVisible(visible, 2));
+
+		projection.reset();
+		assertEquals(0, projection.size());
+	}
+}
@@ -0,0 +1,84 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+import net.runelite.api.Actor;
+import net.runelite.api.Client;
+import net.runelite.api.Model;
+import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.Perspective;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * The straightforward way of hiding overlays behind actors: project the model and clear every front facing,
+ * non-transparent triangle from the image with its own {@code fill}. Slow, but simple enough to trust, so the
+ * overlay's output is compared against it.
+ */
+final class ReferenceRenderer
+{
+	private ReferenceRenderer()
+	{
+	}
+
+	static BufferedImage render(HeadlessClient headless, Actor... actors)
+	{
+		final BufferedImage image = HeadlessRenderer.newImage(headless);
+		final Graphics2D graphics = image.createGraphics();
+		HeadlessRenderer.paintBackdrop(graphics, headless);
+		graphics.setComposite(AlphaComposite.Clear);
+		for (Actor actor : actors)
+		{
+			clearActor(graphics, headless.getClient(), actor);
+		}
+		graphics.dispose();
+		return image;
+	}
+
+	private static void clearActor(Graphics2D graphics, Client client, Actor actor)
+	{
+		final Model model = actor.getModel();
+		final int vCount = model.getVerticesCount();
+		final int[] x2d = new int[vCount];
+		final int[] y2d = new int[vCount];
+
+		int size = 1;
+		if (actor instanceof NPC)
+		{
+			final NPCComposition composition = ((NPC) actor).getTransformedComposition();
+			if (composition != null)
+			{
+				size = composition.getSize();
+			}
+		}
+
+		final LocalPoint lp = actor.getLocalLocation();
+		final LocalPoint northEast = new LocalPoint(lp.getX() + Perspective.LOCAL_TILE_SIZE * (size - 1) / 2,
+			lp.getY() + Perspective.LOCAL_TILE_SIZE * (size - 1) / 2);
+		final int localZ = Perspective.getTileHeight(client, northEast, client.getPlane());
+
+		Perspective.modelToCanvas(client, vCount, lp.getX(), lp.getY(), localZ, actor.getCurrentOrientation(),
+			model.getVerticesX(), model.getVerticesZ(), model.getVerticesY(), x2d, y2d);
+
+		final int[] a = model.getFaceIndices1();
+		final int[] b = model.getFaceIndices2();
+		final int[] c = model.getFaceIndices3();
+		final byte[] transparencies = model.getFaceTransparencies();
+		for (int i = 0; i < model.getFaceCount(); i++)
+		{
+			// Vertices behind the camera do not project
+			if (x2d[a[i]] == Integer.MIN_VALUE || x2d[b[i]] == Integer.MIN_VALUE || x2d[c[i]] == Integer.MIN_VALUE)
+			{
+				continue;
+			}
+			final int direction = (x2d[b[i]] - x2d[a[i]]) * (y2d[c[i]] - y2d[a[i]]) - (y2d[b[i]] - y2d[a[i]]) * (x2d[c[i]] - x2d[a[i]]);
+			if (direction >= 0 || (transparencies != null && (transparencies[i] & 255) >= 254))
+			{
+				continue;
+			}
+			graphics.fill(new Polygon(new int[]{x2d[a[i]], x2d[b[i]], x2d[c[i]]}, new int[]{y2d[a[i]], y2d[b[i]], y2d[c[i]]}, 3));
+		}
+	}
+}
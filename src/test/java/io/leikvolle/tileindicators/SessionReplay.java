@@ -0,0 +1,243 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.runelite.api.Model;
+import net.runelite.api.NPC;
+import net.runelite.api.Perspective;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.events.NpcDespawned;
+import net.runelite.api.events.NpcSpawned;
+
+/**
+ * Feeds a session recorded by {@link SessionRecorder} back through the plugin and overlay headlessly, frame for
+ * frame. Spawns and despawns go through the plugin's event handlers, so NPCs are tracked by the recorded tag
+ * lists just like they were live. Other players come and go with the frames they were recorded in, and are
+ * picked again by the replay's config from their recorded names and friend and clan flags.
+ * <p>
+ * Run {@link #main(String[])} with a session file to replay it and print the overlay's frame timings.
+ */
+final class SessionReplay implements SessionReader.Handler, Closeable
+{
+	private final SessionReader reader;
+	private final HeadlessClient client = new HeadlessClient();
+	private final HeadlessConfig config = new HeadlessConfig();
+	private final HeadlessRenderer renderer;
+
+	private final List<Model> models = new ArrayList<>();
+	private final Map<Integer, HeadlessActor> npcs = new HashMap<>();
+	private final Map<Integer, HeadlessActor> others = new HashMap<>();
+	private final Set<Integer> seen = new HashSet<>();
+	private final HeadlessActor player = new HeadlessActor(0, -1, "Player", new LocalPoint(0, 0), null);
+	private boolean frameRead;
+
+	SessionReplay(Path file) throws IOException
+	{
+		reader = new SessionReader(file);
+		config.overlaysBelowNPCs = true;
+		config.overlaysBelowOtherPlayers = true;
+		config.topNPCs = reader.getTopNpcs();
+		config.topNPCIds = reader.getTopNpcIds();
+		renderer = new HeadlessRenderer(client, config);
+		renderer.rebuild();
+	}
+
+	HeadlessConfig getConfig()
+	{
+		return config;
+	}
+
+	HeadlessRenderer getRenderer()
+	{
+		return renderer;
+	}
+
+	/**
+	 * Applies every record up to and including the next frame. Returns false once the session has ended.
+	 */
+	boolean nextFrame()
+	{
+		frameRead = false;
+		while (!frameRead)
+		{
+			if (!reader.next(this))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	BufferedImage render()
+	{
+		return renderer.render();
+	}
+
+	@Override
+	public void scene(int baseX, int baseY, int[][][] tileHeights, byte[][][] tileSettings)
+	{
+		client.baseX = baseX;
+		client.baseY = baseY;
+		for (int z = 0; z < tileHeights.length; z++)
+		{
+			for (int x = 0; x <= Perspective.SCENE_SIZE; x++)
+			{
+				System.arraycopy(tileHeights[z][x], 0, client.tileHeights[z][x], 0, Perspective.SCENE_SIZE + 1);
+			}
+			for (int x = 0; x < Perspective.SCENE_SIZE; x++)
+			{
+				System.arraycopy(tileSettings[z][x], 0, client.tileSettings[z][x], 0, Perspective.SCENE_SIZE);
+			}
+		}
+	}
+
+	@Override
+	public void model(int id, float[] x, float[] y, float[] z, int[] a, int[] b, int[] c, byte[] transparencies)
+	{
+		models.add(id, HeadlessModels.model(x, y, z, a, b, c, transparencies));
+	}
+
+	@Override
+	public void npcSpawned(int index, int id, String name, int size)
+	{
+		final HeadlessActor actor = new HeadlessActor(index, id, name, new LocalPoint(0, 0), null);
+		actor.size = size;
+		npcs.put(index, actor);
+		renderer.plugin.onNpcSpawned(new NpcSpawned(client.addNpc(actor)));
+	}
+
+	@Override
+	public void npcDespawned(int index)
+	{
+		final NPC npc = client.cachedNpcs[index];
+		if (npc != null)
+		{
+			renderer.plugin.onNpcDespawned(new NpcDespawned(npc));
+			client.removeNpc(npc);
+			npcs.remove(index);
+		}
+	}
+
+	@Override
+	public void frame(SessionReader.Frame frame)
+	{
+		client.gameCycle = frame.gameCycle;
+		client.cameraX = frame.cameraX;
+		client.cameraY = frame.cameraY;
+		client.cameraZ = frame.cameraZ;
+		client.cameraPitch = frame.cameraPitch;
+		client.cameraYaw = frame.cameraYaw;
+		client.scale = frame.scale;
+		client.viewportX = frame.viewportX;
+		client.viewportY = frame.viewportY;
+		client.viewportWidth = frame.viewportWidth;
+		client.viewportHeight = frame.viewportHeight;
+		client.plane = frame.plane;
+		client.destination = frame.destinationX == Integer.MIN_VALUE ? null : new LocalPoint(frame.destinationX, frame.destinationY);
+
+		if (frame.hasPlayer)
+		{
+			apply(frame.player, player);
+			player.equipment[0] = frame.playerAppearance;
+			if (client.localPlayer == null)
+			{
+				client.setLocalPlayer(player);
+			}
+		}
+		else
+		{
+			client.localPlayer = null;
+		}
+
+		for (int i = 0; i < frame.npcCount; i++)
+		{
+			final HeadlessActor npc = npcs.get(frame.npcs[i].index);
+			if (npc != null)
+			{
+				apply(frame.npcs[i], npc);
+			}
+		}
+
+		seen.clear();
+		for (int i = 0; i < frame.otherCount; i++)
+		{
+			final SessionReader.Actor recorded = frame.others[i];
+			HeadlessActor other = others.get(recorded.index);
+			if (other == null)
+			{
+				other = new HeadlessActor(recorded.index, -1, recorded.name, new LocalPoint(recorded.x, recorded.y), null);
+				others.put(recorded.index, other);
+				client.addPlayer(other);
+			}
+			other.name = recorded.name;
+			other.friend = recorded.friend;
+			other.clanMember = recorded.clanMember;
+			apply(recorded, other);
+			seen.add(recorded.index);
+		}
+		// Players missing from a frame have left, or are no longer picked
+		for (Iterator<Integer> it = others.keySet().iterator(); it.hasNext(); )
+		{
+			final int index = it.next();
+			if (!seen.contains(index))
+			{
+				client.cachedPlayers[index] = null;
+				it.remove();
+			}
+		}
+		frameRead = true;
+	}
+
+	private void apply(SessionReader.Actor recorded, HeadlessActor actor)
+	{
+		if (actor.location.getX() != recorded.x || actor.location.getY() != recorded.y)
+		{
+			actor.location = new LocalPoint(recorded.x, recorded.y);
+		}
+		actor.orientation = recorded.orientation;
+		actor.animation = recorded.animation;
+		actor.animationFrame = recorded.animationFrame;
+		actor.model = recorded.modelId == SessionRecorder.NO_MODEL ? null : models.get(recorded.modelId);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		try (SessionReplay replay = new SessionReplay(Paths.get(args[0])))
+		{
+			replay.getConfig().debugFrameTimings = true;
+			int frames = 0;
+			while (replay.nextFrame())
+			{
+				replay.render();
+				frames++;
+			}
+
+			final FrameProfiler profiler = replay.getRenderer().plugin.getProfiler();
+			System.out.println("Replayed " + frames + " frames, percentiles over the last 256:");
+			for (FrameProfiler.Phase phase : FrameProfiler.Phase.values())
+			{
+				System.out.printf("%-24s %8d us %8d us%n", phase.getName(), profiler.percentile(phase, 0.5) / 1000, profiler.percentile(phase, 0.99) / 1000);
+			}
+			for (FrameProfiler.Counter counter : FrameProfiler.Counter.values())
+			{
+				System.out.printf("%-24s %8d    %8d%n", counter.getName(), profiler.percentile(counter, 0.5), profiler.percentile(counter, 0.99));
+			}
+		}
+	}
+}
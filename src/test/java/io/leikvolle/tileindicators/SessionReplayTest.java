@@ -0,0 +1,281 @@
+package io.leikvolle.tileindicators;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.runelite.api.NPC;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.events.NpcDespawned;
+import net.runelite.api.events.NpcSpawned;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionReplayTest
+{
+	private static final LocalPoint PLAYER_LOCATION = LocalPoint.fromScene(52, 52);
+	private static final int FRAMES = 30;
+
+	private Path file;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		file = Files.createTempFile("session", ".bin");
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testReplayMatchesLiveFrames() throws Exception
+	{
+		final HeadlessClient client = new HeadlessClient();
+		client.tileHeights[0][53][52] = -40;
+		final HeadlessActor player = new HeadlessActor(0, -1, "Player", PLAYER_LOCATION, HeadlessModels.sphere(600, 50));
+		client.setLocalPlayer(player);
+
+		// A friend who walks around, a player picked by name who leaves half way and a stranger, who is not
+		// picked and so not recorded
+		final HeadlessActor friend = new HeadlessActor(1, -1, "Friend", PLAYER_LOCATION, HeadlessModels.sphere(500, 50));
+		friend.friend = true;
+		client.addPlayer(friend);
+		final HeadlessActor named = new HeadlessActor(2, -1, "Zezima\u00A0alt",
+			new LocalPoint(PLAYER_LOCATION.getX() - 300, PLAYER_LOCATION.getY() + 200), HeadlessModels.box(120, 200, true));
+		client.addPlayer(named);
+		client.addPlayer(new HeadlessActor(3, -1, "Stranger",
+			new LocalPoint(PLAYER_LOCATION.getX() + 300, PLAYER_LOCATION.getY() + 250), HeadlessModels.sphere(700, 50)));
+
+		final HeadlessConfig config = new HeadlessConfig();
+		config.overlaysBelowNPCs = true;
+		config.overlaysBelowOtherPlayers = true;
+		config.otherPlayerNames = "Zezima*";
+		config.customDestinationTile = true;
+		config.highlightDestinationStyle = TileStyle.RS3_NO_ARROW;
+		config.topNPCs = "Guard";
+		config.topNPCIds = "7";
+		final HeadlessRenderer renderer = new HeadlessRenderer(client, config);
+		renderer.rebuild();
+		renderer.plugin.updateConfigSnapshot();
+
+		final List<BufferedImage> live = new ArrayList<>();
+		final List<HeadlessActor> actors = new ArrayList<>();
+		try (SessionRecorder recorder = new SessionRecorder(file.toFile(), config.topNPCs, config.topNPCIds))
+		{
+			for (int frame = 0; frame < FRAMES; frame++)
+			{
+				// Spawn an NPC every few frames and despawn the oldest later on
+				if (frame % 3 == 0)
+				{
+					final int index = actors.size() + 1;
+					final HeadlessActor actor = new HeadlessActor(index, index % 2 == 0 ? 7 : 1, index % 3 == 0 ? "Cow" : "Guard",
+						new LocalPoint(PLAYER_LOCATION.getX() + 200 * (index % 4 - 2), PLAYER_LOCATION.getY() + 150 * (index % 3)),
+						index % 2 == 0 ? HeadlessModels.box(100, 180, true) : HeadlessModels.sphere(400, 45));
+					actors.add(actor);
+					final NPC npc = client.addNpc(actor);
+					renderer.plugin.onNpcSpawned(new NpcSpawned(npc));
+					recorder.npcSpawned(npc);
+				}
+				if (frame == 20)
+				{
+					final NPC npc = client.cachedNpcs[1];
+					renderer.plugin.onNpcDespawned(new NpcDespawned(npc));
+					recorder.npcDespawned(npc);
+					client.removeNpc(npc);
+				}
+
+				client.gameCycle = frame;
+				client.lookAt(PLAYER_LOCATION, 1600 + frame * 10, 280, frame < 10 ? 0 : frame * 7);
+				client.destination = frame < 5 ? null : LocalPoint.fromScene(54, 55);
+				for (HeadlessActor actor : actors)
+				{
+					actor.orientation = actor.orientation + actor.index * 13 & 2047;
+				}
+				player.location = new LocalPoint(PLAYER_LOCATION.getX() + frame * 4, PLAYER_LOCATION.getY());
+				friend.location = new LocalPoint(PLAYER_LOCATION.getX() + 250, PLAYER_LOCATION.getY() - 200 + frame * 12);
+				friend.orientation = frame * 60 & 2047;
+				if (frame == 15)
+				{
+					client.cachedPlayers[named.index] = null;
+				}
+
+				// The recorder writes the NPCs the overlay is handed, which a game tick publishes before the frame
+				renderer.plugin.publishTrackedNpcs();
+				recorder.recordFrame(client.getClient(), renderer.plugin.getConfigSnapshot(), renderer.plugin.getTrackedNpcs());
+				live.add(renderer.render());
+			}
+		}
+
+		try (SessionReplay replay = new SessionReplay(file))
+		{
+			replay.getConfig().customDestinationTile = true;
+			replay.getConfig().highlightDestinationStyle = TileStyle.RS3_NO_ARROW;
+			replay.getConfig().otherPlayerNames = "Zezima*";
+			for (int frame = 0; frame < FRAMES; frame++)
+			{
+				assertTrue(replay.nextFrame());
+				assertEquals(renderer.plugin.getOnTopNpcs().size() > 0, replay.getRenderer().plugin.getOnTopNpcs().size() > 0);
+				assertPixelsEqual(frame, live.get(frame), replay.render());
+			}
+			assertFalse(replay.nextFrame());
+		}
+	}
+
+	@Test
+	public void testModelsAreWrittenOnce() throws Exception
+	{
+		final HeadlessClient client = new HeadlessClient();
+		client.lookAt(PLAYER_LOCATION, 1600, 280, 0);
+		client.setLocalPlayer(new HeadlessActor(0, -1, "Player", PLAYER_LOCATION, HeadlessModels.sphere(2000, 50)));
+		final NpcIndexSet tracked = new NpcIndexSet();
+
+		try (SessionRecorder recorder = new SessionRecorder(file.toFile(), "", ""))
+		{
+			record(recorder, client, tracked);
+		}
+		final long oneFrame = Files.size(file);
+
+		try (SessionRecorder recorder = new SessionRecorder(file.toFile(), "", ""))
+		{
+			for (int frame = 0; frame < 100; frame++)
+			{
+				// Same geometry in a new model every frame, like an animated model
+				client.localPlayer = new HeadlessActor(0, -1, "Player", PLAYER_LOCATION, HeadlessModels.sphere(2000, 50)).asPlayer(client);
+				record(recorder, client, tracked);
+			}
+		}
+		final long frameSize = (Files.size(file) - oneFrame) / 99;
+		assertTrue("Each frame after the first took " + frameSize + " bytes", frameSize < 100);
+	}
+
+	@Test
+	public void testModelsAreMatchedByContent() throws Exception
+	{
+		final HeadlessClient client = new HeadlessClient();
+		client.lookAt(PLAYER_LOCATION, 1600, 280, 0);
+		final HeadlessActor player = new HeadlessActor(0, -1, "Player", PLAYER_LOCATION, HeadlessModels.sphere(600, 50));
+		client.setLocalPlayer(player);
+		final NpcIndexSet tracked = new NpcIndexSet();
+
+		try (SessionRecorder recorder = new SessionRecorder(file.toFile(), "", ""))
+		{
+			record(recorder, client, tracked);
+			// A new model with the same geometry keeps the id, a different one in the same pose gets a new id
+			player.model = HeadlessModels.sphere(600, 50);
+			record(recorder, client, tracked);
+			player.model = HeadlessModels.sphere(600, 60);
+			record(recorder, client, tracked);
+			player.model = HeadlessModels.sphere(600, 50);
+			record(recorder, client, tracked);
+		}
+
+		final Recording recording = read();
+		assertEquals(Arrays.asList(0, 1), recording.models);
+		assertEquals(Arrays.asList(0, 0, 1, 0), recording.playerModels);
+	}
+
+	@Test
+	public void testSceneIsWrittenAgainAfterLoading() throws Exception
+	{
+		final HeadlessClient client = new HeadlessClient();
+		client.lookAt(PLAYER_LOCATION, 1600, 280, 0);
+		client.setLocalPlayer(new HeadlessActor(0, -1, "Player", PLAYER_LOCATION, HeadlessModels.sphere(600, 50)));
+		final NpcIndexSet tracked = new NpcIndexSet();
+
+		try (SessionRecorder recorder = new SessionRecorder(file.toFile(), "", ""))
+		{
+			record(recorder, client, tracked);
+			record(recorder, client, tracked);
+
+			// The client loads the new scene into the same arrays
+			recorder.sceneChanged();
+			client.tileHeights[0][10][20] = -80;
+			record(recorder, client, tracked);
+			record(recorder, client, tracked);
+		}
+
+		final Recording recording = read();
+		assertEquals(Arrays.asList(0, 2), recording.scenes);
+		assertEquals(Arrays.asList(0, -80), recording.sceneHeights);
+		assertEquals(4, recording.playerModels.size());
+	}
+
+	/**
+	 * Records a frame with no other players picked.
+	 */
+	private static void record(SessionRecorder recorder, HeadlessClient client, NpcIndexSet tracked) throws Exception
+	{
+		recorder.recordFrame(client.getClient(), new ConfigSnapshot(new HeadlessConfig()), tracked.snapshot());
+	}
+
+	private Recording read() throws Exception
+	{
+		final Recording recording = new Recording();
+		try (SessionReader reader = new SessionReader(file))
+		{
+			while (reader.next(recording))
+			{
+				// Every record is collected by the handler
+			}
+		}
+		return recording;
+	}
+
+	/**
+	 * Collects the frame each scene was written before, the model ids in the order they were written and the
+	 * player's model id in every frame.
+	 */
+	private static class Recording implements SessionReader.Handler
+	{
+		final List<Integer> scenes = new ArrayList<>();
+		final List<Integer> sceneHeights = new ArrayList<>();
+		final List<Integer> models = new ArrayList<>();
+		final List<Integer> playerModels = new ArrayList<>();
+
+		@Override
+		public void scene(int baseX, int baseY, int[][][] tileHeights, byte[][][] tileSettings)
+		{
+			scenes.add(playerModels.size());
+			sceneHeights.add(tileHeights[0][10][20]);
+		}
+
+		@Override
+		public void model(int id, float[] x, float[] y, float[] z, int[] a, int[] b, int[] c, byte[] transparencies)
+		{
+			models.add(id);
+		}
+
+		@Override
+		public void npcSpawned(int index, int id, String name, int size)
+		{
+		}
+
+		@Override
+		public void npcDespawned(int index)
+		{
+		}
+
+		@Override
+		public void frame(SessionReader.Frame frame)
+		{
+			playerModels.add(frame.player.modelId);
+		}
+	}
+
+	private static void assertPixelsEqual(int frame, BufferedImage expected, BufferedImage actual)
+	{
+		final int[] expectedPixels = expected.getRGB(0, 0, expected.getWidth(), expected.getHeight(), null, 0, expected.getWidth());
+		final int[] actualPixels = actual.getRGB(0, 0, actual.getWidth(), actual.getHeight(), null, 0, actual.getWidth());
+		assertArrayEquals("Frame " + frame, expectedPixels, actualPixels);
+	}
+}
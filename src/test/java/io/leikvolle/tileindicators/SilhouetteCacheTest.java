@@ -0,0 +1,208 @@
+package io.leikvolle.tileindicators;
+
+import java.lang.reflect.Proxy;
+import net.runelite.api.Actor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SilhouetteCacheTest
+{
+	private static final int CAPACITY = 64;
+
+	private final OccluderSnapshot snapshot = new OccluderSnapshot();
+	private SilhouetteCache cache;
+
+	@Before
+	public void setUp()
+	{
+		snapshot.cameraYaw = 512;
+		snapshot.viewportWidth = 800;
+		snapshot.viewportHeight = 600;
+		cache = new SilhouetteCache();
+	}
+
+	@Test
+	public void testHitAfterUnchangedPose()
+	{
+		final OccluderSnapshot.Occluder occluder = occluder();
+		cache.begin(snapshot);
+		assertNull(cache.get(occluder));
+		final SilhouetteCache.Silhouette recorded = record(occluder);
+
+		cache.begin(snapshot);
+		assertSame(recorded, cache.get(occluder));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testMissAfterCameraChange()
+	{
+		final OccluderSnapshot.Occluder occluder = occluder();
+		cache.begin(snapshot);
+		record(occluder);
+
+		snapshot.cameraYaw = 520;
+		cache.begin(snapshot);
+		assertNull(cache.get(occluder));
+	}
+
+	@Test
+	public void testMissAfterPoseChange()
+	{
+		final OccluderSnapshot.Occluder occluder = occluder();
+		cache.begin(snapshot);
+		record(occluder);
+
+		occluder.animationFrame = 3;
+		cache.begin(snapshot);
+		assertNull(cache.get(occluder));
+
+		record(occluder);
+		occluder.localX = 128;
+		cache.begin(snapshot);
+		assertNull(cache.get(occluder));
+	}
+
+	@Test
+	public void testMissAfterDetailChange()
+	{
+		final OccluderSnapshot.Occluder occluder = occluder();
+		cache.begin(snapshot);
+		record(occluder);
+
+		occluder.detail = SilhouetteDetail.HULL;
+		cache.begin(snapshot);
+		assertNull(cache.get(occluder));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsedFirst()
+	{
+		final OccluderSnapshot.Occluder[] occluders = occluders(CAPACITY + 1);
+		cache.begin(snapshot);
+		for (int i = 0; i < CAPACITY; i++)
+		{
+			record(occluders[i]);
+		}
+
+		// The first two are the only ones this frame does not use, and the first was used the longest ago
+		cache.begin(snapshot);
+		for (int i = 2; i < CAPACITY; i++)
+		{
+			assertNotNull(cache.get(occluders[i]));
+		}
+		record(occluders[CAPACITY]);
+		assertNotNull(cache.get(occluders[1]));
+		assertNull(cache.get(occluders[0]));
+		assertEquals(CAPACITY, cache.size());
+	}
+
+	@Test
+	public void testNeverEvictsEntriesUsedThisFrame()
+	{
+		final OccluderSnapshot.Occluder[] occluders = occluders(CAPACITY + 1);
+		cache.begin(snapshot);
+		for (int i = 0; i < CAPACITY; i++)
+		{
+			record(occluders[i]);
+		}
+
+		// Every frame, the occluder that does not fit gets a spare of its own instead of evicting one, the same
+		// spare every frame
+		SilhouetteCache.Silhouette spare = null;
+		for (int frame = 0; frame < 3; frame++)
+		{
+			cache.begin(snapshot);
+			for (int i = 0; i < CAPACITY; i++)
+			{
+				assertNotNull(cache.get(occluders[i]));
+			}
+			assertNull(cache.get(occluders[CAPACITY]));
+			final SilhouetteCache.Silhouette extra = record(occluders[CAPACITY]);
+			assertNotSame(extra, record(occluders[CAPACITY]));
+			if (spare != null)
+			{
+				assertSame(spare, extra);
+			}
+			spare = extra;
+		}
+		assertEquals(CAPACITY * 3, cache.getHits());
+	}
+
+	@Test
+	public void testReusesSilhouettesOfForgottenActors()
+	{
+		final OccluderSnapshot.Occluder despawned = occluder();
+		cache.begin(snapshot);
+		final SilhouetteCache.Silhouette recorded = record(despawned);
+
+		cache.begin(snapshot);
+		cache.begin(snapshot);
+		assertEquals(0, cache.size());
+		assertSame(recorded, record(occluder()));
+	}
+
+	@Test
+	public void testForgetsActorsMissingForAFrame()
+	{
+		final OccluderSnapshot.Occluder kept = occluder();
+		final OccluderSnapshot.Occluder despawned = occluder();
+		cache.begin(snapshot);
+		record(kept);
+		record(despawned);
+
+		cache.begin(snapshot);
+		assertNotNull(cache.get(kept));
+
+		cache.begin(snapshot);
+		assertEquals(1, cache.size());
+		assertNull(cache.get(despawned));
+	}
+
+	private SilhouetteCache.Silhouette record(OccluderSnapshot.Occluder occluder)
+	{
+		final SilhouetteCache.Silhouette silhouette = cache.record(occluder);
+		silhouette.add(0, 0, 10, 0, 0, 10);
+		return silhouette;
+	}
+
+	private static OccluderSnapshot.Occluder[] occluders(int count)
+	{
+		final OccluderSnapshot.Occluder[] occluders = new OccluderSnapshot.Occluder[count];
+		for (int i = 0; i < count; i++)
+		{
+			occluders[i] = occluder();
+		}
+		return occluders;
+	}
+
+	/**
+	 * Returns a still occluder for an actor of its own, which the cache only uses as a key.
+	 */
+	private static OccluderSnapshot.Occluder occluder()
+	{
+		final OccluderSnapshot.Occluder occluder = new OccluderSnapshot.Occluder();
+		occluder.actor = (Actor) Proxy.newProxyInstance(Actor.class.getClassLoader(), new Class<?>[]{Actor.class}, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+		occluder.localX = 64;
+		occluder.localY = 64;
+		occluder.detail = SilhouetteDetail.EXACT;
+		return occluder;
+	}
+}
@@ -0,0 +1,184 @@
+package io.leikvolle.tileindicators;
+
+import java.util.Random;
+import net.runelite.api.Model;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SilhouetteGeometryTest
+{
+	private static final int WIDTH = 200;
+	private static final int HEIGHT = 200;
+	private static final int CELLS = 12;
+
+	@Test
+	public void testOutlineCoversSameAreaAsFaces()
+	{
+		final SilhouetteCache.Silhouette outline = assertOutlineCoversFrontFaces(-1);
+
+		// Only the border of the grid survives
+		assertEquals(CELLS * 4, outline.edgeCount);
+	}
+
+	@Test
+	public void testOutlineLeavesOutFacesNotProjected()
+	{
+		// A vertex behind the camera takes the six faces around it out of the outline, leaving a hole
+		assertOutlineCoversFrontFaces((CELLS + 1) * 5 + 6);
+	}
+
+	/**
+	 * Builds the outline of a jittered grid of consistently wound faces, as a projected model surface would be,
+	 * and checks it covers the same pixels as filling its faces.
+	 */
+	private static SilhouetteCache.Silhouette assertOutlineCoversFrontFaces(int unprojected)
+	{
+		final Random random = new Random(99);
+		final int side = CELLS + 1;
+		final int[] x2d = new int[side * side];
+		final int[] y2d = new int[side * side];
+		for (int y = 0; y < side; y++)
+		{
+			for (int x = 0; x < side; x++)
+			{
+				x2d[y * side + x] = 20 + x * 12 + random.nextInt(5) - 2;
+				y2d[y * side + x] = 20 + y * 12 + random.nextInt(5) - 2;
+			}
+		}
+		if (unprojected >= 0)
+		{
+			x2d[unprojected] = Integer.MIN_VALUE;
+			y2d[unprojected] = Integer.MIN_VALUE;
+		}
+
+		final int faceCount = CELLS * CELLS * 2;
+		final int[] faceA = new int[faceCount];
+		final int[] faceB = new int[faceCount];
+		final int[] faceC = new int[faceCount];
+		final SilhouetteCache.Silhouette faces = new SilhouetteCache.Silhouette();
+		int face = 0;
+		for (int y = 0; y < CELLS; y++)
+		{
+			for (int x = 0; x < CELLS; x++)
+			{
+				final int a = y * side + x;
+				final int b = a + 1;
+				final int c = a + side;
+				final int d = c + 1;
+				face = addFace(faceA, faceB, faceC, face, a, d, b, x2d, y2d, faces);
+				face = addFace(faceA, faceB, faceC, face, a, c, d, x2d, y2d, faces);
+			}
+		}
+
+		final float[] vertices = new float[side * side];
+		final Model model = HeadlessModels.model(vertices, vertices, vertices, faceA, faceB, faceC, null);
+		final SilhouetteCache.Silhouette outline = new SilhouetteCache.Silhouette();
+		final int front = new SilhouetteGeometry().emitOutline(x2d, y2d, 0, new OpaqueFaceCache().get(model, 0), outline);
+		assertEquals(faces.triangleCount, front);
+
+		final CoverageMask expected = new CoverageMask();
+		expected.reset(0, 0, WIDTH, HEIGHT);
+		expected.fillTriangles(faces.triangles, faces.triangleCount);
+
+		final CoverageMask actual = new CoverageMask();
+		actual.reset(0, 0, WIDTH, HEIGHT);
+		actual.fillEdges(outline.edges, outline.edgeCount);
+
+		int differing = 0;
+		for (int y = 0; y < HEIGHT; y++)
+		{
+			for (int x = 0; x < WIDTH; x++)
+			{
+				if (expected.isCovered(x, y) != actual.isCovered(x, y))
+				{
+					differing++;
+				}
+			}
+		}
+		assertEquals(0, differing);
+		return outline;
+	}
+
+	private static int addFace(int[] faceA, int[] faceB, int[] faceC, int face, int a, int b, int c,
+		int[] x2d, int[] y2d, SilhouetteCache.Silhouette faces)
+	{
+		faceA[face] = a;
+		faceB[face] = b;
+		faceC[face] = c;
+		if (x2d[a] != Integer.MIN_VALUE && x2d[b] != Integer.MIN_VALUE && x2d[c] != Integer.MIN_VALUE)
+		{
+			faces.add(x2d[a], y2d[a], x2d[b], y2d[b], x2d[c], y2d[c]);
+		}
+		return face + 1;
+	}
+
+	@Test
+	public void testHullCoversAllVertices()
+	{
+		final Random random = new Random(7);
+		final int count = 500;
+		final int[] x2d = new int[count];
+		final int[] y2d = new int[count];
+		for (int i = 0; i < count; i++)
+		{
+			x2d[i] = 40 + random.nextInt(120);
+			y2d[i] = 30 + random.nextInt(140);
+		}
+		// Vertices behind the camera must not stretch the hull
+		x2d[3] = Integer.MIN_VALUE;
+		y2d[3] = Integer.MIN_VALUE;
+
+		final SilhouetteGeometry geometry = new SilhouetteGeometry();
+		final SilhouetteCache.Silhouette hull = new SilhouetteCache.Silhouette();
+		geometry.emitHull(x2d, y2d, 0, count, hull);
+		assertTrue(hull.triangleCount > 0);
+
+		final CoverageMask mask = new CoverageMask();
+		mask.reset(0, 0, WIDTH, HEIGHT);
+		mask.fillTriangles(hull.triangles, hull.triangleCount);
+
+		for (int i = 0; i < count; i++)
+		{
+			if (i == 3)
+			{
+				continue;
+			}
+			// Vertices on the right or bottom border fall on exclusive edges, so test the pixel inside
+			final boolean inside = mask.isCovered(x2d[i], y2d[i]) || mask.isCovered(x2d[i] - 1, y2d[i])
+				|| mask.isCovered(x2d[i], y2d[i] - 1) || mask.isCovered(x2d[i] - 1, y2d[i] - 1);
+			assertTrue("vertex " + i + " outside hull", inside);
+		}
+		assertTrue(!mask.isCovered(10, 10));
+	}
+
+	@Test
+	public void testWideHullMatchesNarrowHull()
+	{
+		final Random random = new Random(11);
+		final int count = 300;
+		final int[] x2d = new int[count];
+		final int[] y2d = new int[count];
+		final int[] wideX = new int[count];
+		for (int i = 0; i < count; i++)
+		{
+			x2d[i] = random.nextInt(200);
+			y2d[i] = random.nextInt(200);
+			// Too wide to bucket by column, and stretching x keeps the same points on the hull
+			wideX[i] = x2d[i] * 100;
+		}
+
+		final SilhouetteGeometry geometry = new SilhouetteGeometry();
+		final SilhouetteCache.Silhouette narrow = new SilhouetteCache.Silhouette();
+		final SilhouetteCache.Silhouette wide = new SilhouetteCache.Silhouette();
+		geometry.emitHull(x2d, y2d, 0, count, narrow);
+		geometry.emitHull(wideX, y2d, 0, count, wide);
+
+		assertEquals(narrow.triangleCount, wide.triangleCount);
+		for (int i = 0; i < narrow.triangleCount * 6; i += 2)
+		{
+			assertEquals(narrow.triangles[i] * 100, wide.triangles[i]);
+			assertEquals(narrow.triangles[i + 1], wide.triangles[i + 1]);
+		}
+	}
+}
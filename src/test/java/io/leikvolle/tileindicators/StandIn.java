@@ -0,0 +1,90 @@
+package io.leikvolle.tileindicators;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Creates stand-ins for client interfaces that answer every call from a map of method name to value. Suppliers
+ * in the map are evaluated on each call, so a stand-in can follow state that changes between frames. Calls that
+ * are not in the map and return another client interface get a stand-in of that type backed by the same map,
+ * which keeps lookups that go through intermediate objects, such as the scene or world view, working. Anything
+ * else unmapped answers zero, false or null.
+ */
+final class StandIn
+{
+	private StandIn()
+	{
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T of(Class<T> type, Map<String, Object> values)
+	{
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				case "toString":
+					return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+			}
+
+			final Object value = values.get(method.getName());
+			if (value instanceof Supplier)
+			{
+				return ((Supplier<?>) value).get();
+			}
+			if (value != null)
+			{
+				return value;
+			}
+			return defaultValue(method, values);
+		});
+	}
+
+	private static Object defaultValue(Method method, Map<String, Object> values)
+	{
+		final Class<?> type = method.getReturnType();
+		if (type.isInterface() && type.getName().startsWith("net.runelite.api."))
+		{
+			return values.computeIfAbsent(type.getName(), name -> of(type, values));
+		}
+		if (!type.isPrimitive() || type == void.class)
+		{
+			return null;
+		}
+		if (type == boolean.class)
+		{
+			return false;
+		}
+		if (type == long.class)
+		{
+			return 0L;
+		}
+		if (type == double.class)
+		{
+			return 0d;
+		}
+		if (type == float.class)
+		{
+			return 0f;
+		}
+		if (type == byte.class)
+		{
+			return (byte) 0;
+		}
+		if (type == short.class)
+		{
+			return (short) 0;
+		}
+		if (type == char.class)
+		{
+			return (char) 0;
+		}
+		return 0;
+	}
+}
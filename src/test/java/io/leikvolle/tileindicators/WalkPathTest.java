@@ -0,0 +1,167 @@
+package io.leikvolle.tileindicators;
+
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.Perspective;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class WalkPathTest
+{
+	private static final int SIZE = Perspective.SCENE_SIZE;
+
+	private final int[][] flags = new int[SIZE][SIZE];
+	private final WalkPath path = new WalkPath();
+
+	@Test
+	public void testOpenGroundTakesShortestPath()
+	{
+		assertTrue(path.update(flags, 0, 50, 50, 55, 52));
+		assertLegal();
+		// Chebyshev distance plus the start tile
+		assertEquals(6, path.getEnd() - path.getFirst());
+		assertEquals(tile(50, 50), path.tiles[path.getFirst()]);
+		assertEquals(tile(55, 52), path.tiles[path.getEnd() - 1]);
+	}
+
+	@Test
+	public void testWalksAroundWalls()
+	{
+		// A wall along x = 52 with a gap at y = 40
+		for (int y = 30; y < 70; y++)
+		{
+			if (y != 40)
+			{
+				flags[52][y] = CollisionDataFlag.BLOCK_MOVEMENT_FULL;
+			}
+		}
+
+		assertTrue(path.update(flags, 0, 50, 50, 54, 50));
+		assertLegal();
+		assertTrue(visits(52, 40));
+		assertEquals(tile(54, 50), path.tiles[path.getEnd() - 1]);
+	}
+
+	@Test
+	public void testDiagonalsDoNotCutCorners()
+	{
+		// Moving north east from 50, 50 would squeeze past the wall on the east side of 50, 50
+		flags[50][50] = CollisionDataFlag.BLOCK_MOVEMENT_EAST;
+		flags[51][50] = CollisionDataFlag.BLOCK_MOVEMENT_WEST;
+
+		assertTrue(path.update(flags, 0, 50, 50, 51, 51));
+		assertLegal();
+		assertEquals(3, path.getEnd() - path.getFirst());
+		assertEquals(tile(50, 51), path.tiles[path.getFirst() + 1]);
+	}
+
+	@Test
+	public void testUnreachableDestinationWalksToClosestTile()
+	{
+		// A closed box from 60, 60 to 64, 64 around the destination
+		for (int i = 60; i <= 64; i++)
+		{
+			flags[i][60] = flags[i][64] = flags[60][i] = flags[64][i] = CollisionDataFlag.BLOCK_MOVEMENT_FULL;
+		}
+
+		assertTrue(path.update(flags, 0, 50, 62, 62, 62));
+		assertLegal();
+		assertEquals(tile(59, 62), path.tiles[path.getEnd() - 1]);
+	}
+
+	@Test
+	public void testOnlySearchesAgainWhenNeeded()
+	{
+		assertTrue(path.update(flags, 0, 40, 40, 60, 40));
+		assertEquals(1, path.getSearches());
+		final int end = path.getEnd();
+
+		// Walking along the path only drops the tiles already walked
+		for (int x = 41; x <= 60; x++)
+		{
+			assertTrue(path.update(flags, 0, x, 40, 60, 40));
+			assertEquals(tile(x, 40), path.tiles[path.getFirst()]);
+			assertEquals(end, path.getEnd());
+		}
+		assertEquals(1, path.getSearches());
+
+		// Leaving the path, moving the destination or changing the collision flags search again
+		assertTrue(path.update(flags, 0, 50, 45, 60, 40));
+		assertEquals(2, path.getSearches());
+		assertTrue(path.update(flags, 0, 50, 45, 60, 41));
+		assertEquals(3, path.getSearches());
+		assertTrue(path.update(flags, 1, 50, 45, 60, 41));
+		assertEquals(4, path.getSearches());
+		assertTrue(path.update(flags, 1, 50, 45, 60, 41));
+		assertEquals(4, path.getSearches());
+	}
+
+	@Test
+	public void testOutsideScene()
+	{
+		assertFalse(path.update(flags, 0, 50, 50, SIZE, 50));
+		assertFalse(path.update(flags, 0, -1, 50, 60, 50));
+	}
+
+	/**
+	 * Checks that every step of the path is a move of one tile that the collision flags allow.
+	 */
+	private void assertLegal()
+	{
+		for (int i = path.getFirst() + 1; i < path.getEnd(); i++)
+		{
+			final int x = path.tiles[i - 1] / SIZE;
+			final int y = path.tiles[i - 1] % SIZE;
+			final int dx = path.tiles[i] / SIZE - x;
+			final int dy = path.tiles[i] % SIZE - y;
+			assertTrue("step " + i + " is not to a neighbour", Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && (dx != 0 || dy != 0));
+			assertTrue("step " + i + " is blocked", canMove(x, y, dx, 0) && canMove(x, y, 0, dy)
+				&& (dx == 0 || dy == 0 || canMove(x + dx, y, 0, dy) && canMove(x, y + dy, dx, 0)));
+		}
+	}
+
+	private boolean canMove(int x, int y, int dx, int dy)
+	{
+		if (dx == 0 && dy == 0)
+		{
+			return true;
+		}
+		final int to = flags[x + dx][y + dy];
+		final int from = flags[x][y];
+		if ((to & CollisionDataFlag.BLOCK_MOVEMENT_FULL) != 0)
+		{
+			return false;
+		}
+		if (dx > 0)
+		{
+			return (from & CollisionDataFlag.BLOCK_MOVEMENT_EAST) == 0 && (to & CollisionDataFlag.BLOCK_MOVEMENT_WEST) == 0;
+		}
+		if (dx < 0)
+		{
+			return (from & CollisionDataFlag.BLOCK_MOVEMENT_WEST) == 0 && (to & CollisionDataFlag.BLOCK_MOVEMENT_EAST) == 0;
+		}
+		if (dy > 0)
+		{
+			return (from & CollisionDataFlag.BLOCK_MOVEMENT_NORTH) == 0 && (to & CollisionDataFlag.BLOCK_MOVEMENT_SOUTH) == 0;
+		}
+		return (from & CollisionDataFlag.BLOCK_MOVEMENT_SOUTH) == 0 && (to & CollisionDataFlag.BLOCK_MOVEMENT_NORTH) == 0;
+	}
+
+	private boolean visits(int x, int y)
+	{
+		for (int i = path.getFirst(); i < path.getEnd(); i++)
+		{
+			if (path.tiles[i] == tile(x, y))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int tile(int x, int y)
+	{
+		return x * SIZE + y;
+	}
+}